@@ -0,0 +1,4 @@
+#!/bin/bash
+# Разрешает потоковую репликацию с основной базы (выполняется при первой инициализации тома)
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -2,8 +2,10 @@ package com.matlakhov.techspecjavaspringfinalv2;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class TechSpecJavaSpringFinalV2Application {
 
     public static void main(String[] args) {
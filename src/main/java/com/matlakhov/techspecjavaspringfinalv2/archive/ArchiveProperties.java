@@ -0,0 +1,39 @@
+package com.matlakhov.techspecjavaspringfinalv2.archive;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки переноса мягко удалённых строк в архивные таблицы ({@code app.archive.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.archive")
+public class ArchiveProperties {
+
+    /**
+     * Включает перенос удалённых пользователей и подписок в архив по расписанию.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Сколько дней удалённая строка остаётся в рабочей таблице.
+     */
+    private int retentionDays = 30;
+
+    /**
+     * Сколько строк переносится одной транзакцией.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Пауза между транзакциями, чтобы перенос не забирал всю пропускную способность базы и реплик.
+     */
+    private long chunkPauseMs = 50;
+
+    /**
+     * Расписание переноса (cron).
+     */
+    private String cron = "0 30 3 * * *";
+}
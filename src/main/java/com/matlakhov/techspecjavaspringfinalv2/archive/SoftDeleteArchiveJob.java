@@ -0,0 +1,137 @@
+package com.matlakhov.techspecjavaspringfinalv2.archive;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Перенос мягко удалённых подписок и пользователей в архивные таблицы.
+ * <p>
+ * Строки, удалённые раньше {@code app.archive.retention-days} дней назад, переносятся порциями
+ * по {@code chunk-size} строк в порядке идентификаторов, каждая порция - отдельной транзакцией.
+ * В той же транзакции сохраняется контрольная точка ({@code archive_checkpoint}): граница удаления
+ * прохода и последний перенесённый идентификатор. Прерванный проход (остановка приложения, ошибка)
+ * продолжается со следующего идентификатора с той же границей. Сначала переносятся подписки,
+ * затем пользователи вместе с оставшимися подписками. При шардировании обрабатывается каждый шард.
+ * <p>
+ * Неудалённые подписки пользователей, удалённых раньше границы, перед переносом удаляются так же, как через API,
+ * с публикацией {@link SubscriptionChangedEvent}: статистика, кеши и поток топа перестают их учитывать.
+ * Пользователь переносится в архив, когда все его подписки удалены раньше границы.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.archive", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SoftDeleteArchiveJob {
+    private final SoftDeleteArchiveRepository archiveRepository;
+    private final ShardedQueryExecutor shardedQueries;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final long chunkPauseMs;
+
+    public SoftDeleteArchiveJob(SoftDeleteArchiveRepository archiveRepository,
+                                ShardedQueryExecutor shardedQueries,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                ArchiveProperties properties) {
+        this.archiveRepository = archiveRepository;
+        this.shardedQueries = shardedQueries;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = properties.getRetentionDays();
+        this.chunkSize = properties.getChunkSize();
+        this.chunkPauseMs = properties.getChunkPauseMs();
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void archive() {
+        shardedQueries.forEachShard(shard -> {
+            try {
+                long subscriptions = archive(SoftDeleteArchiveRepository.SUBSCRIPTIONS_JOB,
+                        archiveRepository::archiveSubscriptions);
+                long closed = closeSubscriptionsOfDeletedUsers();
+                long users = archive(SoftDeleteArchiveRepository.USERS_JOB, archiveRepository::archiveUsers);
+                if (closed > 0) {
+                    log.info("Удалено подписок удалённых пользователей на шарде {}: {}", shard, closed);
+                }
+                if (subscriptions > 0 || users > 0) {
+                    log.info("В архив перенесено на шарде {}: подписок {}, пользователей {}", shard, subscriptions, users);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("Перенос удалённых строк в архив на шарде {} не выполнен: {}", shard, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Переносит порции до конца прохода.
+     *
+     * @return количество перенесённых строк
+     */
+    private long archive(String job, ChunkMover mover) throws InterruptedException {
+        long total = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            SoftDeleteArchiveRepository.Chunk chunk = transactionTemplate.execute(status -> {
+                SoftDeleteArchiveRepository.Checkpoint checkpoint = archiveRepository.lockCheckpoint(job);
+                LocalDateTime cutoff = checkpoint.cutoff() != null
+                        ? checkpoint.cutoff()
+                        : archiveRepository.currentTimeMinusDays(retentionDays);
+                SoftDeleteArchiveRepository.Chunk moved = mover.move(cutoff, checkpoint.lastId(), chunkSize);
+                boolean finished = moved.count() < chunkSize;
+                archiveRepository.saveCheckpoint(job, finished ? null : cutoff, finished ? 0 : moved.lastId(),
+                        checkpoint.moved() + moved.count());
+                return moved;
+            });
+            total += chunk.count();
+            if (chunk.count() < chunkSize) {
+                break;
+            }
+            Thread.sleep(chunkPauseMs);
+        }
+        return total;
+    }
+
+    /**
+     * Удаляет порциями неудалённые подписки пользователей, удалённых раньше границы.
+     *
+     * @return количество удалённых подписок
+     */
+    private long closeSubscriptionsOfDeletedUsers() throws InterruptedException {
+        LocalDateTime cutoff = archiveRepository.currentTimeMinusDays(retentionDays);
+        long total = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int closed = transactionTemplate.execute(status -> {
+                List<SoftDeleteArchiveRepository.ClosedSubscription> subscriptions =
+                        archiveRepository.closeSubscriptionsOfDeletedUsers(cutoff, chunkSize);
+                // Слушатели получают события после фиксации, как при удалении подписки через API
+                subscriptions.forEach(sub -> eventPublisher.publishEvent(new SubscriptionChangedEvent(
+                        ChangeType.DELETED, sub.userId(), sub.id(), sub.serviceName(), sub.startDate(), sub.endDate())));
+                return subscriptions.size();
+            });
+            total += closed;
+            if (closed < chunkSize) {
+                break;
+            }
+            Thread.sleep(chunkPauseMs);
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface ChunkMover {
+        SoftDeleteArchiveRepository.Chunk move(LocalDateTime cutoff, long afterId, int limit);
+    }
+}
@@ -0,0 +1,207 @@
+package com.matlakhov.techspecjavaspringfinalv2.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Перенос мягко удалённых строк между рабочими таблицами и архивом
+ * ({@code users_archive}, {@code subscriptions_archive}).
+ * <p>
+ * Каждый перенос - один запрос {@code DELETE ... RETURNING} с вставкой удалённых строк в архив,
+ * поэтому строка не может оказаться в обеих таблицах или потеряться. Все методы работают в текущей транзакции.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SoftDeleteArchiveRepository {
+    static final String SUBSCRIPTIONS_JOB = "subscriptions";
+    static final String USERS_JOB = "users";
+
+    private static final String SUBSCRIPTION_COLUMNS =
+            "id, service_name, user_id, is_deleted, start_date, end_date, created_at, updated_at, deleted_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Состояние переноса: граница удаления текущего прохода ({@code null}, если проход не начат)
+     * и последний перенесённый идентификатор.
+     */
+    public record Checkpoint(LocalDateTime cutoff, long lastId, long moved) {
+    }
+
+    /**
+     * Результат переноса одной порции.
+     */
+    public record Chunk(int count, long lastId) {
+    }
+
+    public record ArchivedUser(Long id, String username, String email) {
+    }
+
+    public record ClosedSubscription(Long id, Long userId, String serviceName,
+                                     LocalDateTime startDate, LocalDateTime endDate) {
+    }
+
+    public record RestoredSubscription(Long id, String serviceName, boolean deleted,
+                                       LocalDateTime startDate, LocalDateTime endDate) {
+    }
+
+    /**
+     * Читает состояние переноса и блокирует его до конца транзакции,
+     * чтобы порции одного прохода не переносили несколько экземпляров приложения одновременно.
+     */
+    public Checkpoint lockCheckpoint(String job) {
+        return jdbcTemplate.queryForObject(
+                "SELECT cutoff, last_id, moved FROM archive_checkpoint WHERE job = ? FOR UPDATE",
+                (rs, rowNum) -> new Checkpoint(rs.getObject("cutoff", LocalDateTime.class),
+                        rs.getLong("last_id"), rs.getLong("moved")),
+                job);
+    }
+
+    public void saveCheckpoint(String job, LocalDateTime cutoff, long lastId, long moved) {
+        jdbcTemplate.update(
+                "UPDATE archive_checkpoint SET cutoff = ?, last_id = ?, moved = ?, updated_at = LOCALTIMESTAMP WHERE job = ?",
+                cutoff, lastId, moved, job);
+    }
+
+    /**
+     * @return время базы данных минус {@code days} дней
+     */
+    public LocalDateTime currentTimeMinusDays(int days) {
+        return jdbcTemplate.queryForObject(
+                "SELECT LOCALTIMESTAMP - make_interval(days => ?)", LocalDateTime.class, days);
+    }
+
+    /**
+     * Переносит в архив до {@code limit} подписок, удалённых не позже {@code cutoff}, с идентификатором больше
+     * {@code afterId}. Строки, заблокированные другими транзакциями, пропускаются до следующего прохода.
+     */
+    public Chunk archiveSubscriptions(LocalDateTime cutoff, long afterId, int limit) {
+        return jdbcTemplate.queryForObject("""
+                WITH batch AS (
+                    SELECT id FROM subscriptions
+                     WHERE is_deleted = true AND deleted_at <= ? AND id > ?
+                     ORDER BY id
+                     LIMIT ?
+                       FOR UPDATE SKIP LOCKED),
+                moved AS (
+                    DELETE FROM subscriptions s USING batch b WHERE s.id = b.id
+                    RETURNING s.id, s.service_name, s.user_id, s.is_deleted, s.start_date, s.end_date,
+                              s.created_at, s.updated_at, s.deleted_at),
+                archived AS (
+                    INSERT INTO subscriptions_archive (%s)
+                    SELECT * FROM moved
+                    RETURNING id)
+                SELECT COUNT(*) AS count, COALESCE(MAX(id), ?) AS last_id FROM archived
+                """.formatted(SUBSCRIPTION_COLUMNS),
+                (rs, rowNum) -> new Chunk(rs.getInt("count"), rs.getLong("last_id")),
+                cutoff, afterId, limit, afterId);
+    }
+
+    /**
+     * Удаляет до {@code limit} неудалённых подписок пользователей, удалённых не позже {@code cutoff}, так же,
+     * как удаление подписки через API: с датой окончания и временем удаления, с уменьшением счётчика
+     * {@code users.active_subscription_count}. Строки, заблокированные другими транзакциями, пропускаются.
+     *
+     * @return удалённые подписки
+     */
+    public List<ClosedSubscription> closeSubscriptionsOfDeletedUsers(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.query("""
+                WITH batch AS (
+                    SELECT s.id, s.start_date FROM subscriptions s JOIN users u ON u.id = s.user_id
+                     WHERE u.is_deleted = true AND u.deleted_at <= ? AND s.is_deleted = false
+                     ORDER BY s.id
+                     LIMIT ?
+                       FOR UPDATE OF s SKIP LOCKED),
+                closed AS (
+                    UPDATE subscriptions s
+                       SET is_deleted = true, end_date = LOCALTIMESTAMP, deleted_at = LOCALTIMESTAMP
+                      FROM batch b
+                     WHERE s.id = b.id AND s.start_date = b.start_date
+                    RETURNING s.id, s.user_id, s.service_name, s.start_date, s.end_date),
+                counted AS (
+                    UPDATE users u
+                       SET active_subscription_count = GREATEST(u.active_subscription_count - c.closed, 0)
+                      FROM (SELECT user_id, COUNT(*) AS closed FROM closed GROUP BY user_id) c
+                     WHERE u.id = c.user_id)
+                SELECT * FROM closed ORDER BY id
+                """,
+                (rs, rowNum) -> new ClosedSubscription(rs.getLong("id"), rs.getLong("user_id"),
+                        rs.getString("service_name"), rs.getObject("start_date", LocalDateTime.class),
+                        rs.getObject("end_date", LocalDateTime.class)),
+                cutoff, limit);
+    }
+
+    /**
+     * Переносит в архив до {@code limit} пользователей, удалённых не позже {@code cutoff}, вместе со всеми
+     * их подписками (внешний ключ не позволяет оставить подписки без пользователя). Пользователь с
+     * неудалёнными подписками или с подписками, удалёнными позже {@code cutoff}, ждёт следующих проходов:
+     * переносятся только подписки, которые уже учтены статистикой и кешами как удалённые.
+     */
+    public Chunk archiveUsers(LocalDateTime cutoff, long afterId, int limit) {
+        return jdbcTemplate.queryForObject("""
+                WITH batch AS (
+                    SELECT id FROM users u
+                     WHERE is_deleted = true AND deleted_at <= ? AND id > ?
+                       AND NOT EXISTS (SELECT 1 FROM subscriptions s
+                                        WHERE s.user_id = u.id AND (s.is_deleted = false OR s.deleted_at > ?))
+                     ORDER BY id
+                     LIMIT ?
+                       FOR UPDATE SKIP LOCKED),
+                moved_subscriptions AS (
+                    DELETE FROM subscriptions s USING batch b WHERE s.user_id = b.id
+                    RETURNING s.id, s.service_name, s.user_id, s.is_deleted, s.start_date, s.end_date,
+                              s.created_at, s.updated_at, s.deleted_at),
+                archived_subscriptions AS (
+                    INSERT INTO subscriptions_archive (%s)
+                    SELECT * FROM moved_subscriptions),
+                moved AS (
+                    DELETE FROM users u USING batch b WHERE u.id = b.id
+                    RETURNING u.id, u.username, u.email, u.deleted_at),
+                archived AS (
+                    INSERT INTO users_archive (id, username, email, deleted_at)
+                    SELECT * FROM moved
+                    RETURNING id)
+                SELECT COUNT(*) AS count, COALESCE(MAX(id), ?) AS last_id FROM archived
+                """.formatted(SUBSCRIPTION_COLUMNS),
+                (rs, rowNum) -> new Chunk(rs.getInt("count"), rs.getLong("last_id")),
+                cutoff, afterId, cutoff, limit, afterId);
+    }
+
+    public Optional<ArchivedUser> findArchivedUser(Long userId) {
+        return jdbcTemplate.query("SELECT id, username, email FROM users_archive WHERE id = ?",
+                (rs, rowNum) -> new ArchivedUser(rs.getLong("id"), rs.getString("username"), rs.getString("email")),
+                userId).stream().findFirst();
+    }
+
+    /**
+     * Возвращает пользователя из архива в рабочую таблицу действующим, а его подписки - с прежним состоянием.
+     *
+     * @return восстановленные подписки
+     */
+    public List<RestoredSubscription> restoreUser(Long userId) {
+        jdbcTemplate.update("""
+                WITH moved AS (DELETE FROM users_archive WHERE id = ? RETURNING id, username, email)
+                INSERT INTO users (id, username, email, is_deleted, active_subscription_count)
+                SELECT id, username, email, false,
+                       (SELECT COUNT(*) FROM subscriptions_archive s WHERE s.user_id = moved.id AND s.is_deleted = false)
+                  FROM moved
+                """, userId);
+        return jdbcTemplate.query("""
+                WITH moved AS (
+                    DELETE FROM subscriptions_archive WHERE user_id = ?
+                    RETURNING %1$s)
+                INSERT INTO subscriptions (%1$s)
+                SELECT * FROM moved
+                RETURNING id, service_name, is_deleted, start_date, end_date
+                """.formatted(SUBSCRIPTION_COLUMNS),
+                (rs, rowNum) -> new RestoredSubscription(rs.getLong("id"), rs.getString("service_name"),
+                        rs.getBoolean("is_deleted"), rs.getObject("start_date", LocalDateTime.class),
+                        rs.getObject("end_date", LocalDateTime.class)),
+                userId);
+    }
+}
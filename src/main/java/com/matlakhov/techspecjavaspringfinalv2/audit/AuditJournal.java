@@ -0,0 +1,308 @@
+package com.matlakhov.techspecjavaspringfinalv2.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Журнал аудита только для дозаписи в отображённых в память файлах-сегментах.
+ * <p>
+ * Записи фиксированного размера ({@value #RECORD_SIZE} байт) нумеруются сквозным номером, сегмент
+ * {@code audit-<номер первой записи>.journal} вмещает {@code segmentSize / RECORD_SIZE} записей.
+ * Место под запись выделяется без блокировок ({@link AtomicLong#getAndIncrement()} номера), поля пишутся
+ * в отображённый буфер, последним с семантикой release пишется признак записи: запись без признака
+ * (ещё не дописанная или оборванная падением процесса) читатели пропускают. Блокировка берётся только
+ * при переходе на следующий сегмент.
+ * <p>
+ * Данные попадают в страничный кеш сразу и переживают падение приложения; на диск их сбрасывает
+ * {@link #force()}. При открытии журнал продолжает последний сегмент после последней записи в нём.
+ *
+ * <pre>
+ *  0 int   признак записи {@link #COMMITTED}
+ *  4 byte  код {@link AuditOperation}
+ *  5 byte  длина имени, 6 byte длина email, 7 - не используется
+ *  8 long  номер записи
+ * 16 long  время, мс
+ * 24 long  id пользователя
+ * 32 long  id подписки
+ * 40 имя, {@value #NAME_BYTES} байт UTF-8
+ * 80 email, {@value #EMAIL_BYTES} байт UTF-8
+ * </pre>
+ */
+public final class AuditJournal implements Closeable {
+    public static final int RECORD_SIZE = 128;
+    public static final int NAME_BYTES = 40;
+    public static final int EMAIL_BYTES = 48;
+    static final int COMMITTED = 0x41554431;
+    static final String PREFIX = "audit-";
+    static final String SUFFIX = ".journal";
+
+    private static final int OPERATION = 4;
+    private static final int NAME_LENGTH = 5;
+    private static final int EMAIL_LENGTH = 6;
+    private static final int SEQUENCE = 8;
+    private static final int TIMESTAMP = 16;
+    private static final int USER_ID = 24;
+    private static final int SUBSCRIPTION_ID = 32;
+    private static final int NAME = 40;
+    private static final int EMAIL = NAME + NAME_BYTES;
+    private static final VarHandle MARKER = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final AtomicLong nextSequence;
+    /**
+     * Открытые сегменты, от старых к новым; последний - текущий. Предыдущий остаётся открытым для
+     * {@link #tail(int)}, более старые - пока в них не допишут запоздавшие писатели и пока они не сброшены на диск.
+     */
+    private final Deque<Segment> open = new ArrayDeque<>();
+    private volatile Segment current;
+
+    public AuditJournal(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Audit segment must hold at least one record");
+        }
+        this.directory = directory;
+        this.recordsPerSegment = segmentSize / RECORD_SIZE;
+        Files.createDirectories(directory);
+        List<Path> segments = AuditJournalReader.segments(directory);
+        Segment last;
+        long next;
+        if (segments.isEmpty()) {
+            last = Segment.open(directory, 0, recordsPerSegment);
+            next = 0;
+        } else {
+            Path file = segments.get(segments.size() - 1);
+            long firstSequence = AuditJournalReader.firstSequence(file);
+            int capacity = (int) (Files.size(file) / RECORD_SIZE);
+            last = Segment.open(directory, firstSequence, Math.max(capacity, 1));
+            next = firstSequence + last.committedCount();
+        }
+        this.nextSequence = new AtomicLong(next);
+        this.open.add(last);
+        this.current = last;
+    }
+
+    /**
+     * Дописывает запись.
+     *
+     * @return номер записи
+     */
+    public long append(AuditOperation operation, long userId, long subscriptionId, String name, String email) {
+        long sequence = nextSequence.getAndIncrement();
+        Segment segment = segmentFor(sequence);
+        ByteBuffer buffer = segment.buffer;
+        int offset = (int) (sequence - segment.firstSequence) * RECORD_SIZE;
+        // Абсолютные операции не меняют позицию буфера, поэтому писатели разных записей не мешают друг другу
+        buffer.put(offset + OPERATION, operation.code());
+        buffer.put(offset + NAME_LENGTH, putText(buffer, offset + NAME, NAME_BYTES, name));
+        buffer.put(offset + EMAIL_LENGTH, putText(buffer, offset + EMAIL, EMAIL_BYTES, email));
+        buffer.putLong(offset + SEQUENCE, sequence);
+        buffer.putLong(offset + TIMESTAMP, System.currentTimeMillis());
+        buffer.putLong(offset + USER_ID, userId);
+        buffer.putLong(offset + SUBSCRIPTION_ID, subscriptionId);
+        MARKER.setRelease(buffer, offset, COMMITTED);
+        return sequence;
+    }
+
+    /**
+     * @return номер следующей записи
+     */
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Возвращает последние записи из текущего и предыдущего сегментов.
+     *
+     * @param limit максимальное количество записей
+     * @return записи по возрастанию номера
+     */
+    public List<AuditRecord> tail(int limit) {
+        List<Segment> segments;
+        synchronized (this) {
+            segments = new ArrayList<>(open);
+        }
+        long end = Math.min(nextSequence.get(), segments.get(segments.size() - 1).end());
+        Deque<AuditRecord> found = new ArrayDeque<>(Math.min(limit, 1024));
+        for (int i = segments.size() - 1; i >= 0 && found.size() < limit; i--) {
+            Segment segment = segments.get(i);
+            for (long sequence = Math.min(end, segment.end()) - 1;
+                 sequence >= segment.firstSequence && found.size() < limit; sequence--) {
+                AuditRecord record = read(segment.buffer, (int) (sequence - segment.firstSequence) * RECORD_SIZE);
+                if (record != null) {
+                    found.addFirst(record);
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Сбрасывает на диск записанное с прошлого вызова и закрывает сегменты, в которые уже никто не пишет.
+     */
+    public synchronized void force() {
+        long reserved = nextSequence.get();
+        for (Segment segment : open) {
+            segment.force(reserved);
+        }
+        while (open.size() > 2 && open.peekFirst().isComplete()) {
+            open.pollFirst().close();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        for (Segment segment : open) {
+            segment.close();
+        }
+        open.clear();
+    }
+
+    private Segment segmentFor(long sequence) {
+        Segment segment = current;
+        if (sequence >= segment.firstSequence && sequence < segment.end()) {
+            return segment;
+        }
+        synchronized (this) {
+            while (sequence >= current.end()) {
+                Segment next = Segment.open(directory, current.end(), recordsPerSegment);
+                open.addLast(next);
+                current = next;
+            }
+            for (Segment candidate : open) {
+                if (sequence >= candidate.firstSequence && sequence < candidate.end()) {
+                    return candidate;
+                }
+            }
+        }
+        throw new IllegalStateException("Audit segment for record " + sequence + " is already closed");
+    }
+
+    /**
+     * @return запись по смещению {@code offset} или {@code null}, если она ещё не записана или оборвана
+     */
+    static AuditRecord read(ByteBuffer buffer, int offset) {
+        if ((int) MARKER.getAcquire(buffer, offset) != COMMITTED) {
+            return null;
+        }
+        return new AuditRecord(
+                buffer.getLong(offset + SEQUENCE),
+                buffer.getLong(offset + TIMESTAMP),
+                AuditOperation.fromCode(buffer.get(offset + OPERATION)),
+                buffer.getLong(offset + USER_ID),
+                buffer.getLong(offset + SUBSCRIPTION_ID),
+                getText(buffer, offset + NAME, buffer.get(offset + NAME_LENGTH)),
+                getText(buffer, offset + EMAIL, buffer.get(offset + EMAIL_LENGTH)));
+    }
+
+    private static byte putText(ByteBuffer buffer, int offset, int capacity, String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, capacity);
+        // Не разрезаем многобайтовый символ UTF-8
+        while (length < bytes.length && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.put(offset, bytes, 0, length);
+        return (byte) length;
+    }
+
+    private static String getText(ByteBuffer buffer, int offset, byte length) {
+        byte[] bytes = new byte[length & 0xFF];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Segment {
+        private final long firstSequence;
+        private final int capacity;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int forcedRecords;
+        private int stalledAt = -1;
+
+        private Segment(long firstSequence, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+            this.firstSequence = firstSequence;
+            this.capacity = capacity;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path directory, long firstSequence, int capacity) {
+            Path file = directory.resolve(AuditJournalReader.fileName(firstSequence));
+            try {
+                FileChannel channel = FileChannel.open(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+                return new Segment(firstSequence, capacity, channel, buffer);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open audit segment " + file, e);
+            }
+        }
+
+        long end() {
+            return firstSequence + capacity;
+        }
+
+        /**
+         * @return количество записей до первой свободной позиции после последней записанной
+         */
+        int committedCount() {
+            for (int slot = capacity - 1; slot >= 0; slot--) {
+                if (read(buffer, slot * RECORD_SIZE) != null) {
+                    return slot + 1;
+                }
+            }
+            return 0;
+        }
+
+        boolean isComplete() {
+            return forcedRecords == capacity;
+        }
+
+        /**
+         * Сбрасывает записи с {@code forcedRecords} до {@code reserved} и сдвигает границу сброшенного до первой
+         * недописанной записи: её допишут и сбросят в следующий раз. Запись, оставшаяся недописанной два вызова
+         * подряд при уже дописанных следующих, считается брошенной и пропускается.
+         */
+        void force(long reserved) {
+            int records = (int) Math.min(Math.max(reserved - firstSequence, 0), capacity);
+            if (records <= forcedRecords) {
+                return;
+            }
+            buffer.force(forcedRecords * RECORD_SIZE, (records - forcedRecords) * RECORD_SIZE);
+            int slot = forcedRecords;
+            while (slot < records && (read(buffer, slot * RECORD_SIZE) != null || slot == stalledAt)) {
+                slot++;
+            }
+            stalledAt = slot < records ? slot : -1;
+            forcedRecords = slot;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Отображение остаётся действительным и после закрытия канала
+            }
+        }
+    }
+}
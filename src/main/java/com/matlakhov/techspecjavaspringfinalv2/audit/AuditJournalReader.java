@@ -0,0 +1,98 @@
+package com.matlakhov.techspecjavaspringfinalv2.audit;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Чтение и воспроизведение журнала аудита из файлов, в том числе без запущенного приложения.
+ * <p>
+ * Запуск из каталога сборки:
+ * <pre>
+ * java -cp target/classes com.matlakhov.techspecjavaspringfinalv2.audit.AuditJournalReader audit [номер первой записи]
+ * </pre>
+ * печатает записи по одной в строке через табуляцию: номер, время, операция, пользователь, подписка, имя, email.
+ * Недописанные записи (признак записи не выставлен) пропускаются.
+ */
+public final class AuditJournalReader {
+
+    private AuditJournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: AuditJournalReader <directory> [fromSequence]");
+            System.exit(2);
+        }
+        long from = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        replay(Path.of(args[0]), from, record -> out.println(record.sequence()
+                + "\t" + Instant.ofEpochMilli(record.timestamp())
+                + "\t" + record.operation()
+                + "\t" + record.userId()
+                + "\t" + record.subscriptionId()
+                + "\t" + record.name()
+                + "\t" + record.email()));
+        out.flush();
+    }
+
+    /**
+     * Передаёт {@code consumer} записи журнала по возрастанию номера, начиная с {@code fromSequence}.
+     */
+    public static void replay(Path directory, long fromSequence, Consumer<AuditRecord> consumer) throws IOException {
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                long size = channel.size() - channel.size() % AuditJournal.RECORD_SIZE;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                for (int offset = 0; offset < size; offset += AuditJournal.RECORD_SIZE) {
+                    AuditRecord record = AuditJournal.read(buffer, offset);
+                    if (record != null && record.sequence() >= fromSequence) {
+                        consumer.accept(record);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return файлы сегментов по возрастанию номера первой записи
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(AuditJournalReader::isSegment)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static String fileName(long firstSequence) {
+        return AuditJournal.PREFIX + String.format("%019d", firstSequence) + AuditJournal.SUFFIX;
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name, AuditJournal.PREFIX.length(), name.length() - AuditJournal.SUFFIX.length(), 10);
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(AuditJournal.PREFIX) && name.endsWith(AuditJournal.SUFFIX)
+                && name.length() == AuditJournal.PREFIX.length() + 19 + AuditJournal.SUFFIX.length();
+    }
+}
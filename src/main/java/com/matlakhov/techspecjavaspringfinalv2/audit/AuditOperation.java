@@ -0,0 +1,53 @@
+package com.matlakhov.techspecjavaspringfinalv2.audit;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+
+/**
+ * Вид изменения в журнале аудита. Код хранится в записи журнала, поэтому менять существующие коды нельзя.
+ */
+public enum AuditOperation {
+    USER_CREATED(1),
+    USER_UPDATED(2),
+    USER_DELETED(3),
+    SUBSCRIPTION_ADDED(4),
+    SUBSCRIPTION_UPDATED(5),
+    SUBSCRIPTION_DELETED(6);
+
+    private final byte code;
+
+    AuditOperation(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    /**
+     * @return операция с кодом {@code code} или {@code null}, если такой нет
+     */
+    public static AuditOperation fromCode(byte code) {
+        for (AuditOperation operation : values()) {
+            if (operation.code == code) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    public static AuditOperation forUser(ChangeType type) {
+        return switch (type) {
+            case CREATED -> USER_CREATED;
+            case UPDATED -> USER_UPDATED;
+            case DELETED -> USER_DELETED;
+        };
+    }
+
+    public static AuditOperation forSubscription(ChangeType type) {
+        return switch (type) {
+            case CREATED -> SUBSCRIPTION_ADDED;
+            case UPDATED -> SUBSCRIPTION_UPDATED;
+            case DELETED -> SUBSCRIPTION_DELETED;
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.matlakhov.techspecjavaspringfinalv2.audit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки журнала аудита изменений пользователей и подписок ({@code app.audit.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.audit")
+public class AuditProperties {
+
+    /**
+     * Включает запись изменений в журнал и эндпоинт {@code /audit/events}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Каталог сегментов журнала.
+     */
+    private String directory = "audit";
+
+    /**
+     * Размер одного сегмента в мегабайтах; сегмент целиком отображается в память.
+     */
+    private int segmentSizeMb = 64;
+
+    /**
+     * Как часто записанное сбрасывается на диск ({@code MappedByteBuffer.force}).
+     * До сброса записи переживают падение приложения, но не сбой операционной системы.
+     */
+    private long forceIntervalMs = 1000;
+
+    /**
+     * Сколько последних записей можно получить за один запрос к {@code /audit/events}.
+     */
+    private int maxTailLimit = 1000;
+}
@@ -0,0 +1,16 @@
+package com.matlakhov.techspecjavaspringfinalv2.audit;
+
+/**
+ * Запись журнала аудита.
+ *
+ * @param sequence       номер записи, сквозной для всех сегментов
+ * @param timestamp      время записи, миллисекунды от начала эпохи
+ * @param operation      вид изменения
+ * @param userId         идентификатор пользователя
+ * @param subscriptionId идентификатор подписки или 0 для изменений пользователя
+ * @param name           имя пользователя или название сервиса (обрезается до {@value AuditJournal#NAME_BYTES} байт UTF-8)
+ * @param email          email пользователя или пустая строка (обрезается до {@value AuditJournal#EMAIL_BYTES} байт UTF-8)
+ */
+public record AuditRecord(long sequence, long timestamp, AuditOperation operation, long userId,
+                          long subscriptionId, String name, String email) {
+}
@@ -0,0 +1,108 @@
+package com.matlakhov.techspecjavaspringfinalv2.audit;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.AuditEventDto;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Аудит изменений пользователей и подписок в {@link AuditJournal} ({@code app.audit.enabled=true}).
+ * <p>
+ * Записывает зафиксированные изменения: события {@link UserChangedEvent} и {@link SubscriptionChangedEvent}
+ * после фиксации транзакций. Запись - несколько обращений к отображённой памяти, без запросов к базе;
+ * раз в {@code app.audit.force-interval-ms} записанное сбрасывается на диск.
+ * <p>
+ * При сборке со Spring AOT условие {@code @ConditionalOnProperty} вычисляется при сборке, поэтому
+ * {@code app.audit.enabled=false} при запуске (например, в пробном запуске CDS) проверяется ещё и здесь:
+ * журнал не открывается, а записи и запросы к нему игнорируются.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.audit", name = "enabled", havingValue = "true")
+public class AuditTrail implements DisposableBean {
+    private final AuditJournal journal;
+    private final int maxTailLimit;
+
+    public AuditTrail(AuditProperties properties) {
+        this.maxTailLimit = properties.getMaxTailLimit();
+        if (!properties.isEnabled()) {
+            this.journal = null;
+            return;
+        }
+        Path directory = Path.of(properties.getDirectory()).toAbsolutePath();
+        try {
+            this.journal = new AuditJournal(directory, properties.getSegmentSizeMb() * 1024 * 1024);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open audit journal in " + directory, e);
+        }
+        log.info("Журнал аудита открыт в {}, следующая запись {}", directory, journal.nextSequence());
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (journal == null) {
+            return;
+        }
+        journal.append(AuditOperation.forUser(event.type()), event.userId(), 0, event.username(), event.email());
+    }
+
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        if (journal == null) {
+            return;
+        }
+        journal.append(AuditOperation.forSubscription(event.type()), event.userId(), event.subscriptionId(),
+                event.serviceName(), null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.force-interval-ms:1000}")
+    public void force() {
+        if (journal != null) {
+            journal.force();
+        }
+    }
+
+    /**
+     * @param limit максимальное количество записей, не больше {@code app.audit.max-tail-limit}
+     * @return последние записи журнала по возрастанию номера
+     */
+    public List<AuditEventDto> tail(int limit) {
+        if (journal == null) {
+            return List.of();
+        }
+        return journal.tail(Math.max(1, Math.min(limit, maxTailLimit))).stream()
+                .map(AuditTrail::toDto)
+                .toList();
+    }
+
+    private static AuditEventDto toDto(AuditRecord record) {
+        boolean subscription = record.subscriptionId() != 0;
+        return new AuditEventDto(
+                record.sequence(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault()),
+                String.valueOf(record.operation()),
+                record.userId(),
+                subscription ? record.subscriptionId() : null,
+                record.name(),
+                subscription ? null : record.email());
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
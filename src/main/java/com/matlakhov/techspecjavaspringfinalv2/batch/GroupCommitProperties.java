@@ -0,0 +1,35 @@
+package com.matlakhov.techspecjavaspringfinalv2.batch;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки группового сохранения подписок ({@code app.subscriptions.group-commit.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.subscriptions.group-commit")
+public class GroupCommitProperties {
+
+    /**
+     * Включает групповое сохранение: запросы на добавление подписки собираются в пакеты,
+     * каждый пакет сохраняется одной транзакцией.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Максимальное количество подписок в одном пакете.
+     */
+    private int maxBatchSize = 64;
+
+    /**
+     * Сколько ждать следующих запросов после первого запроса пакета, в микросекундах.
+     */
+    private long maxDelayUs = 500;
+
+    /**
+     * Максимальное количество ожидающих запросов; при переполнении отвечаем 503.
+     */
+    private int queueCapacity = 4096;
+}
@@ -0,0 +1,320 @@
+package com.matlakhov.techspecjavaspringfinalv2.batch;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.exception.DuplicateResourceException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.ResourceNotFoundException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.QuotaExceededException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException;
+import com.matlakhov.techspecjavaspringfinalv2.mappers.SubscriptionMapper;
+import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
+import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
+import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRepository;
+import com.matlakhov.techspecjavaspringfinalv2.repository.UserRepository;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionQuotaProperties;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionService;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardRoutingDataSource;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Групповое сохранение подписок (group commit).
+ * <p>
+ * Запросы на добавление подписки кладутся в ограниченную очередь без блокировок. Единственный поток записи
+ * забирает из неё до {@code max-batch-size} запросов, ожидая следующие не дольше {@code max-delay-us}
+ * после первого, и сохраняет пакет одной транзакцией с многострочным {@code INSERT}, который тем же запросом
+ * увеличивает {@code users.active_subscription_count}. Каждый вызывающий получает свой результат: созданную
+ * подписку, {@link ResourceNotFoundException}, {@link DuplicateResourceException} или {@link QuotaExceededException}.
+ * Если пакет не сохранился (например, параллельный запрос вставил ту же подписку), оставшиеся запросы пакета
+ * выполняются по одному через {@link SubscriptionService}, и ошибка одного запроса не затрагивает остальные.
+ * При шардировании пакет делится по шардам пользователей.
+ * <p>
+ * Создаётся только при {@code app.subscriptions.group-commit.enabled=true}; без группового сохранения подписка
+ * сохраняется синхронно в потоке запроса через {@link SubscriptionService}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.subscriptions.group-commit", name = "enabled", havingValue = "true")
+public class SubscriptionBatchWriter implements DisposableBean {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int queueCapacity;
+    private final long maxActivePerUser;
+    private final SubscriptionService subscriptionService;
+    private final UserRepository userRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionMapper subscriptionMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardedQueryExecutor shardedQueries;
+
+    private final ConcurrentLinkedQueue<PendingSubscription> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean running;
+    private final Thread writer;
+
+    public SubscriptionBatchWriter(GroupCommitProperties properties,
+                                   SubscriptionQuotaProperties quotaProperties,
+                                   SubscriptionService subscriptionService,
+                                   UserRepository userRepository,
+                                   SubscriptionRepository subscriptionRepository,
+                                   SubscriptionMapper subscriptionMapper,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   ApplicationEventPublisher eventPublisher,
+                                   ShardedQueryExecutor shardedQueries) {
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(properties.getMaxDelayUs());
+        this.queueCapacity = properties.getQueueCapacity();
+        this.maxActivePerUser = quotaProperties.getMaxActivePerUser();
+        this.subscriptionService = subscriptionService;
+        this.userRepository = userRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionMapper = subscriptionMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.shardedQueries = shardedQueries;
+        running = true;
+        writer = new Thread(this::writeLoop, "subscription-batch-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Добавляет подписку пользователю.
+     *
+     * @param userId идентификатор пользователя
+     * @param dto    данные подписки
+     * @return созданная подписка; завершается исключением, если пользователь не найден, подписка уже есть
+     * или исчерпан лимит подписок пользователя
+     * @throws ServiceOverloadedException если очередь записи переполнена
+     */
+    public CompletableFuture<SubscriptionDto> submit(Long userId, SubscriptionDto dto) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            throw new ServiceOverloadedException("Subscription write queue is full");
+        }
+        PendingSubscription pending = new PendingSubscription(userId, dto, new CompletableFuture<>());
+        queue.offer(pending);
+        LockSupport.unpark(writer);
+        return pending.result();
+    }
+
+    private void writeLoop() {
+        List<PendingSubscription> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            PendingSubscription first = queue.poll();
+            if (first == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < maxBatchSize) {
+                PendingSubscription next = queue.poll();
+                if (next != null) {
+                    batch.add(next);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !running) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            queued.addAndGet(-batch.size());
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingSubscription> batch) {
+        if (!shardedQueries.isEnabled()) {
+            writeGroup(batch);
+            return;
+        }
+        Map<Integer, List<PendingSubscription>> byShard = new TreeMap<>();
+        for (PendingSubscription pending : batch) {
+            byShard.computeIfAbsent(ShardRoutingDataSource.shardOf(pending.userId(), shardedQueries.shardCount()),
+                    shard -> new ArrayList<>()).add(pending);
+        }
+        byShard.forEach((shard, group) -> {
+            ShardContext.bind(shard);
+            try {
+                writeGroup(group);
+            } finally {
+                ShardContext.clear();
+            }
+        });
+    }
+
+    private void writeGroup(List<PendingSubscription> group) {
+        try {
+            List<Runnable> completions = transactionTemplate.execute(status -> insert(group));
+            // Успешные результаты отдаём только после фиксации транзакции
+            completions.forEach(Runnable::run);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сохранить пакет из {} подписок, подписки сохраняются по одной", group.size(), e);
+            for (PendingSubscription pending : group) {
+                if (!pending.result().isDone()) {
+                    addOne(pending);
+                }
+            }
+        }
+    }
+
+    private void addOne(PendingSubscription pending) {
+        try {
+            pending.result().complete(subscriptionService.addSubscription(pending.userId(), pending.dto()));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private List<Runnable> insert(List<PendingSubscription> group) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> userIds = new HashSet<>();
+        group.forEach(pending -> userIds.add(pending.userId()));
+
+        Map<Long, UserEntity> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getId(), user));
+        Set<SubscriptionKey> existing = new HashSet<>();
+        for (Object[] row : subscriptionRepository.findServiceNamesByUserIds(userIds)) {
+            existing.add(new SubscriptionKey((Long) row[0], (String) row[1]));
+        }
+
+        List<PendingSubscription> accepted = new ArrayList<>(group.size());
+        Map<Long, Integer> added = new HashMap<>();
+        for (PendingSubscription pending : group) {
+            if (!users.containsKey(pending.userId())) {
+                pending.result().completeExceptionally(new ResourceNotFoundException("User not found"));
+            } else if (!existing.add(pending.key())) {
+                pending.result().completeExceptionally(new DuplicateResourceException("Subscription already exists"));
+            } else if (!withinQuota(users.get(pending.userId()), added.getOrDefault(pending.userId(), 0))) {
+                existing.remove(pending.key());
+                pending.result().completeExceptionally(new QuotaExceededException("Active subscription limit reached"));
+            } else {
+                added.merge(pending.userId(), 1, Integer::sum);
+                accepted.add(pending);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return List.of();
+        }
+
+        Map<SubscriptionKey, Long> ids = insertRows(accepted, added, now);
+        List<Runnable> completions = new ArrayList<>(accepted.size());
+        for (PendingSubscription pending : accepted) {
+            Long id = ids.get(pending.key());
+            if (id == null) {
+                // Пока читался пакет, пользователю добавили подписки в обход очереди, и лимит уже исчерпан
+                pending.result().completeExceptionally(new QuotaExceededException("Active subscription limit reached"));
+                continue;
+            }
+            SubscriptionEntity sub = new SubscriptionEntity();
+            sub.setId(id);
+            sub.setServiceName(pending.serviceName());
+            sub.setUserEntity(users.get(pending.userId()));
+            sub.setIsDeleted(false);
+            sub.setStartDate(now);
+            sub.setEndDate(null);
+            eventPublisher.publishEvent(new SubscriptionChangedEvent(
+                    ChangeType.CREATED, pending.userId(), sub.getId(), sub.getServiceName(), now, null));
+            SubscriptionDto dto = subscriptionMapper.toDto(sub);
+            completions.add(() -> pending.result().complete(dto));
+        }
+        return completions;
+    }
+
+    private boolean withinQuota(UserEntity user, int added) {
+        return maxActivePerUser <= 0 || user.getActiveSubscriptionCount() + added < maxActivePerUser;
+    }
+
+    /**
+     * Вставляет все подписки пакета и увеличивает счётчики их пользователей одним запросом.
+     * Подписки пользователя, счётчик которого превысил бы лимит, не вставляются.
+     * Пара (пользователь, сервис) в пакете уникальна, по ней сопоставляются выданные идентификаторы.
+     */
+    private Map<SubscriptionKey, Long> insertRows(List<PendingSubscription> rows, Map<Long, Integer> added,
+                                                  LocalDateTime now) {
+        StringBuilder sql = new StringBuilder(320 + added.size() * 8 + rows.size() * 12)
+                .append("WITH counted AS (UPDATE users u ")
+                .append("SET active_subscription_count = u.active_subscription_count + v.added FROM (VALUES ");
+        List<Object> args = new ArrayList<>(added.size() * 2 + 2 + rows.size() * 3);
+        added.forEach((userId, count) -> {
+            sql.append(args.isEmpty() ? "(?, ?)" : ", (?, ?)");
+            args.add(userId);
+            args.add(count);
+        });
+        sql.append(") AS v (id, added) WHERE u.id = v.id AND (? <= 0 OR u.active_subscription_count + v.added <= ?) ")
+                .append("RETURNING u.id) ")
+                .append("INSERT INTO subscriptions (service_name, user_id, is_deleted, start_date) ")
+                .append("SELECT r.service_name, r.user_id, false, r.start_date FROM (VALUES ");
+        args.add(maxActivePerUser);
+        args.add(maxActivePerUser);
+        for (int i = 0; i < rows.size(); i++) {
+            PendingSubscription pending = rows.get(i);
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            args.add(pending.serviceName());
+            args.add(pending.userId());
+            args.add(now);
+        }
+        sql.append(") AS r (service_name, user_id, start_date) WHERE r.user_id IN (SELECT id FROM counted)")
+                .append(" RETURNING id, user_id, service_name");
+
+        Map<SubscriptionKey, Long> ids = new HashMap<>();
+        jdbcTemplate.query(sql.toString(),
+                rs -> {
+                    ids.put(new SubscriptionKey(rs.getLong("user_id"), rs.getString("service_name")), rs.getLong("id"));
+                },
+                args.toArray());
+        return ids;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private record SubscriptionKey(Long userId, String serviceName) {
+    }
+
+    private record PendingSubscription(Long userId, SubscriptionDto dto, CompletableFuture<SubscriptionDto> result) {
+        String serviceName() {
+            return dto.getServiceName();
+        }
+
+        SubscriptionKey key() {
+            return new SubscriptionKey(userId, serviceName());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.matlakhov.techspecjavaspringfinalv2.columnar;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки колоночного снимка подписок в памяти ({@code app.columnar.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.columnar")
+public class ColumnarProperties {
+
+    /**
+     * Включает снимок: при старте загружается из базы и затем обновляется событиями изменения подписок.
+     * Занимает около 40 байт памяти на подписку.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Количество строк, получаемых из базы за один раз при загрузке.
+     */
+    private int fetchSize = 10_000;
+
+    /**
+     * Начиная с этого количества строк сканирование выполняется параллельно в общем пуле fork-join.
+     */
+    private int parallelThreshold = 1 << 18;
+}
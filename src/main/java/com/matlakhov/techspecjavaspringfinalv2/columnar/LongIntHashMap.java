@@ -0,0 +1,111 @@
+package com.matlakhov.techspecjavaspringfinalv2.columnar;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица {@code long -> int} с открытой адресацией без упаковки ключей в объекты.
+ * Не потокобезопасна; в {@link SubscriptionColumnStore} изменяется только под блокировкой записи.
+ */
+public final class LongIntHashMap {
+    public static final int MISSING = -1;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    public int get(long key) {
+        int index = indexOf(key);
+        return keys[index] == EMPTY ? MISSING : values[index];
+    }
+
+    public void put(long key, int value) {
+        values[slotOf(key)] = value;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Прибавляет {@code delta} к значению ключа; отсутствующий ключ считается равным нулю.
+     */
+    public void add(long key, int delta) {
+        values[slotOf(key)] += delta;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return индекс ключа; отсутствующий ключ добавляется со значением 0
+     */
+    private int slotOf(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Unsupported key: " + key);
+        }
+        int index = indexOf(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            values[index] = 0;
+            size++;
+        }
+        return index;
+    }
+
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long key, int value);
+    }
+}
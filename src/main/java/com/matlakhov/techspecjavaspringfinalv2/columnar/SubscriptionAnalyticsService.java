@@ -0,0 +1,55 @@
+package com.matlakhov.techspecjavaspringfinalv2.columnar;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.ServiceCountDto;
+import com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Аналитические запросы по колоночному снимку подписок; база данных не используется.
+ */
+@RequiredArgsConstructor
+@Service
+public class SubscriptionAnalyticsService {
+    private final SubscriptionColumnarSnapshot snapshot;
+
+    /**
+     * @param at момент времени
+     * @return количество подписок, действовавших в момент {@code at}, по сервисам
+     * @throws ServiceOverloadedException если снимок выключен или ещё загружается
+     */
+    public List<ServiceCountDto> countActiveAt(LocalDateTime at) {
+        return sorted(store().countActiveAt(SubscriptionColumnStore.toEpochSecond(at)));
+    }
+
+    /**
+     * @param from начало интервала, включительно
+     * @param to   конец интервала, не включительно
+     * @return количество подписок, начавшихся в интервале, по сервисам
+     * @throws ServiceOverloadedException если снимок выключен или ещё загружается
+     */
+    public List<ServiceCountDto> countStartedBetween(LocalDateTime from, LocalDateTime to) {
+        return sorted(store().countStartedBetween(
+                SubscriptionColumnStore.toEpochSecond(from), SubscriptionColumnStore.toEpochSecond(to)));
+    }
+
+    private SubscriptionColumnStore store() {
+        if (!snapshot.isReady()) {
+            throw new ServiceOverloadedException("Subscription snapshot is not loaded");
+        }
+        return snapshot.store();
+    }
+
+    private static List<ServiceCountDto> sorted(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> new ServiceCountDto(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(ServiceCountDto::getCount).reversed()
+                        .thenComparing(ServiceCountDto::getServiceName))
+                .toList();
+    }
+}
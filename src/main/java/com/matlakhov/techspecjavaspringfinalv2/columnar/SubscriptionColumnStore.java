@@ -0,0 +1,270 @@
+package com.matlakhov.techspecjavaspringfinalv2.columnar;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Колоночное хранилище подписок в памяти.
+ * <p>
+ * Каждый атрибут хранится в отдельном массиве примитивов: идентификатор подписки и пользователя,
+ * номер сервиса в словаре, начало и окончание в секундах, флаг удаления - в битовом наборе.
+ * Запросы - это сканирование массивов простыми циклами без ветвлений, которые JIT векторизует;
+ * большие массивы сканируются параллельно в общем пуле fork-join.
+ * <p>
+ * Изменяет хранилище один поток за раз (методы записи синхронизированы), читатели не блокируются:
+ * они работают с опубликованным через volatile набором массивов и видят либо старое, либо новое состояние строки.
+ * Даты хранятся как секунды от {@code 1970-01-01T00:00} без учёта часового пояса, как {@link LocalDateTime}.
+ */
+public final class SubscriptionColumnStore {
+    /**
+     * Значение окончания для подписок без даты окончания.
+     */
+    public static final long NO_END = Long.MAX_VALUE;
+
+    private final int parallelThreshold;
+    private final LongIntHashMap rowsById;
+    private final Map<String, Integer> serviceIds = new HashMap<>();
+    private volatile Columns columns;
+
+    public SubscriptionColumnStore(int initialCapacity, int parallelThreshold) {
+        int capacity = Math.max(64, initialCapacity);
+        this.parallelThreshold = Math.max(1024, parallelThreshold);
+        this.rowsById = new LongIntHashMap(capacity);
+        this.columns = new Columns(new long[capacity], new long[capacity], new int[capacity], new long[capacity],
+                new long[capacity], new long[(capacity + 63) >>> 6], 0, new String[16], 0);
+    }
+
+    public static long toEpochSecond(LocalDateTime value) {
+        return value == null ? NO_END : value.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Добавляет подписку. Если она уже есть, повторное добавление ничего не меняет,
+     * а добавление удалённой подписки отмечает её завершённой.
+     */
+    public synchronized void upsert(long id, long userId, String serviceName, long start, long end, boolean deleted) {
+        int row = rowsById.get(id);
+        if (row != LongIntHashMap.MISSING) {
+            if (deleted) {
+                markEnded(row, end);
+            }
+            return;
+        }
+        Columns c = columns;
+        int serviceId = serviceIdOf(c, serviceName);
+        c = columns;
+        if (c.size == c.ids.length) {
+            c = c.grow();
+        }
+        int index = c.size;
+        c.ids[index] = id;
+        c.userIds[index] = userId;
+        c.services[index] = serviceId;
+        c.starts[index] = start;
+        c.ends[index] = end;
+        if (deleted) {
+            c.deleted[index >>> 6] |= 1L << index;
+        }
+        rowsById.put(id, index);
+        columns = c.withSize(index + 1);
+    }
+
+    /**
+     * Отмечает подписку завершённой.
+     *
+     * @return false, если подписки нет в хранилище
+     */
+    public synchronized boolean markEnded(long id, long end) {
+        int row = rowsById.get(id);
+        if (row == LongIntHashMap.MISSING) {
+            return false;
+        }
+        markEnded(row, end);
+        return true;
+    }
+
+    private void markEnded(int row, long end) {
+        Columns c = columns;
+        c.ends[row] = end;
+        c.deleted[row >>> 6] |= 1L << row;
+        // Публикуем изменения для читателей
+        columns = c;
+    }
+
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * @return количество неудалённых подписок каждого пользователя (пользователи только с удалёнными - с нулём)
+     */
+    public LongIntHashMap countAliveByUser() {
+        Columns c = columns;
+        LongIntHashMap counts = new LongIntHashMap(Math.max(16, c.size / 4));
+        long[] userIds = c.userIds;
+        long[] deleted = c.deleted;
+        for (int i = 0; i < c.size; i++) {
+            counts.add(userIds[i], (int) (~(deleted[i >>> 6] >>> i) & 1L));
+        }
+        return counts;
+    }
+
+    /**
+     * Текущие подписки по сервисам: не удалены и не закончились к моменту {@code now}
+     * (как в {@code SubscriptionRepository.findTopSubscriptions}).
+     */
+    public Map<String, Long> countCurrentByService(long now) {
+        Columns c = columns;
+        return toMap(c, scan(c, (cols, from, to, counts) -> {
+            long[] ends = cols.ends;
+            long[] deleted = cols.deleted;
+            int[] services = cols.services;
+            for (int i = from; i < to; i++) {
+                long alive = ~(deleted[i >>> 6] >>> i) & 1L;
+                counts[services[i]] += alive & (ends[i] > now ? 1L : 0L);
+            }
+        }));
+    }
+
+    /**
+     * Подписки, действовавшие в момент {@code at}: {@code start <= at < end}.
+     */
+    public Map<String, Long> countActiveAt(long at) {
+        Columns c = columns;
+        return toMap(c, scan(c, (cols, from, to, counts) -> {
+            long[] starts = cols.starts;
+            long[] ends = cols.ends;
+            int[] services = cols.services;
+            for (int i = from; i < to; i++) {
+                counts[services[i]] += (starts[i] <= at ? 1L : 0L) & (ends[i] > at ? 1L : 0L);
+            }
+        }));
+    }
+
+    /**
+     * Подписки, начавшиеся в интервале {@code [fromInclusive, toExclusive)}.
+     */
+    public Map<String, Long> countStartedBetween(long fromInclusive, long toExclusive) {
+        Columns c = columns;
+        return toMap(c, scan(c, (cols, from, to, counts) -> {
+            long[] starts = cols.starts;
+            int[] services = cols.services;
+            for (int i = from; i < to; i++) {
+                long start = starts[i];
+                counts[services[i]] += (start >= fromInclusive ? 1L : 0L) & (start < toExclusive ? 1L : 0L);
+            }
+        }));
+    }
+
+    /**
+     * @return до {@code limit} сервисов с наибольшим количеством текущих подписок, по убыванию
+     */
+    public List<String> topCurrent(int limit, long now) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(countCurrentByService(now).entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return entries.stream().limit(limit).map(Map.Entry::getKey).toList();
+    }
+
+    private long[] scan(Columns c, Kernel kernel) {
+        if (c.size < parallelThreshold) {
+            long[] counts = new long[c.serviceCount];
+            kernel.scan(c, 0, c.size, counts);
+            return counts;
+        }
+        return ForkJoinPool.commonPool().invoke(new ScanTask(c, kernel, 0, c.size, parallelThreshold / 4));
+    }
+
+    private static Map<String, Long> toMap(Columns c, long[] counts) {
+        Map<String, Long> result = new HashMap<>();
+        for (int service = 0; service < counts.length; service++) {
+            String name = c.serviceNames[service];
+            if (counts[service] > 0 && !name.isEmpty()) {
+                result.put(name, counts[service]);
+            }
+        }
+        return result;
+    }
+
+    private int serviceIdOf(Columns c, String serviceName) {
+        String name = serviceName != null ? serviceName : "";
+        Integer id = serviceIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        String[] names = c.serviceCount == c.serviceNames.length
+                ? Arrays.copyOf(c.serviceNames, c.serviceNames.length * 2)
+                : c.serviceNames;
+        names[c.serviceCount] = name;
+        serviceIds.put(name, c.serviceCount);
+        columns = new Columns(c.ids, c.userIds, c.services, c.starts, c.ends, c.deleted, c.size, names,
+                c.serviceCount + 1);
+        return c.serviceCount;
+    }
+
+    @FunctionalInterface
+    private interface Kernel {
+        /**
+         * Добавляет к {@code counts} (по номеру сервиса) строки {@code [from, to)}, подходящие под условие.
+         */
+        void scan(Columns columns, int from, int to, long[] counts);
+    }
+
+    private static final class ScanTask extends RecursiveTask<long[]> {
+        private final Columns columns;
+        private final Kernel kernel;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private ScanTask(Columns columns, Kernel kernel, int from, int to, int threshold) {
+            this.columns = columns;
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= threshold) {
+                long[] counts = new long[columns.serviceCount];
+                kernel.scan(columns, from, to, counts);
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(columns, kernel, from, middle, threshold);
+            left.fork();
+            long[] counts = new ScanTask(columns, kernel, middle, to, threshold).compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Набор массивов и количество заполненных строк, видимые читателям.
+     */
+    private record Columns(long[] ids, long[] userIds, int[] services, long[] starts, long[] ends, long[] deleted,
+                           int size, String[] serviceNames, int serviceCount) {
+
+        Columns withSize(int newSize) {
+            return new Columns(ids, userIds, services, starts, ends, deleted, newSize, serviceNames, serviceCount);
+        }
+
+        Columns grow() {
+            int capacity = ids.length * 2;
+            return new Columns(Arrays.copyOf(ids, capacity), Arrays.copyOf(userIds, capacity),
+                    Arrays.copyOf(services, capacity), Arrays.copyOf(starts, capacity), Arrays.copyOf(ends, capacity),
+                    Arrays.copyOf(deleted, (capacity + 63) >>> 6), size, serviceNames, serviceCount);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.matlakhov.techspecjavaspringfinalv2.columnar;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.CachedEntity;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.LocalCache;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.LocalCacheLoader;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Колоночный снимок подписок ({@link SubscriptionColumnStore}), поддерживаемый в актуальном состоянии.
+ * <p>
+ * После старта приложения снимок загружается в фоновом потоке потоковым чтением таблицы подписок
+ * (со всех шардов), затем обновляется событиями {@link SubscriptionChangedEvent} после фиксации транзакций.
+ * События, пришедшие во время загрузки, применяются после неё ({@link LocalCacheLoader}); применение идемпотентно,
+ * поэтому изменения, уже попавшие в прочитанные строки, не задваиваются. Неудачная загрузка повторяется.
+ * Изменения на других узлах приходят через {@link LocalCache}: подписка перечитывается из базы,
+ * а после потери уведомлений таблица сканируется заново поверх текущего снимка.
+ * Пока снимок не загружен (или выключен), {@link #isReady()} возвращает false.
+ */
+@Component
+public class SubscriptionColumnarSnapshot implements LocalCache {
+    private static final String COLUMNS = "id, user_id, service_name, start_date, end_date, is_deleted";
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+
+    private final boolean enabled;
+    private final int fetchSize;
+    private final SubscriptionColumnStore store;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardedQueryExecutor shardedQueries;
+    private final LocalCacheLoader loader;
+
+    public SubscriptionColumnarSnapshot(ColumnarProperties properties,
+                                        JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        ShardedQueryExecutor shardedQueries) {
+        this.enabled = properties.isEnabled();
+        this.fetchSize = properties.getFetchSize();
+        this.store = new SubscriptionColumnStore(enabled ? properties.getFetchSize() : 0, properties.getParallelThreshold());
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardedQueries = shardedQueries;
+        this.loader = new LocalCacheLoader("колоночный снимок подписок", "columnar-snapshot-loader",
+                () -> shardedQueries.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> scan())),
+                store::size, INITIAL_RETRY_DELAY_MS, MAX_RETRY_DELAY_MS);
+    }
+
+    public boolean isReady() {
+        return loader.isReady();
+    }
+
+    public SubscriptionColumnStore store() {
+        return store;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (enabled) {
+            loader.start();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        if (enabled) {
+            loader.apply(() -> apply(event));
+        }
+    }
+
+    @Override
+    public void evict(CachedEntity entity, long id) {
+        if (!enabled || entity != CachedEntity.SUBSCRIPTION) {
+            return;
+        }
+        Integer shard = ShardContext.currentShard();
+        loader.apply(() -> ShardContext.runOn(shard, () -> refresh(id)));
+    }
+
+    @Override
+    public void evictAll() {
+        if (enabled) {
+            loader.reload();
+        }
+    }
+
+    /**
+     * @return количество неудалённых подписок каждого пользователя в снимке или {@code null}, пока снимок не загружен
+     */
+    public LongIntHashMap aliveCountsByUser() {
+        return loader.isReady() ? store.countAliveByUser() : null;
+    }
+
+    /**
+     * Перечитывает подписки пользователя с текущего шарда: добавляет недостающие и отмечает удалённые.
+     */
+    public void refreshUser(long userId) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.query("SELECT " + COLUMNS + " FROM subscriptions WHERE user_id = ?", this::upsert, userId);
+    }
+
+    private void scan() {
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement("SELECT " + COLUMNS + " FROM subscriptions");
+            // Драйвер PostgreSQL читает порциями только вне режима autocommit, поэтому сканирование идёт в транзакции
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, this::upsert);
+    }
+
+    /**
+     * Перечитывает подписку, изменённую на другом узле. Запрос идёт вне транзакции только для чтения:
+     * реплика могла ещё не получить изменение.
+     */
+    private void refresh(long subscriptionId) {
+        jdbcTemplate.query("SELECT " + COLUMNS + " FROM subscriptions WHERE id = ?", this::upsert, subscriptionId);
+    }
+
+    private void upsert(ResultSet rs) throws SQLException {
+        Timestamp start = rs.getTimestamp("start_date");
+        Timestamp end = rs.getTimestamp("end_date");
+        store.upsert(rs.getLong("id"), rs.getLong("user_id"), rs.getString("service_name"),
+                SubscriptionColumnStore.toEpochSecond(start.toLocalDateTime()),
+                SubscriptionColumnStore.toEpochSecond(end != null ? end.toLocalDateTime() : null),
+                rs.getBoolean("is_deleted"));
+    }
+
+    private void apply(SubscriptionChangedEvent event) {
+        long start = SubscriptionColumnStore.toEpochSecond(event.startDate());
+        long end = SubscriptionColumnStore.toEpochSecond(event.endDate());
+        if (event.type() == ChangeType.DELETED) {
+            if (!store.markEnded(event.subscriptionId(), end)) {
+                store.upsert(event.subscriptionId(), event.userId(), event.serviceName(), start, end, true);
+            }
+        } else {
+            store.upsert(event.subscriptionId(), event.userId(), event.serviceName(), start, end, false);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.matlakhov.techspecjavaspringfinalv2.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Адаптивный предел одновременных запросов по градиенту времени ответа.
+ * <p>
+ * Когда база замедляется, запросы копятся в ожидании соединений пула, и время ответа растёт раньше,
+ * чем они начинают завершаться по тайм-ауту. Предел пересчитывается по окнам: среднее время ответа окна
+ * сравнивается с обычным (экспоненциальное среднее за {@code long-windows} окон), и если оно больше
+ * обычного в {@code rtt-tolerance} раз, предел сразу уменьшается пропорционально (не больше чем вдвое за окно).
+ * Пока время ответа обычное, предел плавно растёт: на {@code queue-size * smoothing} за окно.
+ * Быстрые окна снижают обычное время ответа сразу, а медленные сдвигают его вверх не дальше чем
+ * до {@code rtt-tolerance} от него: при долгой перегрузке допустимое время ответа растёт медленно,
+ * а при постоянном замедлении базы предел со временем всё же восстанавливается.
+ * Окна, в которых запросов одновременно было меньше половины предела, предел не меняют:
+ * по ним не видно, выдержит ли база больше.
+ * <p>
+ * Захват места - одна операция CAS без блокировок; блокировка берётся только при учёте завершённого запроса.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double FAST_DECAY = 0.25;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final double longRttFactor;
+    private final double rttTolerance;
+    private final int queueSize;
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    // Состояние окна и оценки; изменяются под блокировкой this
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long lastWindowRttNanos;
+    private long windowStartNanos;
+    private long windowRttSumNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, long nowNanos) {
+        this.minLimit = Math.max(1, properties.getMinLimit());
+        this.maxLimit = Math.max(minLimit, properties.getMaxLimit());
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(properties.getWindowMs());
+        this.minWindowSamples = Math.max(1, properties.getMinWindowSamples());
+        this.longRttFactor = 2.0 / (Math.max(1, properties.getLongWindows()) + 1);
+        this.rttTolerance = Math.max(1.0, properties.getRttTolerance());
+        this.queueSize = properties.getQueueSize();
+        this.smoothing = Math.min(1.0, Math.max(0.0, properties.getSmoothing()));
+        this.estimatedLimit = Math.min(maxLimit, Math.max(minLimit, properties.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+        this.windowStartNanos = nowNanos;
+    }
+
+    /**
+     * Занимает место для запроса.
+     *
+     * @return {@code false}, если одновременных запросов уже столько, сколько позволяет предел
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает место, занятое {@link #tryAcquire()}, и учитывает время ответа запроса.
+     *
+     * @param rttNanos время от захвата места до завершения запроса
+     * @param nowNanos текущее {@link System#nanoTime()}
+     */
+    public void release(long rttNanos, long nowNanos) {
+        int concurrent = inFlight.getAndDecrement();
+        synchronized (this) {
+            windowRttSumNanos += rttNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, concurrent);
+            if (windowSamples < minWindowSamples || nowNanos - windowStartNanos < windowNanos) {
+                return;
+            }
+            update(windowRttSumNanos / windowSamples, windowMaxInFlight);
+            windowStartNanos = nowNanos;
+            windowRttSumNanos = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+        }
+    }
+
+    private void update(long rttNanos, int maxInFlight) {
+        lastWindowRttNanos = rttNanos;
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else if (rttNanos < longRttNanos) {
+            // Завышенное обычное время ответа (после запуска или перегрузки) сразу ослабило бы ограничение,
+            // поэтому вниз оно догоняет окна быстро
+            longRttNanos += (rttNanos - longRttNanos) * FAST_DECAY;
+        } else {
+            longRttNanos += (Math.min(rttNanos, longRttNanos * rttTolerance) - longRttNanos) * longRttFactor;
+        }
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / Math.max(1, rttNanos)));
+        double next = estimatedLimit * gradient + queueSize;
+        if (next > estimatedLimit) {
+            next = estimatedLimit * (1 - smoothing) + next * smoothing;
+        }
+        estimatedLimit = Math.min(maxLimit, Math.max(minLimit, next));
+        limit = (int) estimatedLimit;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return среднее время ответа последнего окна и обычное время ответа, в наносекундах
+     */
+    public synchronized long[] rttNanos() {
+        return new long[]{lastWindowRttNanos, (long) longRttNanos};
+    }
+}
@@ -0,0 +1,47 @@
+package com.matlakhov.techspecjavaspringfinalv2.concurrency;
+
+import com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Занимает место в {@link ConcurrencyLimitService} до вызова контроллера и освобождает его после ответа.
+ * Асинхронный ответ (групповое сохранение подписок) держит место до своего завершения.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+    private static final String ACQUIRED_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".acquired";
+
+    private final ConcurrencyLimitService concurrencyLimit;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimitService concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // Место занято при первой обработке запроса
+            return true;
+        }
+        long acquired = concurrencyLimit.tryAcquire();
+        if (acquired < 0) {
+            throw new ServiceOverloadedException("Too many concurrent requests");
+        }
+        request.setAttribute(ACQUIRED_ATTRIBUTE, acquired);
+        return true;
+    }
+
+    /**
+     * Вызывается после синхронного ответа или после повторной обработки асинхронного.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object acquired = request.getAttribute(ACQUIRED_ATTRIBUTE);
+        if (acquired != null) {
+            request.removeAttribute(ACQUIRED_ATTRIBUTE);
+            concurrencyLimit.release((Long) acquired);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.matlakhov.techspecjavaspringfinalv2.concurrency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки адаптивного ограничения одновременных запросов к базе ({@code app.concurrency-limit.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    /**
+     * Включает ограничение для запросов {@code /users/**} и {@code /subscriptions/**}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Предел одновременных запросов до первых замеров.
+     */
+    private int initialLimit = 20;
+
+    /**
+     * Ниже этого предел не опускается, как бы ни росло время ответа.
+     */
+    private int minLimit = 2;
+
+    /**
+     * Выше этого предел не поднимается; разумно брать в несколько раз больше пула соединений.
+     */
+    private int maxLimit = 200;
+
+    /**
+     * Длительность окна, по среднему времени ответа за которое пересчитывается предел.
+     */
+    private long windowMs = 100;
+
+    /**
+     * Окно закрывается не раньше, чем наберёт столько запросов.
+     */
+    private int minWindowSamples = 10;
+
+    /**
+     * За сколько окон усредняется обычное время ответа, с которым сравнивается время ответа окна.
+     */
+    private int longWindows = 600;
+
+    /**
+     * Во сколько раз время ответа окна может превышать обычное, прежде чем предел начнёт уменьшаться.
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * На сколько запросов предел может превышать оценку, полученную по времени ответа: без этого запаса
+     * предел не вырастет после снижения нагрузки.
+     */
+    private int queueSize = 4;
+
+    /**
+     * Доля нового значения предела при его увеличении (от 0 до 1); чем меньше, тем плавнее растёт предел.
+     */
+    private double smoothing = 0.2;
+}
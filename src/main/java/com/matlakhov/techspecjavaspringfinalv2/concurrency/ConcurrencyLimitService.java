@@ -0,0 +1,49 @@
+package com.matlakhov.techspecjavaspringfinalv2.concurrency;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.ConcurrencyLimitDto;
+import org.springframework.stereotype.Component;
+
+/**
+ * Адаптивное ограничение одновременных запросов к базе ({@code app.concurrency-limit.enabled}).
+ * <p>
+ * Запросы {@code /users/**} и {@code /subscriptions/**} занимают место до вызова {@code UserService}
+ * и {@code SubscriptionService} ({@link ConcurrencyLimitInterceptor}) и освобождают его после ответа.
+ * Сверх предела {@link AdaptiveConcurrencyLimiter} запрос сразу получает 503, не дожидаясь соединения пула.
+ */
+@Component
+public class ConcurrencyLimitService {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitService(ConcurrencyLimitProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.limiter = new AdaptiveConcurrencyLimiter(properties, System.nanoTime());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return момент захвата места по {@link System#nanoTime()} или {@code -1}, если предел исчерпан
+     */
+    public long tryAcquire() {
+        return limiter.tryAcquire() ? System.nanoTime() : -1;
+    }
+
+    /**
+     * @param acquiredNanos значение, которое вернул {@link #tryAcquire()}
+     */
+    public void release(long acquiredNanos) {
+        long now = System.nanoTime();
+        limiter.release(now - acquiredNanos, now);
+    }
+
+    public ConcurrencyLimitDto report() {
+        long[] rtt = limiter.rttNanos();
+        return new ConcurrencyLimitDto(enabled, limiter.limit(), limiter.inFlight(), limiter.rejected(),
+                rtt[0] / NANOS_PER_MILLI, rtt[1] / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,40 @@
+package com.matlakhov.techspecjavaspringfinalv2.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Компактные бинарные форматы ответов для межсервисных вызовов.
+ * <p>
+ * Формат выбирается по заголовку {@code Accept}:
+ * <ul>
+ *   <li>{@code application/cbor} - CBOR (RFC 8949);</li>
+ *   <li>{@code application/x-jackson-smile} - Smile с общими ссылками на повторяющиеся имена и строки.</li>
+ * </ul>
+ * Схема сообщений совпадает с JSON-представлением DTO. Конвертеры стоят после JSON,
+ * поэтому для {@code Accept: *}{@code /*} и браузеров ответ по-прежнему отдаётся в JSON.
+ * ObjectMapper'ы строятся из того же {@link Jackson2ObjectMapperBuilder}, что и JSON,
+ * поэтому используют те же модули и сериализаторы.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(factory).build());
+    }
+}
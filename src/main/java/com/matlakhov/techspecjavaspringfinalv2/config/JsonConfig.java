@@ -0,0 +1,23 @@
+package com.matlakhov.techspecjavaspringfinalv2.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.matlakhov.techspecjavaspringfinalv2.json.FastDtoSerializersModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Настройка сериализации ответов API.
+ * <p>
+ * При {@code app.json.fast-serializers=true} в {@code ObjectMapper} приложения регистрируются
+ * ручные сериализаторы {@code UserDto}/{@code SubscriptionDto}. Формат ответа при этом не меняется.
+ */
+@Configuration
+public class JsonConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.json", name = "fast-serializers", havingValue = "true")
+    public Module fastDtoSerializersModule() {
+        return new FastDtoSerializersModule();
+    }
+}
@@ -0,0 +1,72 @@
+package com.matlakhov.techspecjavaspringfinalv2.config;
+
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardDataSources;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardRoutingDataSource;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedSpringLiquibase;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardingProperties;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.UserDirectory;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шардирование пользователей и подписок ({@code app.sharding.enabled=true}).
+ * <p>
+ * Для каждого шарда из {@link ShardingProperties} создаётся свой пул, приложение получает
+ * {@link LazyConnectionDataSourceProxy} поверх {@link ShardRoutingDataSource}.
+ * Миграции применяются ко всем шардам через {@link ShardedSpringLiquibase}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardDataSources shardDataSources(ShardingProperties properties, DataSourceProperties dataSourceProperties) {
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + i);
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername() != null ? shard.getUsername() : dataSourceProperties.determineUsername());
+            dataSource.setPassword(shard.getPassword() != null ? shard.getPassword() : dataSourceProperties.determinePassword());
+            dataSource.setMaximumPoolSize(properties.getMaximumPoolSize());
+            shards.add(dataSource);
+        }
+        return new ShardDataSources(shards, properties.getDirectoryShard());
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(ShardDataSources shardDataSources) {
+        return new ShardRoutingDataSource(shardDataSources.all());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.liquibase", name = "enabled", matchIfMissing = true)
+    public ShardedSpringLiquibase liquibase(ShardDataSources shardDataSources,
+                                            @Value("${spring.liquibase.change-log}") String changeLog) {
+        ShardedSpringLiquibase liquibase = new ShardedSpringLiquibase(shardDataSources);
+        liquibase.setChangeLog(changeLog);
+        return liquibase;
+    }
+
+    @Bean
+    public UserDirectory userDirectory(ShardDataSources shardDataSources) {
+        return new UserDirectory(shardDataSources.directory());
+    }
+}
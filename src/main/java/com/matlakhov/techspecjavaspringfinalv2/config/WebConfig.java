@@ -0,0 +1,48 @@
+package com.matlakhov.techspecjavaspringfinalv2.config;
+
+import com.matlakhov.techspecjavaspringfinalv2.concurrency.ConcurrencyLimitInterceptor;
+import com.matlakhov.techspecjavaspringfinalv2.concurrency.ConcurrencyLimitService;
+import com.matlakhov.techspecjavaspringfinalv2.hotkeys.HotKeyInterceptor;
+import com.matlakhov.techspecjavaspringfinalv2.hotkeys.HotKeyService;
+import com.matlakhov.techspecjavaspringfinalv2.routing.UserRoutingInterceptor;
+import com.matlakhov.techspecjavaspringfinalv2.timing.RequestTimingInterceptor;
+import com.matlakhov.techspecjavaspringfinalv2.timing.RequestTimingService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Настройка Spring MVC: перехватчики запросов.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final HotKeyService hotKeyService;
+    private final ConcurrencyLimitService concurrencyLimitService;
+    private final RequestTimingService requestTimingService;
+
+    public WebConfig(HotKeyService hotKeyService, ConcurrencyLimitService concurrencyLimitService,
+                     RequestTimingService requestTimingService) {
+        this.hotKeyService = hotKeyService;
+        this.concurrencyLimitService = concurrencyLimitService;
+        this.requestTimingService = requestTimingService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (requestTimingService.isEnabled()) {
+            // Первым, чтобы во время контроллера вошли остальные перехватчики
+            registry.addInterceptor(new RequestTimingInterceptor());
+        }
+        if (concurrencyLimitService.isEnabled()) {
+            // Первым после замеров, чтобы отклонённый запрос не проходил остальные перехватчики; поток топа держит
+            // соединение с клиентом, а не с базой
+            registry.addInterceptor(new ConcurrencyLimitInterceptor(concurrencyLimitService))
+                    .addPathPatterns("/users/**", "/subscriptions/**")
+                    .excludePathPatterns("/subscriptions/top/stream");
+        }
+        registry.addInterceptor(new UserRoutingInterceptor()).addPathPatterns("/users/{id}/**");
+        if (hotKeyService.isEnabled()) {
+            registry.addInterceptor(new HotKeyInterceptor(hotKeyService)).addPathPatterns("/users/{id}/**");
+        }
+    }
+}
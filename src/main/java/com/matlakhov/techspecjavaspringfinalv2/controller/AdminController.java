@@ -0,0 +1,61 @@
+package com.matlakhov.techspecjavaspringfinalv2.controller;
+
+import com.matlakhov.techspecjavaspringfinalv2.concurrency.ConcurrencyLimitService;
+import com.matlakhov.techspecjavaspringfinalv2.dto.ConcurrencyLimitDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.HotKeysDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.RequestTraceDto;
+import com.matlakhov.techspecjavaspringfinalv2.hotkeys.HotKeyService;
+import com.matlakhov.techspecjavaspringfinalv2.timing.RequestTimingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Контроллер служебной информации о нагрузке.
+ */
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    private final HotKeyService hotKeyService;
+    private final ConcurrencyLimitService concurrencyLimitService;
+    private final RequestTimingService requestTimingService;
+
+    /**
+     * Получает самых запрашиваемых пользователей и сервисы ({@code app.hot-keys.enabled}).
+     *
+     * @param limit максимальное количество ключей каждого вида (по умолчанию 10, не больше {@code app.hot-keys.capacity})
+     * @return ResponseEntity с оценками частоты запросов и статусом 200 (OK); пустые списки, если учёт выключен
+     */
+    @GetMapping("/hot-keys")
+    public ResponseEntity<HotKeysDto> getHotKeys(@RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(hotKeyService.report(limit));
+    }
+
+    /**
+     * Получает текущий предел одновременных запросов к базе и количество отклонённых запросов
+     * ({@code app.concurrency-limit.enabled}).
+     *
+     * @return ResponseEntity с состоянием ограничения и статусом 200 (OK)
+     */
+    @GetMapping("/concurrency-limit")
+    public ResponseEntity<ConcurrencyLimitDto> getConcurrencyLimit() {
+        return ResponseEntity.ok(concurrencyLimitService.report());
+    }
+
+    /**
+     * Получает трассы последних замеренных запросов ({@code app.request-timing.trace-enabled}).
+     *
+     * @param limit максимальное количество трасс (по умолчанию 20, не больше {@code app.request-timing.trace-capacity})
+     * @return ResponseEntity с трассами от самой новой и статусом 200 (OK); пустой список, если трассы выключены
+     */
+    @GetMapping("/traces")
+    public ResponseEntity<List<RequestTraceDto>> getTraces(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(requestTimingService.recentTraces(limit));
+    }
+}
@@ -0,0 +1,36 @@
+package com.matlakhov.techspecjavaspringfinalv2.controller;
+
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditTrail;
+import com.matlakhov.techspecjavaspringfinalv2.dto.AuditEventDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Контроллер для просмотра журнала аудита изменений пользователей и подписок ({@code app.audit.enabled}).
+ */
+@RestController
+@RequestMapping("/audit")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.audit", name = "enabled", havingValue = "true")
+public class AuditController {
+    private final AuditTrail auditTrail;
+
+    /**
+     * Получает последние записи журнала аудита.
+     *
+     * @param limit максимальное количество записей (по умолчанию 100, не больше {@code app.audit.max-tail-limit})
+     * @return ResponseEntity со списком записей по возрастанию номера и статусом 200 (OK)
+     */
+    @GetMapping("/events")
+    public ResponseEntity<List<AuditEventDto>> getRecentEvents(
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(auditTrail.tail(limit));
+    }
+}
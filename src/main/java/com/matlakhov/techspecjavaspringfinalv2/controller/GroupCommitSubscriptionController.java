@@ -0,0 +1,52 @@
+package com.matlakhov.techspecjavaspringfinalv2.controller;
+
+import com.matlakhov.techspecjavaspringfinalv2.batch.SubscriptionBatchWriter;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.hotkeys.HotKeyService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Контроллер добавления подписки с групповым сохранением ({@code app.subscriptions.group-commit.enabled=true}).
+ * Ответ асинхронный: поток запроса освобождается, пока подписка ждёт своего пакета в {@link SubscriptionBatchWriter}.
+ */
+@RestController
+@RequestMapping("/users/{id}/subscriptions")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.subscriptions.group-commit", name = "enabled", havingValue = "true")
+public class GroupCommitSubscriptionController {
+    private final SubscriptionBatchWriter subscriptionBatchWriter;
+    private final HotKeyService hotKeyService;
+
+    /**
+     * Добавляет новую подписку для пользователя в пакете с другими запросами.
+     *
+     * @param userId   идентификатор пользователя
+     * @param dto DTO с данными для создания подписки
+     * @return ResponseEntity с созданным DTO подписки и статусом 201 (Created), включая заголовок Location
+     * @throws org.springframework.web.bind.MethodArgumentNotValidException если данные в createDto не прошли валидацию
+     * @throws com.example.exception.DuplicateResourceException если подписка уже существует
+     * @throws com.example.exception.ResourceNotFoundException если пользователь не найден
+     * @throws com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException если очередь записи переполнена
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<SubscriptionDto>> addSubscription(
+            @PathVariable("id") Long userId,
+            @Valid @RequestBody SubscriptionDto dto) {
+        hotKeyService.recordService(dto.getServiceName());
+        return subscriptionBatchWriter.submit(userId, dto)
+                .thenApply(created -> ResponseEntity
+                        .created(URI.create("/users/" + userId + "/subscriptions/" + created.getId()))
+                        .body(created));
+    }
+}
@@ -0,0 +1,51 @@
+package com.matlakhov.techspecjavaspringfinalv2.controller;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.hotkeys.HotKeyService;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+/**
+ * Контроллер добавления подписки без группового сохранения ({@code app.subscriptions.group-commit.enabled=false}):
+ * подписка сохраняется синхронно в потоке запроса.
+ */
+@RestController
+@RequestMapping("/users/{id}/subscriptions")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.subscriptions.group-commit", name = "enabled", havingValue = "false",
+        matchIfMissing = true)
+public class SubscriptionCreateController {
+    private final SubscriptionService subscriptionService;
+    private final HotKeyService hotKeyService;
+
+    /**
+     * Добавляет новую подписку для пользователя.
+     *
+     * @param userId   идентификатор пользователя
+     * @param dto DTO с данными для создания подписки
+     * @return ResponseEntity с созданным DTO подписки и статусом 201 (Created), включая заголовок Location
+     * @throws org.springframework.web.bind.MethodArgumentNotValidException если данные в createDto не прошли валидацию
+     * @throws com.example.exception.DuplicateResourceException если подписка уже существует
+     * @throws com.example.exception.ResourceNotFoundException если пользователь не найден
+     */
+    @PostMapping
+    public ResponseEntity<SubscriptionDto> addSubscription(
+            @PathVariable("id") Long userId,
+            @Valid @RequestBody SubscriptionDto dto) {
+        hotKeyService.recordService(dto.getServiceName());
+        SubscriptionDto created = subscriptionService.addSubscription(userId, dto);
+        return ResponseEntity
+                .created(URI.create("/users/" + userId + "/subscriptions/" + created.getId()))
+                .body(created);
+    }
+}
@@ -1,27 +1,43 @@
 package com.matlakhov.techspecjavaspringfinalv2.controller;
 
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionAnalyticsService;
+import com.matlakhov.techspecjavaspringfinalv2.dto.DailySubscriptionStatsDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.DurationBucketDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.ServiceActiveCountDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.ServiceCountDto;
 import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionService;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionStatsService;
+import com.matlakhov.techspecjavaspringfinalv2.streaming.TopSubscriptionsStream;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Контроллер для получения статистических данных о подписках.
- * Предоставляет эндпоинт для получения топ-3 популярных подписок.
+ * Предоставляет эндпоинты для получения топ-3 популярных подписок (в том числе потоком изменений) и эндпоинты {@code /subscriptions/stats/*},
+ * которые читают только агрегированную статистику и отстают от актуальных данных на интервал агрегации.
+ * Эндпоинты {@code /subscriptions/analytics/*} работают по колоночному снимку в памяти ({@code app.columnar.enabled}).
  */
-@Slf4j
 @RestController
 @RequestMapping("/subscriptions")
 @RequiredArgsConstructor
 public class SubscriptionStatsController {
+    private static final int DEFAULT_PERIOD_DAYS = 30;
+
     private final SubscriptionService subscriptionService;
+    private final SubscriptionStatsService subscriptionStatsService;
+    private final SubscriptionAnalyticsService subscriptionAnalyticsService;
+    private final TopSubscriptionsStream topSubscriptionsStream;
 
     /**
      * Получает список топ-3 самых популярных подписок.
@@ -31,12 +47,93 @@ public class SubscriptionStatsController {
      */
     @GetMapping("/top")
     public ResponseEntity<List<String>> getTopSubscriptions() {
-        log.info("Запрос на получение топ-3 популярных подписок");
-
         List<String> topSubscriptions = subscriptionService.getTopSubscriptions();
+        return ResponseEntity.ok(topSubscriptions);
+    }
+
+    /**
+     * Подписывает клиента на изменения топ-3 подписок (Server-Sent Events). Сразу после подключения приходит
+     * текущий топ, затем - новый топ при каждом его изменении (событие {@code top}, JSON-массив названий).
+     *
+     * @return поток событий {@code text/event-stream}
+     * @throws com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException если подключено слишком много клиентов
+     */
+    @GetMapping(path = "/top/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTopSubscriptions() {
+        return topSubscriptionsStream.subscribe();
+    }
 
-        log.info("Получен список топ-3 подписок: {}", topSubscriptions);
+    /**
+     * Получает количество активных подписок по сервисам.
+     *
+     * @return ResponseEntity со списком сервисов по убыванию количества активных подписок и статусом 200 (OK)
+     */
+    @GetMapping("/stats/active")
+    public ResponseEntity<List<ServiceActiveCountDto>> getActiveCounts() {
+        return ResponseEntity.ok(subscriptionStatsService.getActiveCounts());
+    }
 
-        return ResponseEntity.ok(topSubscriptions);
+    /**
+     * Получает количество оформленных и отменённых подписок по дням.
+     *
+     * @param from    первый день, включительно; по умолчанию 30 дней назад
+     * @param to      последний день, включительно; по умолчанию сегодня
+     * @param service название сервиса; по умолчанию все сервисы
+     * @return ResponseEntity со списком значений по дням и сервисам и статусом 200 (OK)
+     */
+    @GetMapping("/stats/daily")
+    public ResponseEntity<List<DailySubscriptionStatsDto>> getDailyStats(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "service", required = false) String service) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_PERIOD_DAYS);
+        return ResponseEntity.ok(subscriptionStatsService.getDailyStats(start, end, service));
+    }
+
+    /**
+     * Получает гистограмму длительности подписок, завершённых в заданный период.
+     *
+     * @param from    первый день окончания подписки, включительно; по умолчанию 30 дней назад
+     * @param to      последний день окончания подписки, включительно; по умолчанию сегодня
+     * @param service название сервиса; по умолчанию все сервисы
+     * @return ResponseEntity со списком интервалов гистограммы и статусом 200 (OK)
+     */
+    @GetMapping("/stats/durations")
+    public ResponseEntity<List<DurationBucketDto>> getDurationHistogram(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "service", required = false) String service) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_PERIOD_DAYS);
+        return ResponseEntity.ok(subscriptionStatsService.getDurationHistogram(start, end, service));
+    }
+
+    /**
+     * Получает количество подписок, действовавших в заданный момент, по сервисам.
+     *
+     * @param at момент времени; по умолчанию текущий
+     * @return ResponseEntity со списком сервисов по убыванию количества подписок и статусом 200 (OK)
+     * @throws com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException если снимок не загружен
+     */
+    @GetMapping("/analytics/active")
+    public ResponseEntity<List<ServiceCountDto>> getActiveAt(
+            @RequestParam(value = "at", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(subscriptionAnalyticsService.countActiveAt(at != null ? at : LocalDateTime.now()));
+    }
+
+    /**
+     * Получает количество подписок, начавшихся в заданном интервале, по сервисам.
+     *
+     * @param from начало интервала, включительно
+     * @param to   конец интервала, не включительно; по умолчанию текущий момент
+     * @return ResponseEntity со списком сервисов по убыванию количества подписок и статусом 200 (OK)
+     * @throws com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException если снимок не загружен
+     */
+    @GetMapping("/analytics/started")
+    public ResponseEntity<List<ServiceCountDto>> getStartedBetween(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(subscriptionAnalyticsService.countStartedBetween(from, to != null ? to : LocalDateTime.now()));
     }
-}
\ No newline at end of file
+}
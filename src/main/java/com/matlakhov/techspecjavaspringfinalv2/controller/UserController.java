@@ -1,24 +1,28 @@
 package com.matlakhov.techspecjavaspringfinalv2.controller;
 
+import com.matlakhov.techspecjavaspringfinalv2.dto.PartialUserDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserBatchDto;
 import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserField;
+import com.matlakhov.techspecjavaspringfinalv2.search.UserSearchService;
 import com.matlakhov.techspecjavaspringfinalv2.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.util.List;
 /**
  * Контроллер для управления пользователями.
  * Предоставляет REST API для создания, получения, обновления и удаления пользователей.
  */
-@Slf4j
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final UserSearchService userSearchService;
 
     /**
      * Создает нового пользователя.
@@ -30,23 +34,71 @@ public class UserController {
      */
     @PostMapping
     public ResponseEntity<UserDto> createUser(@Valid @RequestBody UserDto dto) {
-        log.info("Создание пользователя с именем: {}", dto.getUsername());
         UserDto created = userService.createUser(dto);
-        log.info("Пользователь создан с ID: {}", created.getId());
         return ResponseEntity.created(URI.create("/users/" + created.getId())).body(created);
     }
 
+    /**
+     * Получает нескольких пользователей с подписками за два запроса к базе.
+     *
+     * @param ids идентификаторы пользователей через запятую, не больше 500
+     * @return ResponseEntity с найденными пользователями в порядке запроса, списком ненайденных
+     * идентификаторов и статусом 200 (OK)
+     */
+    @GetMapping
+    public ResponseEntity<UserBatchDto> getUsers(@RequestParam("ids") List<Long> ids) {
+        return ResponseEntity.ok(userService.getUsers(ids));
+    }
+
+    /**
+     * То же, что {@code GET /users?ids=}, но идентификаторы передаются в теле запроса - для длинных списков.
+     *
+     * @param ids массив идентификаторов пользователей, не больше 500
+     * @return ResponseEntity с найденными пользователями в порядке запроса, списком ненайденных
+     * идентификаторов и статусом 200 (OK)
+     */
+    @PostMapping("/multi-get")
+    public ResponseEntity<UserBatchDto> getUsersByBody(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(userService.getUsers(ids));
+    }
+
+    /**
+     * Ищет действующих пользователей по началу имени или email.
+     *
+     * @param prefix начало имени или email, без учёта регистра
+     * @param limit  максимальное количество результатов (по умолчанию 10, не больше {@code app.users.search.max-limit})
+     * @return ResponseEntity со списком пользователей без подписок и статусом 200 (OK):
+     * сначала совпадения по имени, затем по email
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<UserDto>> searchUsers(@RequestParam("prefix") String prefix,
+                                                     @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userSearchService.search(prefix, limit));
+    }
+
     /**
      * Получает информацию о пользователе по его ID.
+     * <p>
+     * Без параметров возвращает пользователя со всеми подписками. С параметрами {@code fields} и {@code embed}
+     * возвращает только запрошенные поля, а подписки загружает, только если они запрошены.
      *
-     * @param id идентификатор пользователя
+     * @param id     идентификатор пользователя
+     * @param fields поля через запятую: {@code id}, {@code username}, {@code email}, {@code subscriptionCount},
+     *               {@code subscriptions} (по умолчанию {@code id,username,email})
+     * @param embed  {@code subscriptions}, чтобы добавить подписки
      * @return ResponseEntity с DTO пользователя и статусом 200 (OK)
      * @throws com.example.exception.ResourceNotFoundException если пользователь не найден
+     * @throws com.matlakhov.techspecjavaspringfinalv2.exception.InvalidRequestException если запрошено неизвестное поле
      */
     @GetMapping("/{id}")
-    public ResponseEntity<UserDto> getUser(@PathVariable("id") Long id) {
-        log.info("Получение пользователя с ID: {}", id);
-        UserDto user = userService.getUser(id);
+    public ResponseEntity<?> getUser(@PathVariable("id") Long id,
+                                     @RequestParam(value = "fields", required = false) String fields,
+                                     @RequestParam(value = "embed", required = false) String embed) {
+        if (fields == null && embed == null) {
+            UserDto user = userService.getUser(id);
+            return ResponseEntity.ok(user);
+        }
+        PartialUserDto user = userService.getUser(id, UserField.parse(fields, embed));
         return ResponseEntity.ok(user);
     }
 
@@ -62,9 +114,7 @@ public class UserController {
      */
     @PutMapping("/{id}")
     public ResponseEntity<UserDto> updateUser(@PathVariable("id") Long id, @Valid @RequestBody UserDto updateDto) {
-        log.info("Обновление пользователя с ID: {}", id);
         UserDto updated = userService.updateUser(id, updateDto);
-        log.info("Пользователь обновлен с ID: {}", updated.getId());
         return ResponseEntity.ok(updated);
     }
 
@@ -77,9 +127,21 @@ public class UserController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable("id") Long id) {
-        log.info("Удаление пользователя с ID: {}", id);
         userService.deleteUser(id);
-        log.info("Пользователь помечен как удаленный с ID: {}", id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Восстанавливает удалённого пользователя, в том числе перенесённого в архив.
+     *
+     * @param id идентификатор пользователя
+     * @return ResponseEntity с DTO восстановленного пользователя и статусом 200 (OK)
+     * @throws com.example.exception.ResourceNotFoundException если пользователь не найден ни в базе, ни в архиве
+     * @throws com.example.exception.DuplicateResourceException если имя пользователя или email уже заняты
+     */
+    @PostMapping("/{id}/restore")
+    public ResponseEntity<UserDto> restoreUser(@PathVariable("id") Long id) {
+        UserDto restored = userService.restoreUser(id);
+        return ResponseEntity.ok(restored);
+    }
 }
@@ -0,0 +1,41 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для ответа с записью журнала аудита изменений пользователей и подписок.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditEventDto {
+    @Schema(description = "Номер записи в журнале", example = "1024")
+    private long sequence;
+
+    @Schema(description = "Время изменения", example = "2025-05-12T10:00:00.123")
+    private LocalDateTime timestamp;
+
+    @Schema(description = "Вид изменения", example = "SUBSCRIPTION_ADDED")
+    private String operation;
+
+    @Schema(description = "Идентификатор пользователя", example = "1")
+    private long userId;
+
+    @Schema(description = "Идентификатор подписки; нет для изменений пользователя", example = "10")
+    private Long subscriptionId;
+
+    @Schema(description = "Имя пользователя или название сервиса (не длиннее 40 байт UTF-8)", example = "YouTube Premium")
+    private String name;
+
+    @Schema(description = "Email пользователя; нет для изменений подписок", example = "user@example.com")
+    private String email;
+}
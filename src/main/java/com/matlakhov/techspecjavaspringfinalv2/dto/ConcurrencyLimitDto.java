@@ -0,0 +1,34 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO для ответа с состоянием адаптивного ограничения одновременных запросов.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConcurrencyLimitDto {
+    @Schema(description = "Включено ли ограничение", example = "true")
+    private boolean enabled;
+
+    @Schema(description = "Текущий предел одновременных запросов", example = "24")
+    private int limit;
+
+    @Schema(description = "Запросов выполняется сейчас", example = "7")
+    private int inFlight;
+
+    @Schema(description = "Запросов отклонено с 503 с момента запуска", example = "0")
+    private long rejected;
+
+    @Schema(description = "Среднее время ответа за последнее окно, мс", example = "4.2")
+    private double windowRttMs;
+
+    @Schema(description = "Обычное время ответа, с которым сравнивается окно, мс", example = "3.9")
+    private double longRttMs;
+}
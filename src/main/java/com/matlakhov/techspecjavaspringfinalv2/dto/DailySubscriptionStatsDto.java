@@ -0,0 +1,30 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * DTO для ответа с количеством оформленных и отменённых подписок на сервис за день.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySubscriptionStatsDto {
+    @Schema(description = "День", example = "2025-05-12")
+    private LocalDate day;
+
+    @Schema(description = "Название сервиса", example = "YouTube Premium")
+    private String serviceName;
+
+    @Schema(description = "Оформлено подписок (по дате начала)", example = "12")
+    private long added;
+
+    @Schema(description = "Отменено подписок (по дате окончания)", example = "3")
+    private long cancelled;
+}
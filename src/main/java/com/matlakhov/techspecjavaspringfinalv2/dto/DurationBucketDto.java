@@ -0,0 +1,25 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO для ответа с одним интервалом гистограммы длительности завершённых подписок.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DurationBucketDto {
+    @Schema(description = "Интервал длительности", example = "DAYS_7_TO_30")
+    private String bucket;
+
+    @Schema(description = "Верхняя граница интервала в днях (не включительно); null для последнего интервала", example = "30")
+    private Integer upperBoundDays;
+
+    @Schema(description = "Количество завершённых подписок", example = "17")
+    private long count;
+}
@@ -0,0 +1,25 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO для ответа с частотой запросов к одному пользователю или сервису.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotKeyDto {
+    @Schema(description = "Идентификатор пользователя или название сервиса", example = "42")
+    private String key;
+
+    @Schema(description = "Оценка количества запросов за окно", example = "1200")
+    private long requests;
+
+    @Schema(description = "Оценка количества запросов в секунду", example = "20.0")
+    private double requestsPerSecond;
+}
@@ -0,0 +1,27 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * DTO для ответа с самыми запрашиваемыми пользователями и сервисами.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotKeysDto {
+    @Schema(description = "Длительность окна, по которому считается частота, в секундах", example = "60")
+    private int windowSeconds;
+
+    @Schema(description = "Пользователи по убыванию частоты запросов к /users/{id}/**")
+    private List<HotKeyDto> users;
+
+    @Schema(description = "Сервисы по убыванию частоты оформления подписок")
+    private List<HotKeyDto> services;
+}
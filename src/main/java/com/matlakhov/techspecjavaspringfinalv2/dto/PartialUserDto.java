@@ -0,0 +1,32 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * DTO пользователя с выбранными полями ({@code GET /users/{id}?fields=&embed=}).
+ * Незапрошенные поля остаются пустыми и не попадают в ответ.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PartialUserDto {
+    @Schema(description = "Уникальный идентификатор пользователя", example = "1")
+    private Long id;
+
+    @Schema(description = "Имя пользователя", example = "testUserName")
+    private String username;
+
+    @Schema(description = "Электронная почта", example = "test@example.com")
+    private String email;
+
+    @Schema(description = "Количество подписок", example = "3")
+    private Long subscriptionCount;
+
+    @Schema(description = "Список подписок")
+    private List<SubscriptionDto> subscriptions;
+}
@@ -0,0 +1,44 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO для ответа с трассой одного замеренного запроса.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestTraceDto {
+    @Schema(description = "Время начала запроса", example = "2025-05-12T10:00:00")
+    private LocalDateTime startedAt;
+
+    @Schema(description = "HTTP-метод", example = "GET")
+    private String method;
+
+    @Schema(description = "Путь запроса", example = "/users/42")
+    private String uri;
+
+    @Schema(description = "HTTP-статус ответа", example = "200")
+    private int status;
+
+    @Schema(description = "Время запроса, мс", example = "4.31")
+    private double totalMs;
+
+    @Schema(description = "Значение заголовка Server-Timing ответа",
+            example = "total;dur=4.310, filter;dur=0.402, controller;dur=3.511, service;dur=3.402")
+    private String serverTiming;
+
+    @Schema(description = "Интервалы трассы в порядке завершения")
+    private List<TraceSpanDto> spans;
+
+    @Schema(description = "Сколько интервалов не поместилось в трассу", example = "0")
+    private int droppedSpans;
+}
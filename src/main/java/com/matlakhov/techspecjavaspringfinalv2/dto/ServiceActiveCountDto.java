@@ -0,0 +1,22 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO для ответа с количеством активных подписок на сервис.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceActiveCountDto {
+    @Schema(description = "Название сервиса", example = "YouTube Premium")
+    private String serviceName;
+
+    @Schema(description = "Количество активных подписок", example = "42")
+    private long active;
+}
@@ -0,0 +1,22 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO для ответа с количеством подписок на сервис, подходящих под условие запроса.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceCountDto {
+    @Schema(description = "Название сервиса", example = "YouTube Premium")
+    private String serviceName;
+
+    @Schema(description = "Количество подписок", example = "42")
+    private long count;
+}
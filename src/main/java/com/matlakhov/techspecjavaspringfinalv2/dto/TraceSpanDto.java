@@ -0,0 +1,28 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * DTO для ответа с одним интервалом трассы запроса.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraceSpanDto {
+    @Schema(description = "Этап запроса, как в заголовке Server-Timing", example = "repository")
+    private String phase;
+
+    @Schema(description = "Бин и метод или текст SQL-запроса", example = "userRepository.findByIdWithSubscriptions")
+    private String name;
+
+    @Schema(description = "Начало относительно начала запроса, мс", example = "0.84")
+    private double startMs;
+
+    @Schema(description = "Длительность, мс", example = "1.92")
+    private double durationMs;
+}
@@ -0,0 +1,24 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * DTO для ответа на запрос нескольких пользователей сразу.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBatchDto {
+    @Schema(description = "Найденные пользователи с подписками в порядке запроса")
+    private List<UserDto> users;
+
+    @Schema(description = "Идентификаторы, для которых пользователь не найден или удалён", example = "[42]")
+    private List<Long> missing;
+}
@@ -45,6 +45,16 @@ public class UserDto {
     )
     private String email;
 
+    /**
+     * Количество неудалённых подписок пользователя.
+     */
+    @Schema(
+            description = "Количество действующих подписок",
+            example = "2",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private Long activeSubscriptionCount;
+
     /**
      * Список подписок пользователя.
      * Содержит данные о всех подписках, связанных с пользователем.
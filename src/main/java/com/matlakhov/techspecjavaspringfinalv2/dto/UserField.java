@@ -0,0 +1,75 @@
+package com.matlakhov.techspecjavaspringfinalv2.dto;
+
+import com.matlakhov.techspecjavaspringfinalv2.exception.InvalidRequestException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Поля пользователя, которые можно запросить у {@code GET /users/{id}} параметрами {@code fields} и {@code embed}.
+ */
+public enum UserField {
+    ID("id"),
+    USERNAME("username"),
+    EMAIL("email"),
+    /**
+     * Количество неудалённых подписок - без загрузки самих подписок.
+     */
+    SUBSCRIPTION_COUNT("subscriptionCount"),
+    /**
+     * Неудалённые подписки; запрашивается через {@code embed=subscriptions} или {@code fields}.
+     */
+    SUBSCRIPTIONS("subscriptions");
+
+    private final String jsonName;
+
+    UserField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    /**
+     * Разбирает параметры запроса.
+     *
+     * @param fields список полей через запятую; если не задан - {@code id}, {@code username} и {@code email}
+     * @param embed  связанные данные через запятую; поддерживается только {@code subscriptions}
+     * @return запрошенные поля
+     * @throws InvalidRequestException если указано неизвестное поле
+     */
+    public static Set<UserField> parse(String fields, String embed) {
+        EnumSet<UserField> result = EnumSet.noneOf(UserField.class);
+        if (fields == null || fields.isBlank()) {
+            result.addAll(EnumSet.of(ID, USERNAME, EMAIL));
+        } else {
+            for (String name : fields.split(",")) {
+                if (!name.isBlank()) {
+                    result.add(byJsonName(name.strip(), "field"));
+                }
+            }
+        }
+        if (embed != null) {
+            for (String name : embed.split(",")) {
+                if (!name.isBlank()) {
+                    UserField field = byJsonName(name.strip(), "embed");
+                    if (field != SUBSCRIPTIONS) {
+                        throw new InvalidRequestException("Unknown embed: " + name.strip());
+                    }
+                    result.add(field);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static UserField byJsonName(String name, String kind) {
+        for (UserField field : values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+        throw new InvalidRequestException("Unknown " + kind + ": " + name);
+    }
+}
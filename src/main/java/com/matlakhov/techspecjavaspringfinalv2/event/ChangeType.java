@@ -0,0 +1,10 @@
+package com.matlakhov.techspecjavaspringfinalv2.event;
+
+/**
+ * Вид изменения сущности.
+ */
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,19 @@
+package com.matlakhov.techspecjavaspringfinalv2.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие об изменении подписки.
+ * Публикуется {@code SubscriptionService} внутри транзакции; слушатели, которым важен факт фиксации,
+ * подписываются через {@code @TransactionalEventListener}.
+ *
+ * @param type           вид изменения
+ * @param userId         идентификатор владельца подписки
+ * @param subscriptionId идентификатор подписки
+ * @param serviceName    название сервиса
+ * @param startDate      дата начала подписки
+ * @param endDate        дата окончания подписки или null
+ */
+public record SubscriptionChangedEvent(ChangeType type, Long userId, Long subscriptionId, String serviceName,
+                                       LocalDateTime startDate, LocalDateTime endDate) {
+}
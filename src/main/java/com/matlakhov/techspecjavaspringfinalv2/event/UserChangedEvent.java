@@ -0,0 +1,14 @@
+package com.matlakhov.techspecjavaspringfinalv2.event;
+
+/**
+ * Событие об изменении пользователя.
+ * Публикуется {@code UserService} внутри транзакции; слушатели, которым важен факт фиксации,
+ * подписываются через {@code @TransactionalEventListener}.
+ *
+ * @param type     вид изменения
+ * @param userId   идентификатор пользователя
+ * @param username имя пользователя после изменения
+ * @param email    email после изменения
+ */
+public record UserChangedEvent(ChangeType type, Long userId, String username, String email) {
+}
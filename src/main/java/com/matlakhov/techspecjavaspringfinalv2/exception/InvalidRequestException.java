@@ -0,0 +1,15 @@
+package com.matlakhov.techspecjavaspringfinalv2.exception;
+/**
+ * Пользовательское исключение, которое возникает, когда параметры запроса некорректны
+ * (например, запрошено неизвестное поле).
+ */
+public class InvalidRequestException extends RuntimeException {
+    /**
+     * Конструктор исключения с указанием сообщения об ошибке.
+     *
+     * @param message сообщение, описывающее причину исключения (например, "Unknown field: phone")
+     */
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.matlakhov.techspecjavaspringfinalv2.exception;
+/**
+ * Пользовательское исключение, которое возникает, когда у пользователя уже столько действующих подписок,
+ * сколько разрешено {@code app.subscriptions.quota.max-active-per-user}.
+ */
+public class QuotaExceededException extends RuntimeException {
+    /**
+     * Конструктор исключения с указанием сообщения об ошибке.
+     *
+     * @param message сообщение, описывающее причину исключения (например, "Active subscription limit reached")
+     */
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
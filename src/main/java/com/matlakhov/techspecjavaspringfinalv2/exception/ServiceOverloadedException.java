@@ -0,0 +1,15 @@
+package com.matlakhov.techspecjavaspringfinalv2.exception;
+/**
+ * Пользовательское исключение, которое возникает, когда сервис временно не может обработать запрос
+ * (например, переполнена очередь записи или ещё не загружены данные). Запрос можно повторить позже.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    /**
+     * Конструктор исключения с указанием сообщения об ошибке.
+     *
+     * @param message сообщение, описывающее причину исключения (например, "Subscription write queue is full")
+     */
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,106 @@
+package com.matlakhov.techspecjavaspringfinalv2.hotkeys;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Оценка частоты ключей в ограниченной памяти и самые частые из них.
+ * <p>
+ * Частоты хранятся в count-min sketch: {@code depth} строк по {@code width} счётчиков, ключ увеличивает
+ * по одному счётчику в каждой строке, оценка - минимум из них (может быть завышена коллизиями, но не занижена).
+ * Счётчики увеличиваются без блокировок. Кандидаты в самые частые - не больше {@code capacity} ключей
+ * с наибольшими оценками; блокировка берётся, только когда оценка ключа выше наименьшей среди кандидатов.
+ */
+public final class FrequencySketch {
+    private final int depth;
+    private final int widthMask;
+    private final AtomicIntegerArray counters;
+    private final int capacity;
+    private final Map<String, Integer> candidates = new HashMap<>();
+    private volatile int threshold;
+
+    public FrequencySketch(int width, int depth, int capacity) {
+        if (width < 1 || depth < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Sketch width, depth and capacity must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.widthMask = size - 1;
+        this.counters = new AtomicIntegerArray(size * depth);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Учитывает одно появление ключа.
+     */
+    public void add(String key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+        }
+        if (estimate > threshold) {
+            offer(key, estimate);
+        }
+    }
+
+    /**
+     * @return оценка количества появлений ключа
+     */
+    public int estimate(String key) {
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @param limit максимальное количество ключей
+     * @return самые частые ключи по убыванию оценки
+     */
+    public List<Map.Entry<String, Integer>> top(int limit) {
+        List<Map.Entry<String, Integer>> top;
+        synchronized (candidates) {
+            top = new ArrayList<>(candidates.size());
+            for (String key : candidates.keySet()) {
+                top.add(Map.entry(key, estimate(key)));
+            }
+        }
+        top.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        return top.size() > limit ? top.subList(0, limit) : top;
+    }
+
+    private void offer(String key, int estimate) {
+        synchronized (candidates) {
+            candidates.put(key, estimate);
+            if (candidates.size() <= capacity) {
+                return;
+            }
+            String weakest = null;
+            int weakestEstimate = Integer.MAX_VALUE;
+            for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                if (candidate.getValue() < weakestEstimate) {
+                    weakest = candidate.getKey();
+                    weakestEstimate = candidate.getValue();
+                }
+            }
+            candidates.remove(weakest);
+            threshold = weakestEstimate;
+        }
+    }
+
+    private int index(int hash, int row) {
+        int h = hash + row * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return row * (widthMask + 1) + (h & widthMask);
+    }
+}
@@ -0,0 +1,51 @@
+package com.matlakhov.techspecjavaspringfinalv2.hotkeys;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Учитывает id пользователя из переменной пути {@code {id}} в {@link HotKeyService}.
+ * Пути вроде {@code /users/search}, где на месте id стоит не число, не учитываются.
+ */
+public class HotKeyInterceptor implements HandlerInterceptor {
+    private static final String USER_ID_VARIABLE = "id";
+
+    private final HotKeyService hotKeys;
+
+    public HotKeyInterceptor(HotKeyService hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // Запрос уже учтён при первой обработке, до асинхронного ответа контроллера
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String userId = variables != null ? variables.get(USER_ID_VARIABLE) : null;
+        if (userId != null && isNumber(userId)) {
+            hotKeys.recordUser(userId);
+        }
+        return true;
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty() || value.length() > 19) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package com.matlakhov.techspecjavaspringfinalv2.hotkeys;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки поиска самых запрашиваемых пользователей и сервисов ({@code app.hot-keys.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.hot-keys")
+public class HotKeyProperties {
+
+    /**
+     * Включает учёт id пользователей из путей {@code /users/{id}/**} и сервисов новых подписок.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Доля учитываемых запросов (от 0 до 1); оценки частоты делятся на неё.
+     */
+    private double sampleRate = 0.1;
+
+    /**
+     * Длительность окна, по которому считается частота запросов.
+     */
+    private int windowSeconds = 60;
+
+    /**
+     * Сколько самых частых ключей каждого вида отслеживается; столько же можно запросить в отчёте.
+     */
+    private int capacity = 50;
+
+    /**
+     * Количество счётчиков в каждой строке count-min sketch (округляется вверх до степени двойки).
+     */
+    private int sketchWidth = 4096;
+
+    /**
+     * Количество строк count-min sketch (независимых хеш-функций).
+     */
+    private int sketchDepth = 4;
+}
@@ -0,0 +1,64 @@
+package com.matlakhov.techspecjavaspringfinalv2.hotkeys;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.HotKeysDto;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Учёт самых запрашиваемых пользователей и сервисов ({@code app.hot-keys.enabled}).
+ * <p>
+ * Пользователи учитываются по id из путей {@code /users/{id}/**} ({@link HotKeyInterceptor}),
+ * сервисы - по названию в запросах на оформление подписки. Память ограничена размером
+ * {@link FrequencySketch} и количеством отслеживаемых ключей, а не количеством разных ключей.
+ * Пока учёт выключен, отчёт пуст.
+ */
+@Component
+public class HotKeyService {
+    private final boolean enabled;
+    private final int capacity;
+    private final int windowSeconds;
+    private final HotKeyWindow users;
+    private final HotKeyWindow services;
+
+    public HotKeyService(HotKeyProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.capacity = properties.getCapacity();
+        this.windowSeconds = properties.getWindowSeconds();
+        long now = System.currentTimeMillis();
+        long windowMillis = properties.getWindowSeconds() * 1000L;
+        this.users = new HotKeyWindow(windowMillis, properties.getSampleRate(), properties.getSketchWidth(),
+                properties.getSketchDepth(), capacity, now);
+        this.services = new HotKeyWindow(windowMillis, properties.getSampleRate(), properties.getSketchWidth(),
+                properties.getSketchDepth(), capacity, now);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void recordUser(String userId) {
+        if (enabled) {
+            users.record(userId, System.currentTimeMillis());
+        }
+    }
+
+    public void recordService(String serviceName) {
+        if (enabled && serviceName != null) {
+            services.record(serviceName, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @param limit максимальное количество ключей каждого вида, не больше {@code app.hot-keys.capacity}
+     * @return самые запрашиваемые пользователи и сервисы по убыванию частоты
+     */
+    public HotKeysDto report(int limit) {
+        if (!enabled) {
+            return new HotKeysDto(windowSeconds, List.of(), List.of());
+        }
+        int bounded = Math.max(1, Math.min(limit, capacity));
+        long now = System.currentTimeMillis();
+        return new HotKeysDto(windowSeconds, users.top(bounded, now), services.top(bounded, now));
+    }
+}
@@ -0,0 +1,96 @@
+package com.matlakhov.techspecjavaspringfinalv2.hotkeys;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.HotKeyDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Самые частые ключи одного вида по окнам времени фиксированной длины.
+ * <p>
+ * Учитывается случайная доля {@code sampleRate} появлений ключей, каждое окно считается своим
+ * {@link FrequencySketch}. Отчёт строится по последнему завершённому окну, а если его нет - по текущему;
+ * оценки делятся на долю выборки и длительность окна.
+ */
+public final class HotKeyWindow {
+    private final long windowMillis;
+    private final double sampleRate;
+    private final int width;
+    private final int depth;
+    private final int capacity;
+
+    private volatile Window current;
+    private volatile Window previous;
+
+    public HotKeyWindow(long windowMillis, double sampleRate, int width, int depth, int capacity, long now) {
+        if (windowMillis < 1 || sampleRate <= 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Hot key window must be positive and sample rate within (0, 1]");
+        }
+        this.windowMillis = windowMillis;
+        this.sampleRate = sampleRate;
+        this.width = width;
+        this.depth = depth;
+        this.capacity = capacity;
+        this.current = new Window(now, new FrequencySketch(width, depth, capacity));
+    }
+
+    /**
+     * Учитывает запрос с ключом {@code key} (с вероятностью {@code sampleRate}).
+     *
+     * @param now текущее время, мс
+     */
+    public void record(String key, long now) {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        windowAt(now).sketch().add(key);
+    }
+
+    /**
+     * @param limit максимальное количество ключей
+     * @param now   текущее время, мс
+     * @return самые частые ключи по убыванию частоты
+     */
+    public List<HotKeyDto> top(int limit, long now) {
+        Window window = windowAt(now);
+        Window complete = previous;
+        long elapsed = windowMillis;
+        if (complete != null) {
+            window = complete;
+        } else {
+            elapsed = Math.max(1, now - window.start());
+        }
+        double seconds = elapsed / 1000.0;
+        return window.sketch().top(limit).stream()
+                .map(entry -> toDto(entry, seconds))
+                .toList();
+    }
+
+    private HotKeyDto toDto(Map.Entry<String, Integer> entry, double seconds) {
+        long requests = Math.round(entry.getValue() / sampleRate);
+        return new HotKeyDto(entry.getKey(), requests, requests / seconds);
+    }
+
+    private Window windowAt(long now) {
+        Window window = current;
+        if (now - window.start() < windowMillis) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            long passed = now - window.start();
+            if (passed >= windowMillis) {
+                // Если запросов не было дольше окна, завершённого окна с данными нет: отчёт строится по текущему
+                previous = passed < 2 * windowMillis ? window : null;
+                window = new Window(window.start() + passed / windowMillis * windowMillis,
+                        new FrequencySketch(width, depth, capacity));
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    private record Window(long start, FrequencySketch sketch) {
+    }
+}
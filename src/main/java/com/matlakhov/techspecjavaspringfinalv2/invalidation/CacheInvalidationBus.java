@@ -0,0 +1,218 @@
+package com.matlakhov.techspecjavaspringfinalv2.invalidation;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Сброс локальных кешей ({@link LocalCache}) других узлов через LISTEN/NOTIFY PostgreSQL
+ * ({@code app.cache-invalidation.enabled=true}).
+ * <p>
+ * Перед фиксацией транзакции, изменившей пользователя или подписку, в неё добавляется {@code pg_notify}
+ * с {@link InvalidationMessage}: PostgreSQL доставит уведомление только после фиксации и только один раз,
+ * даже если сущность менялась в транзакции несколько раз. Каждый узел держит на каждую базу (шард) отдельное
+ * от пула соединение с {@code LISTEN} и передаёт чужие уведомления кешам.
+ * <p>
+ * Уведомления, отправленные, пока соединение LISTEN было разорвано, не доставляются. Поэтому после
+ * повторного подключения (как и после неудачной первой попытки) все кеши перестраиваются целиком.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.cache-invalidation", name = "enabled", havingValue = "true")
+public class CacheInvalidationBus implements SmartLifecycle {
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final String channel;
+    private final int pollTimeoutMs;
+    private final long validationIntervalMs;
+    private final long reconnectDelayMs;
+    private final List<Endpoint> endpoints;
+    private final boolean sharded;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<LocalCache> caches;
+    private final String node = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+
+    private final List<Thread> listeners = new ArrayList<>();
+    private volatile boolean running;
+
+    public CacheInvalidationBus(CacheInvalidationProperties properties,
+                                DataSourceProperties dataSourceProperties,
+                                ShardingProperties shardingProperties,
+                                JdbcTemplate jdbcTemplate,
+                                List<LocalCache> caches) {
+        if (!CHANNEL.matcher(properties.getChannel()).matches()) {
+            throw new IllegalArgumentException("Invalid app.cache-invalidation.channel: " + properties.getChannel());
+        }
+        this.channel = properties.getChannel();
+        this.pollTimeoutMs = properties.getPollTimeoutMs();
+        this.validationIntervalMs = properties.getValidationIntervalMs();
+        this.reconnectDelayMs = properties.getReconnectDelayMs();
+        this.endpoints = endpoints(dataSourceProperties, shardingProperties);
+        this.sharded = shardingProperties.isEnabled();
+        this.jdbcTemplate = jdbcTemplate;
+        this.caches = List.copyOf(caches);
+    }
+
+    private static List<Endpoint> endpoints(DataSourceProperties dataSource, ShardingProperties sharding) {
+        if (!sharding.isEnabled()) {
+            return List.of(new Endpoint(dataSource.determineUrl(), dataSource.determineUsername(),
+                    dataSource.determinePassword()));
+        }
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (ShardingProperties.Shard shard : sharding.getShards()) {
+            endpoints.add(new Endpoint(shard.getUrl(),
+                    shard.getUsername() != null ? shard.getUsername() : dataSource.determineUsername(),
+                    shard.getPassword() != null ? shard.getPassword() : dataSource.determinePassword()));
+        }
+        return endpoints;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onUserChanged(UserChangedEvent event) {
+        notifyOthers(CachedEntity.USER, event.userId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        notifyOthers(CachedEntity.SUBSCRIPTION, event.subscriptionId());
+    }
+
+    private void notifyOthers(CachedEntity entity, long id) {
+        // Выполняется в соединении транзакции, поэтому попадает в ту же базу (шард), что и само изменение
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, new InvalidationMessage(entity, id, node).encode());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < endpoints.size(); i++) {
+            int shard = i;
+            Thread listener = new Thread(() -> listen(shard, endpoints.get(shard)), "cache-invalidation-" + shard);
+            listener.setDaemon(true);
+            listener.start();
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        listeners.forEach(Thread::interrupt);
+        listeners.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(int shard, Endpoint endpoint) {
+        boolean gap = false;
+        while (running) {
+            try (Connection connection = connect(endpoint)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (gap) {
+                    log.warn("Соединение LISTEN шарда {} восстановлено, локальные кеши перестраиваются целиком", shard);
+                    evictAll();
+                    gap = false;
+                } else {
+                    log.info("Сброс локальных кешей: узел {} слушает канал {} шарда {}", node, channel, shard);
+                }
+                poll(shard, connection);
+            } catch (SQLException | RuntimeException e) {
+                gap = true;
+                if (running) {
+                    log.warn("Соединение LISTEN шарда {} потеряно, повтор через {} мс: {}",
+                            shard, reconnectDelayMs, e.toString());
+                    try {
+                        Thread.sleep(reconnectDelayMs);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void poll(int shard, Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long validateAt = System.currentTimeMillis() + validationIntervalMs;
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+            if (notifications != null && notifications.length > 0) {
+                for (PGNotification notification : notifications) {
+                    dispatch(shard, notification.getParameter());
+                }
+                validateAt = System.currentTimeMillis() + validationIntervalMs;
+            } else if (System.currentTimeMillis() >= validateAt) {
+                // Без проверки молча оборванное соединение (например, при сбое сети) не было бы замечено
+                if (!connection.isValid((int) Math.max(1, validationIntervalMs / 1000))) {
+                    throw new SQLException("LISTEN connection is no longer valid");
+                }
+                validateAt = System.currentTimeMillis() + validationIntervalMs;
+            }
+        }
+    }
+
+    /**
+     * Передаёт кешам уведомление, полученное из шарда {@code shard}; свои уведомления пропускаются.
+     */
+    public void dispatch(int shard, String payload) {
+        InvalidationMessage message = InvalidationMessage.decode(payload);
+        if (message == null) {
+            log.warn("Неизвестное уведомление в канале {}: {}", channel, payload);
+            return;
+        }
+        if (node.equals(message.node())) {
+            return;
+        }
+        ShardContext.runOn(sharded ? shard : null,
+                () -> caches.forEach(cache -> cache.evict(message.entity(), message.id())));
+    }
+
+    /**
+     * Перестраивает все локальные кеши: уведомления могли быть потеряны.
+     */
+    public void evictAll() {
+        caches.forEach(LocalCache::evictAll);
+    }
+
+    private static Connection connect(Endpoint endpoint) throws SQLException {
+        Properties info = new Properties();
+        if (endpoint.username() != null) {
+            info.setProperty("user", endpoint.username());
+        }
+        if (endpoint.password() != null) {
+            info.setProperty("password", endpoint.password());
+        }
+        info.setProperty("ApplicationName", "cache-invalidation");
+        info.setProperty("tcpKeepAlive", "true");
+        return DriverManager.getConnection(endpoint.url(), info);
+    }
+
+    private record Endpoint(String url, String username, String password) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.matlakhov.techspecjavaspringfinalv2.invalidation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки сброса локальных кешей на других узлах через LISTEN/NOTIFY ({@code app.cache-invalidation.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.cache-invalidation")
+public class CacheInvalidationProperties {
+
+    /**
+     * Включает рассылку изменений пользователей и подписок другим узлам и приём их изменений.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Канал PostgreSQL: строчные латинские буквы, цифры и подчёркивания.
+     */
+    private String channel = "app_cache_invalidation";
+
+    /**
+     * Сколько миллисекунд ждать уведомлений за одно обращение к соединению LISTEN.
+     */
+    private int pollTimeoutMs = 500;
+
+    /**
+     * Как часто проверять, что соединение LISTEN живо, если уведомлений нет.
+     */
+    private long validationIntervalMs = 10000;
+
+    /**
+     * Пауза перед повторным подключением после обрыва соединения LISTEN.
+     */
+    private long reconnectDelayMs = 1000;
+}
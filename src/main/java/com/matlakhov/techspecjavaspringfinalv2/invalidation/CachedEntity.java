@@ -0,0 +1,34 @@
+package com.matlakhov.techspecjavaspringfinalv2.invalidation;
+
+/**
+ * Вид сущности, изменение которой делает устаревшими записи локальных кешей.
+ */
+public enum CachedEntity {
+    USER('u'),
+    SUBSCRIPTION('s');
+
+    private final char code;
+
+    CachedEntity(char code) {
+        this.code = code;
+    }
+
+    /**
+     * @return однобуквенный код сущности в сообщении {@link InvalidationMessage}
+     */
+    public char code() {
+        return code;
+    }
+
+    /**
+     * @return сущность с кодом {@code code} или {@code null}, если такой нет
+     */
+    public static CachedEntity fromCode(char code) {
+        for (CachedEntity entity : values()) {
+            if (entity.code == code) {
+                return entity;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.matlakhov.techspecjavaspringfinalv2.invalidation;
+
+/**
+ * Сообщение об изменении сущности в канале NOTIFY: {@code <код сущности>:<id>:<узел>}, например {@code u:42:k3x9a}.
+ * <p>
+ * Узел-отправитель нужен, чтобы узел не сбрасывал собственные кеши: их уже обновили локальные события.
+ *
+ * @param entity вид сущности
+ * @param id     идентификатор сущности
+ * @param node   идентификатор узла-отправителя
+ */
+public record InvalidationMessage(CachedEntity entity, long id, String node) {
+
+    public String encode() {
+        return entity.code() + ":" + id + ":" + node;
+    }
+
+    /**
+     * @return сообщение или {@code null}, если строка не в формате {@link #encode()}
+     */
+    public static InvalidationMessage decode(String payload) {
+        if (payload == null || payload.length() < 5 || payload.charAt(1) != ':') {
+            return null;
+        }
+        CachedEntity entity = CachedEntity.fromCode(payload.charAt(0));
+        int separator = payload.indexOf(':', 2);
+        if (entity == null || separator < 0 || separator == payload.length() - 1) {
+            return null;
+        }
+        try {
+            return new InvalidationMessage(entity, Long.parseLong(payload, 2, separator, 10),
+                    payload.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
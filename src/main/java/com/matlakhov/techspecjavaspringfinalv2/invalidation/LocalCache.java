@@ -0,0 +1,21 @@
+package com.matlakhov.techspecjavaspringfinalv2.invalidation;
+
+/**
+ * Кеш в памяти узла, который нужно сбрасывать при изменениях на других узлах.
+ * <p>
+ * Изменения собственного узла кеш получает локальными событиями; методы интерфейса вызывает
+ * {@link CacheInvalidationBus} в своём потоке. При шардировании {@link #evict} вызывается с привязанным
+ * {@link com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext} шарда, на котором изменилась сущность.
+ */
+public interface LocalCache {
+
+    /**
+     * Сущность изменена на другом узле: запись о ней нужно удалить или перечитать.
+     */
+    void evict(CachedEntity entity, long id);
+
+    /**
+     * Уведомления могли быть потеряны (соединение LISTEN обрывалось): кеш нужно перестроить целиком.
+     */
+    void evictAll();
+}
@@ -0,0 +1,161 @@
+package com.matlakhov.techspecjavaspringfinalv2.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Фоновая загрузка локального кеша из базы с применением изменений, пришедших во время загрузки.
+ * <p>
+ * Загрузка идёт в отдельном потоке. Изменения (события после фиксации транзакций и сбросы с других узлов),
+ * пришедшие во время загрузки, откладываются и применяются после неё; после загрузки применяются сразу.
+ * Запрошенная во время загрузки перезагрузка начинает чтение заново. Если загрузка не удалась, отложенные
+ * изменения отбрасываются и загрузка повторяется с экспоненциально растущей паузой: повторная загрузка
+ * прочитает их из базы. Во время паузы изменения не накапливаются.
+ */
+@Slf4j
+public class LocalCacheLoader {
+    private final String name;
+    private final String threadName;
+    private final Runnable load;
+    private final LongSupplier size;
+    private final long initialRetryDelayMs;
+    private final long maxRetryDelayMs;
+
+    private final Object lock = new Object();
+    private final List<Runnable> pending = new ArrayList<>();
+    private boolean loading = true;
+    private boolean retryWaiting;
+    private boolean loaderRunning;
+    private boolean reloadRequested;
+    private volatile boolean ready;
+
+    /**
+     * @param name                название кеша для журнала
+     * @param threadName          имя потока загрузки
+     * @param load                полная загрузка кеша; исключение означает неудачную загрузку
+     * @param size                количество записей кеша для журнала
+     * @param initialRetryDelayMs пауза перед первым повтором неудачной загрузки
+     * @param maxRetryDelayMs     наибольшая пауза между повторами
+     */
+    public LocalCacheLoader(String name, String threadName, Runnable load, LongSupplier size,
+                            long initialRetryDelayMs, long maxRetryDelayMs) {
+        this.name = name;
+        this.threadName = threadName;
+        this.load = load;
+        this.size = size;
+        this.initialRetryDelayMs = initialRetryDelayMs;
+        this.maxRetryDelayMs = maxRetryDelayMs;
+    }
+
+    /**
+     * @return кеш загружен и поддерживается изменениями
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Начинает первую загрузку, если загрузка ещё не идёт.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (loaderRunning) {
+                return;
+            }
+            loaderRunning = true;
+        }
+        startLoader();
+    }
+
+    /**
+     * Загружает кеш заново, например после потери уведомлений; до конца загрузки кеш не готов.
+     */
+    public void reload() {
+        synchronized (lock) {
+            loading = true;
+            ready = false;
+            if (loaderRunning) {
+                reloadRequested = true;
+                return;
+            }
+            loaderRunning = true;
+        }
+        startLoader();
+    }
+
+    /**
+     * Применяет изменение сразу или, если кеш загружается, после загрузки.
+     */
+    public void apply(Runnable change) {
+        synchronized (lock) {
+            if (retryWaiting) {
+                return;
+            }
+            if (loading) {
+                pending.add(change);
+                return;
+            }
+        }
+        change.run();
+    }
+
+    private void startLoader() {
+        Thread loader = new Thread(this::load, threadName);
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        long retryDelayMs = initialRetryDelayMs;
+        while (true) {
+            synchronized (lock) {
+                // Изменения с этого момента откладываются: более ранние прочитает загрузка
+                retryWaiting = false;
+                reloadRequested = false;
+            }
+            try {
+                load.run();
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    retryWaiting = true;
+                    pending.clear();
+                }
+                log.error("Не удалось загрузить {}, повтор через {} мс", name, retryDelayMs, e);
+                if (!pause(retryDelayMs)) {
+                    synchronized (lock) {
+                        loaderRunning = false;
+                    }
+                    return;
+                }
+                retryDelayMs = Math.min(retryDelayMs * 2, maxRetryDelayMs);
+                continue;
+            }
+            synchronized (lock) {
+                if (reloadRequested) {
+                    continue;
+                }
+                pending.forEach(Runnable::run);
+                pending.clear();
+                loading = false;
+                loaderRunning = false;
+                ready = true;
+            }
+            break;
+        }
+        log.info("Загружен {}: {} записей за {} мс", name, size.getAsLong(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static boolean pause(long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.matlakhov.techspecjavaspringfinalv2.json;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+
+/**
+ * Модуль Jackson, регистрирующий ручные сериализаторы для DTO ответов API.
+ */
+public class FastDtoSerializersModule extends SimpleModule {
+
+    public FastDtoSerializersModule() {
+        super("FastDtoSerializersModule");
+        SubscriptionDtoSerializer subscriptionSerializer = new SubscriptionDtoSerializer();
+        addSerializer(SubscriptionDto.class, subscriptionSerializer);
+        addSerializer(UserDto.class, new UserDtoSerializer(subscriptionSerializer));
+    }
+}
@@ -0,0 +1,103 @@
+package com.matlakhov.techspecjavaspringfinalv2.json;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Быстрое форматирование {@link LocalDateTime} в формат {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}.
+ * <p>
+ * Результат побайтно совпадает с {@code DateTimeFormatter.ISO_LOCAL_DATE_TIME}: секунды выводятся всегда,
+ * дробная часть выводится только если она не нулевая, без завершающих нулей.
+ * Цифры пишутся напрямую в переданный буфер по таблице двузначных чисел, без промежуточных объектов.
+ * Годы вне диапазона 0000–9999 форматируются стандартным {@link DateTimeFormatter}.
+ */
+public final class IsoDateTimeFormat {
+
+    /**
+     * Максимальная длина результата: {@code yyyy-MM-ddTHH:mm:ss.nnnnnnnnn}.
+     */
+    public static final int MAX_LENGTH = 29;
+
+    private static final char[] DIGIT_TENS = new char[100];
+    private static final char[] DIGIT_ONES = new char[100];
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_TENS[i] = (char) ('0' + i / 10);
+            DIGIT_ONES[i] = (char) ('0' + i % 10);
+        }
+    }
+
+    private IsoDateTimeFormat() {
+    }
+
+    /**
+     * Возвращает буфер потока, достаточный для {@link #format(LocalDateTime, char[])}.
+     * Буфер нельзя сохранять или передавать в другие потоки.
+     *
+     * @return буфер длиной {@link #MAX_LENGTH}
+     */
+    public static char[] threadLocalBuffer() {
+        return BUFFER.get();
+    }
+
+    /**
+     * Записывает дату в буфер.
+     *
+     * @param value  дата и время
+     * @param buffer буфер длиной не меньше {@link #MAX_LENGTH}
+     * @return количество записанных символов или {@code -1}, если год вне диапазона 0000–9999
+     */
+    public static int format(LocalDateTime value, char[] buffer) {
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            return -1;
+        }
+        putPair(buffer, 0, year / 100);
+        putPair(buffer, 2, year % 100);
+        buffer[4] = '-';
+        putPair(buffer, 5, value.getMonthValue());
+        buffer[7] = '-';
+        putPair(buffer, 8, value.getDayOfMonth());
+        buffer[10] = 'T';
+        putPair(buffer, 11, value.getHour());
+        buffer[13] = ':';
+        putPair(buffer, 14, value.getMinute());
+        buffer[16] = ':';
+        putPair(buffer, 17, value.getSecond());
+
+        int nano = value.getNano();
+        if (nano == 0) {
+            return 19;
+        }
+        buffer[19] = '.';
+        int end = 29;
+        for (int pos = 28; pos >= 20; pos--) {
+            buffer[pos] = (char) ('0' + nano % 10);
+            nano /= 10;
+        }
+        while (buffer[end - 1] == '0') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Форматирует дату в строку.
+     *
+     * @param value дата и время
+     * @return строка в формате ISO-8601 без часового пояса
+     */
+    public static String format(LocalDateTime value) {
+        char[] buffer = threadLocalBuffer();
+        int length = format(value, buffer);
+        return length < 0 ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value) : new String(buffer, 0, length);
+    }
+
+    private static void putPair(char[] buffer, int offset, int value) {
+        buffer[offset] = DIGIT_TENS[value];
+        buffer[offset + 1] = DIGIT_ONES[value];
+    }
+}
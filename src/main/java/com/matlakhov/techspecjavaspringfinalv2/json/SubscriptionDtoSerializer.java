@@ -0,0 +1,75 @@
+package com.matlakhov.techspecjavaspringfinalv2.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Сериализатор {@link SubscriptionDto}, написанный вручную вместо рефлексивного {@code BeanSerializer}.
+ * <p>
+ * Порядок и имена полей совпадают с сериализацией Jackson по умолчанию; имена полей заранее закодированы,
+ * даты форматируются через {@link IsoDateTimeFormat}.
+ */
+public class SubscriptionDtoSerializer extends StdSerializer<SubscriptionDto> {
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString SERVICE_NAME = new SerializedString("serviceName");
+    private static final SerializableString START_DATE = new SerializedString("startDate");
+    private static final SerializableString END_DATE = new SerializedString("endDate");
+
+    public SubscriptionDtoSerializer() {
+        super(SubscriptionDto.class);
+    }
+
+    @Override
+    public void serialize(SubscriptionDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+
+        gen.writeFieldName(ID);
+        writeLong(value.getId(), gen);
+
+        gen.writeFieldName(SERVICE_NAME);
+        gen.writeString(value.getServiceName());
+
+        gen.writeFieldName(START_DATE);
+        writeDateTime(value.getStartDate(), gen, provider);
+
+        gen.writeFieldName(END_DATE);
+        writeDateTime(value.getEndDate(), gen, provider);
+
+        gen.writeEndObject();
+    }
+
+    static void writeLong(Long value, JsonGenerator gen) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeDateTime(LocalDateTime value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+            return;
+        }
+        if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(value, gen);
+            return;
+        }
+        char[] buffer = IsoDateTimeFormat.threadLocalBuffer();
+        int length = IsoDateTimeFormat.format(value, buffer);
+        if (length < 0) {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        } else {
+            gen.writeString(buffer, 0, length);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.matlakhov.techspecjavaspringfinalv2.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Сериализатор {@link UserDto}, написанный вручную вместо рефлексивного {@code BeanSerializer}.
+ * Подписки пишутся напрямую через {@link SubscriptionDtoSerializer}, без поиска сериализатора для каждого элемента.
+ */
+public class UserDtoSerializer extends StdSerializer<UserDto> {
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString USERNAME = new SerializedString("username");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString ACTIVE_SUBSCRIPTION_COUNT = new SerializedString("activeSubscriptionCount");
+    private static final SerializableString SUBSCRIPTIONS = new SerializedString("subscriptions");
+
+    private final SubscriptionDtoSerializer subscriptionSerializer;
+
+    public UserDtoSerializer(SubscriptionDtoSerializer subscriptionSerializer) {
+        super(UserDto.class);
+        this.subscriptionSerializer = subscriptionSerializer;
+    }
+
+    @Override
+    public void serialize(UserDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+
+        gen.writeFieldName(ID);
+        SubscriptionDtoSerializer.writeLong(value.getId(), gen);
+
+        gen.writeFieldName(USERNAME);
+        gen.writeString(value.getUsername());
+
+        gen.writeFieldName(EMAIL);
+        gen.writeString(value.getEmail());
+
+        gen.writeFieldName(ACTIVE_SUBSCRIPTION_COUNT);
+        SubscriptionDtoSerializer.writeLong(value.getActiveSubscriptionCount(), gen);
+
+        gen.writeFieldName(SUBSCRIPTIONS);
+        List<SubscriptionDto> subscriptions = value.getSubscriptions();
+        if (subscriptions == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartArray(subscriptions, subscriptions.size());
+            for (SubscriptionDto subscription : subscriptions) {
+                if (subscription == null) {
+                    gen.writeNull();
+                } else {
+                    subscriptionSerializer.serialize(subscription, gen, provider);
+                }
+            }
+            gen.writeEndArray();
+        }
+
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,131 @@
+package com.matlakhov.techspecjavaspringfinalv2.logging;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр, записывающий одну структурированную строку журнала доступа на каждый запрос.
+ * <p>
+ * Строка пишется в логгер {@code access-log} в формате {@code ключ=значение}. Для снижения нагрузки
+ * запросы логируются выборочно: долю логируемых запросов можно задать для каждого эндпоинта
+ * (см. {@link AccessLogProperties}). Ошибки сервера и медленные запросы логируются всегда.
+ */
+@Slf4j(topic = "access-log")
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(prefix = "app.access-log", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLogFilter extends OncePerRequestFilter {
+    private final double defaultSampleRate;
+    private final long slowRequestThresholdNanos;
+    private final Map<String, Double> sampleRates = new HashMap<>();
+
+    public AccessLogFilter(AccessLogProperties properties) {
+        this.defaultSampleRate = properties.getDefaultSampleRate();
+        this.slowRequestThresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSlowRequestThresholdMs());
+        for (AccessLogProperties.Sampling sampling : properties.getSampling()) {
+            sampleRates.put(routeKey(sampling.getMethod(), sampling.getPattern()), sampling.getRate());
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, response, start));
+            } else {
+                logRequest(request, response, start);
+            }
+        }
+    }
+
+    private void logRequest(HttpServletRequest request, HttpServletResponse response, long start) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        String route = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        int status = response.getStatus();
+        if (!isSampled(request.getMethod(), route, status, elapsed)) {
+            return;
+        }
+        StringBuilder line = new StringBuilder(160)
+                .append("method=").append(request.getMethod())
+                .append(" route=").append(route != null ? route : "-")
+                .append(" uri=").append(request.getRequestURI())
+                .append(" status=").append(status)
+                .append(" duration_us=").append(TimeUnit.NANOSECONDS.toMicros(elapsed))
+                .append(" client=").append(request.getRemoteAddr());
+        log.info(line.toString());
+    }
+
+    private boolean isSampled(String method, String route, int status, long elapsedNanos) {
+        if (status >= 500 || elapsedNanos >= slowRequestThresholdNanos) {
+            return true;
+        }
+        double rate = route != null
+                ? sampleRates.getOrDefault(routeKey(method, route), defaultSampleRate)
+                : defaultSampleRate;
+        if (rate >= 1.0) {
+            return true;
+        }
+        return rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private static String routeKey(String method, String pattern) {
+        return method + ' ' + pattern;
+    }
+
+    /**
+     * Откладывает запись строки журнала до завершения асинхронной обработки запроса,
+     * чтобы в неё попали итоговый статус и полное время обработки.
+     */
+    private final class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long start;
+
+        private CompletionListener(HttpServletRequest request, HttpServletResponse response, long start) {
+            this.request = request;
+            this.response = response;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            logRequest(request, response, start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
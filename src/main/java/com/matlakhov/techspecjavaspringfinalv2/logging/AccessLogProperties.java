@@ -0,0 +1,63 @@
+package com.matlakhov.techspecjavaspringfinalv2.logging;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки журнала доступа ({@code app.access-log.*}).
+ * <p>
+ * Пример выборочного логирования эндпоинта:
+ * <pre>
+ * app.access-log.sampling[0].method=GET
+ * app.access-log.sampling[0].pattern=/users/{id}
+ * app.access-log.sampling[0].rate=0.05
+ * </pre>
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.access-log")
+public class AccessLogProperties {
+
+    /**
+     * Включает фильтр, пишущий одну строку журнала доступа на запрос.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Доля логируемых запросов для эндпоинтов без собственного правила (от 0.0 до 1.0).
+     */
+    private double defaultSampleRate = 1.0;
+
+    /**
+     * Запросы дольше этого порога логируются всегда, независимо от выборки.
+     */
+    private long slowRequestThresholdMs = 1000;
+
+    /**
+     * Правила выборки для отдельных эндпоинтов.
+     */
+    private List<Sampling> sampling = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Sampling {
+        /**
+         * HTTP-метод, например {@code GET}.
+         */
+        private String method;
+
+        /**
+         * Шаблон пути в том виде, в котором он объявлен в контроллере, например {@code /users/{id}}.
+         */
+        private String pattern;
+
+        /**
+         * Доля логируемых запросов (от 0.0 до 1.0).
+         */
+        private double rate = 1.0;
+    }
+}
@@ -0,0 +1,215 @@
+package com.matlakhov.techspecjavaspringfinalv2.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный appender для Logback на основе кольцевого буфера без блокировок.
+ * <p>
+ * Потоки, пишущие в лог, только резервируют слот через CAS и кладут в него событие;
+ * форматирование и запись в вложенные appender'ы выполняет единственный фоновый поток.
+ * В отличие от стандартного {@code AsyncAppender}, при переполнении буфера событие
+ * отбрасывается, а не блокирует вызывающий поток. Количество отброшенных событий
+ * периодически сообщается через статус Logback.
+ * <p>
+ * Пример конфигурации:
+ * <pre>{@code
+ * <appender name="ASYNC" class="com.matlakhov.techspecjavaspringfinalv2.logging.RingBufferAsyncAppender">
+ *     <capacity>8192</capacity>
+ *     <appender-ref ref="CONSOLE"/>
+ * </appender>
+ * }</pre>
+ */
+public class RingBufferAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int SPINS_BEFORE_PARK = 100;
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private int capacity = 8192;
+    private long maxFlushTimeMillis = 1000;
+    private AtomicReferenceArray<ILoggingEvent> buffer;
+    private int mask;
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * Размер кольцевого буфера. Округляется вверх до степени двойки.
+     *
+     * @param capacity желаемое количество слотов
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Максимальное время ожидания выгрузки буфера при остановке appender'а.
+     *
+     * @param maxFlushTimeMillis время в миллисекундах
+     */
+    public void setMaxFlushTimeMillis(long maxFlushTimeMillis) {
+        this.maxFlushTimeMillis = maxFlushTimeMillis;
+    }
+
+    /**
+     * @return количество событий, отброшенных из-за переполнения буфера
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (capacity < 2) {
+            addError("Invalid capacity [" + capacity + "]");
+            return;
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        buffer = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        running = true;
+        worker = new Thread(this::drainLoop, "log-ring-buffer-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTimeMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            addWarn("Worker did not finish within " + maxFlushTimeMillis + " ms, "
+                    + (tail.get() - head.get()) + " events may be lost");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (!offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Резервирует слот в буфере и публикует в нём событие.
+     *
+     * @return false, если буфер заполнен
+     */
+    private boolean offer(ILoggingEvent event) {
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                buffer.lazySet((int) t & mask, event);
+                return true;
+            }
+        }
+    }
+
+    private void drainLoop() {
+        long reportedDrops = 0;
+        int idleSpins = 0;
+        while (running || head.get() != tail.get()) {
+            long h = head.get();
+            int index = (int) h & mask;
+            ILoggingEvent event = buffer.get(index);
+            if (event == null) {
+                // Либо буфер пуст, либо производитель ещё не успел опубликовать событие в слот.
+                if (++idleSpins < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(MAX_IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idleSpins = 0;
+            buffer.lazySet(index, null);
+            head.lazySet(h + 1);
+            dispatch(event);
+
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                addWarn("Ring buffer overflow, dropped " + (drops - reportedDrops) + " events");
+                reportedDrops = drops;
+            }
+        }
+    }
+
+    private void dispatch(ILoggingEvent event) {
+        try {
+            appenders.appendLoopOnAppenders(event);
+        } catch (RuntimeException e) {
+            addError("Failed to dispatch logging event", e);
+        }
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
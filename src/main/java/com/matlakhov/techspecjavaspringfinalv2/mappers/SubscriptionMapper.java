@@ -22,5 +22,6 @@ public interface SubscriptionMapper {
 
     @Mapping(target = "userEntity", ignore = true)
     @Mapping(target = "isDeleted", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
     SubscriptionEntity toEntity(SubscriptionDto subscriptionDto);
 }
@@ -29,6 +29,8 @@ public interface UserMapper {
      * @return UserEntity сущность пользователя
      */
     @Mapping(target = "isDeleted", ignore = true)
+    @Mapping(target = "deletedAt", ignore = true)
     @Mapping(target = "subscriptionEntities", ignore = true)
+    @Mapping(target = "activeSubscriptionCount", ignore = true)
     UserEntity toEntity(UserDto userDto);
 }
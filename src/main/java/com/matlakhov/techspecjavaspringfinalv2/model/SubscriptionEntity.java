@@ -9,10 +9,15 @@ import java.time.LocalDateTime;
 /**
  * Сущность, представляющая подписку на сервис.
  * Хранит информацию о подписке и связь с пользователем, который её оформил.
+ * <p>
+ * Равенство определяется идентификатором, а {@code toString} не включает пользователя,
+ * чтобы не загружать ленивую связь.
  */
 @Entity
 @Table(name = "subscriptions")
-@Data
+@Getter
+@Setter
+@ToString
 public class SubscriptionEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +29,7 @@ public class SubscriptionEntity {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
+    @ToString.Exclude
     private UserEntity userEntity;
 
     @Column(name = "is_deleted", nullable = false)
@@ -34,4 +40,26 @@ public class SubscriptionEntity {
 
     @Column(name = "end_date")
     private LocalDateTime endDate;
-}
\ No newline at end of file
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    /**
+     * Подписки равны, если у них один идентификатор; несохранённая подписка равна только самой себе.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof SubscriptionEntity other && id != null && id.equals(other.getId());
+    }
+
+    /**
+     * Не зависит от идентификатора, чтобы не меняться при сохранении сущности.
+     */
+    @Override
+    public int hashCode() {
+        return SubscriptionEntity.class.hashCode();
+    }
+}
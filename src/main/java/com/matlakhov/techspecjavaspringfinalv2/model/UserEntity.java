@@ -3,17 +3,25 @@ package com.matlakhov.techspecjavaspringfinalv2.model;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
+import java.time.LocalDateTime;
 import java.util.List;
 /**
  * Сущность, представляющая пользователя.
  * Хранит информацию о пользователе и его подписках.
+ * <p>
+ * Равенство определяется идентификатором, а {@code toString} не включает подписки:
+ * ни то, ни другое не загружает ленивую коллекцию.
  */
 @Entity
 @Table(name = "users")
-@Data
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 public class UserEntity {
     /**
@@ -48,10 +56,43 @@ public class UserEntity {
      * Связь один-ко-многим с сущностью Subscription, с каскадным удалением.
      */
     @JsonManagedReference
+    @ToString.Exclude
     @OneToMany(mappedBy = "userEntity", orphanRemoval = true)
     private List<SubscriptionEntity> subscriptionEntities;
 
     @Column(name = "is_deleted")
     private Boolean isDeleted;
-}
 
+    /**
+     * Момент мягкого удаления. Через {@code app.archive.retention-days} после него пользователь
+     * переносится в {@code users_archive}.
+     */
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    /**
+     * Количество неудалённых подписок. Изменяется только запросами {@code UserRepository} вместе с подписками,
+     * сохранение сущности его не перезаписывает.
+     */
+    @Column(name = "active_subscription_count", insertable = false, updatable = false)
+    private Long activeSubscriptionCount = 0L;
+
+    /**
+     * Пользователи равны, если у них один идентификатор; несохранённый пользователь равен только самому себе.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof UserEntity other && id != null && id.equals(other.getId());
+    }
+
+    /**
+     * Не зависит от идентификатора, чтобы не меняться при сохранении сущности.
+     */
+    @Override
+    public int hashCode() {
+        return UserEntity.class.hashCode();
+    }
+}
@@ -0,0 +1,35 @@
+package com.matlakhov.techspecjavaspringfinalv2.partitioning;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки обслуживания месячных секций таблицы {@code subscriptions} ({@code app.partitioning.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.partitioning")
+public class PartitioningProperties {
+
+    /**
+     * Включает создание будущих секций и отсоединение старых по расписанию.
+     */
+    private boolean enabled = true;
+
+    /**
+     * На сколько месяцев вперёд от текущего создавать секции.
+     */
+    private int monthsAhead = 3;
+
+    /**
+     * Секции старше этого количества месяцев отсоединяются, если в них не осталось действующих подписок.
+     * 0 - не отсоединять.
+     */
+    private int retentionMonths = 0;
+
+    /**
+     * Расписание обслуживания (cron).
+     */
+    private String cron = "0 0 3 * * *";
+}
@@ -0,0 +1,121 @@
+package com.matlakhov.techspecjavaspringfinalv2.partitioning;
+
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Обслуживание месячных секций таблицы {@code subscriptions} (секционирование по {@code start_date}).
+ * <p>
+ * При старте и по расписанию создаёт секции на {@code app.partitioning.months-ahead} месяцев вперёд
+ * (функция {@code ensure_subscription_partitions}), чтобы новые подписки не попадали в секцию по умолчанию.
+ * Если задан {@code app.partitioning.retention-months}, секции старше срока хранения, в которых не осталось
+ * действующих подписок и подписок, отменённых в пределах срока хранения, отсоединяются через {@code DETACH PARTITION} вместо массового {@code DELETE};
+ * отсоединённая таблица остаётся в базе под прежним именем без внешнего ключа на {@code users} и удаляется вручную.
+ * Статистику дней старше срока хранения сверка не пересчитывает (см. {@code SubscriptionReconciliationJob}).
+ * <p>
+ * {@code DETACH PARTITION CONCURRENTLY} недоступен, пока у таблицы есть секция по умолчанию, поэтому
+ * отсоединение выполняется обычным образом: это изменение только метаданных, но оно ненадолго берёт
+ * исключительную блокировку {@code subscriptions}. Чтобы не копить за собой очередь запросов,
+ * ожидание блокировки ограничено {@link #LOCK_TIMEOUT}; не дождавшаяся секция отсоединится в следующий запуск.
+ * При шардировании обслуживается каждый шард.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.partitioning", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionPartitionMaintenance {
+    private static final String PARTITION_PREFIX = "subscriptions_p";
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    static final String LOCK_TIMEOUT = "5s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardedQueryExecutor shardedQueries;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public SubscriptionPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                            PlatformTransactionManager transactionManager,
+                                            ShardedQueryExecutor shardedQueries,
+                                            PartitioningProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardedQueries = shardedQueries;
+        this.monthsAhead = properties.getMonthsAhead();
+        this.retentionMonths = properties.getRetentionMonths();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.partitioning.cron:0 0 3 * * *}")
+    public void maintain() {
+        shardedQueries.forEachShard(shard -> {
+            try {
+                createFuturePartitions(shard);
+                if (retentionMonths > 0) {
+                    detachExpiredPartitions(shard);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Обслуживание секций subscriptions на шарде {} не выполнено: {}", shard, e.getMessage());
+            }
+        });
+    }
+
+    private void createFuturePartitions(int shard) {
+        Integer created = jdbcTemplate.queryForObject("""
+                SELECT ensure_subscription_partitions(
+                           CAST(date_trunc('month', LOCALTIMESTAMP) AS DATE),
+                           CAST(date_trunc('month', LOCALTIMESTAMP) + make_interval(months => ?) AS DATE))
+                """, Integer.class, monthsAhead + 1);
+        if (created != null && created > 0) {
+            log.info("Создано {} секций subscriptions на шарде {}", created, shard);
+        }
+    }
+
+    private void detachExpiredPartitions(int shard) {
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname
+                  FROM pg_inherits i
+                  JOIN pg_class c ON c.oid = i.inhrelid
+                 WHERE i.inhparent = 'subscriptions'::regclass
+                   AND c.relname ~ '^subscriptions_p[0-9]{6}$'
+                 ORDER BY c.relname
+                """, String.class);
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_MONTH);
+            if (!month.isBefore(oldestKept)) {
+                break;
+            }
+            // Отмены отсоединяемых подписок должны приходиться на дни, которые сверка статистики уже не проверяет
+            Boolean hasLive = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition
+                    + " WHERE is_deleted = false OR end_date >= ?)", Boolean.class, oldestKept.atDay(1).atStartOfDay());
+            if (Boolean.TRUE.equals(hasLive)) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '" + LOCK_TIMEOUT + "'");
+                jdbcTemplate.execute("ALTER TABLE subscriptions DETACH PARTITION " + partition);
+                // Отсоединённая таблица сохраняет копию fk_subscriptions_user: без удаления ключа
+                // архивирование не смогло бы удалить пользователей с подписками этого месяца
+                List<String> foreignKeys = jdbcTemplate.queryForList(
+                        "SELECT conname FROM pg_constraint WHERE conrelid = CAST(? AS regclass) AND contype = 'f'",
+                        String.class, partition);
+                for (String foreignKey : foreignKeys) {
+                    jdbcTemplate.execute("ALTER TABLE " + partition + " DROP CONSTRAINT \"" + foreignKey + "\"");
+                }
+            });
+            log.info("Секция {} отсоединена от subscriptions на шарде {}", partition, shard);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.matlakhov.techspecjavaspringfinalv2.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр, ограничивающий частоту запросов каждого клиента до обработки контроллерами.
+ * <p>
+ * Клиент определяется по заголовку {@code app.rate-limit.api-key-header}, если ключ есть среди
+ * {@code app.rate-limit.api-keys}, а иначе - по IP-адресу.
+ * Для эндпоинтов из {@code app.rate-limit.limits} у клиента отдельная корзина маркеров на каждое правило,
+ * для остальных - одна общая (см. {@link TokenBucketRateLimiter}). Превысивший ограничение запрос сразу
+ * получает 429 с заголовком {@code Retry-After} (секунды до появления маркера) и дальше не обрабатывается.
+ * Фильтр стоит перед журналом доступа, чтобы отклонённые запросы стоили как можно меньше.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@ConditionalOnProperty(prefix = "app.rate-limit", name = "enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final byte[] TOO_MANY_REQUESTS =
+            "{\"error\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final String apiKeyHeader;
+    private final Set<String> apiKeys;
+    private final List<Rule> rules = new ArrayList<>();
+    private final TokenBucketRateLimiter defaultLimiter;
+
+    public RateLimitFilter(RateLimitProperties properties) {
+        this.apiKeyHeader = properties.getApiKeyHeader();
+        this.apiKeys = Set.copyOf(properties.getApiKeys());
+        long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(properties.getIdleTimeoutSeconds());
+        for (RateLimitProperties.Limit limit : properties.getLimits()) {
+            rules.add(new Rule(limit.getMethod(), PathPatternParser.defaultInstance.parse(limit.getPattern()),
+                    new TokenBucketRateLimiter(limit.getCapacity(), limit.getRefillPerSecond(),
+                            idleTimeoutNanos, properties.getStripes())));
+        }
+        this.defaultLimiter = properties.getDefaultCapacity() > 0
+                ? new TokenBucketRateLimiter(properties.getDefaultCapacity(), properties.getDefaultRefillPerSecond(),
+                idleTimeoutNanos, properties.getStripes())
+                : null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        TokenBucketRateLimiter limiter = limiterFor(request);
+        if (limiter != null) {
+            long wait = limiter.tryAcquire(clientOf(request), System.nanoTime());
+            if (wait > 0) {
+                reject(response, wait);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        // Префикс не даёт ключу совпасть с IP-адресом другого клиента
+        return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : request.getRemoteAddr();
+    }
+
+    private TokenBucketRateLimiter limiterFor(HttpServletRequest request) {
+        if (rules.isEmpty()) {
+            return defaultLimiter;
+        }
+        PathContainer path = RequestPath.parse(request.getRequestURI(), request.getContextPath())
+                .pathWithinApplication();
+        String method = request.getMethod();
+        for (Rule rule : rules) {
+            if ((rule.method() == null || rule.method().equalsIgnoreCase(method)) && rule.pattern().matches(path)) {
+                return rule.limiter();
+            }
+        }
+        return defaultLimiter;
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(TOO_MANY_REQUESTS.length);
+        response.getOutputStream().write(TOO_MANY_REQUESTS);
+    }
+
+    private record Rule(String method, PathPattern pattern, TokenBucketRateLimiter limiter) {
+    }
+}
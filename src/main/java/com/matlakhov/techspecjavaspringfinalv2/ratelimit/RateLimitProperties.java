@@ -0,0 +1,93 @@
+package com.matlakhov.techspecjavaspringfinalv2.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Настройки ограничения частоты запросов ({@code app.rate-limit.*}).
+ * <p>
+ * Пример отдельного ограничения для эндпоинта:
+ * <pre>
+ * app.rate-limit.limits[0].method=GET
+ * app.rate-limit.limits[0].pattern=/users/{id}
+ * app.rate-limit.limits[0].capacity=20
+ * app.rate-limit.limits[0].refill-per-second=10
+ * </pre>
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Включает фильтр, ограничивающий частоту запросов каждого клиента.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Заголовок с ключом API, по которому различаются клиенты из {@link #apiKeys}.
+     */
+    private String apiKeyHeader = "X-API-Key";
+
+    /**
+     * Известные ключи API, каждый со своими корзинами. Запрос с другим ключом или без ключа ограничивается
+     * по IP-адресу, поэтому случайные ключи не обходят ограничение и не раздувают хранилище состояний.
+     */
+    private Set<String> apiKeys = new HashSet<>();
+
+    /**
+     * Сколько запросов подряд клиент может сделать к эндпоинтам без собственного ограничения.
+     * 0 - такие эндпоинты не ограничиваются.
+     */
+    private int defaultCapacity = 200;
+
+    /**
+     * Сколько запросов в секунду клиент может делать к эндпоинтам без собственного ограничения.
+     */
+    private double defaultRefillPerSecond = 100;
+
+    /**
+     * Через сколько секунд без запросов состояние клиента удаляется.
+     */
+    private long idleTimeoutSeconds = 300;
+
+    /**
+     * Количество независимых полос хранилища состояний клиентов (округляется вверх до степени двойки).
+     */
+    private int stripes = 64;
+
+    /**
+     * Ограничения для отдельных эндпоинтов; применяется первое подходящее.
+     */
+    private List<Limit> limits = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Limit {
+        /**
+         * HTTP-метод, например {@code GET}; если не задан - любой.
+         */
+        private String method;
+
+        /**
+         * Шаблон пути в том виде, в котором он объявлен в контроллере, например {@code /users/{id}}.
+         */
+        private String pattern;
+
+        /**
+         * Сколько запросов подряд допускается.
+         */
+        private int capacity;
+
+        /**
+         * Сколько запросов в секунду допускается в среднем.
+         */
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,111 @@
+package com.matlakhov.techspecjavaspringfinalv2.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Корзины маркеров для множества клиентов с одинаковыми ограничениями.
+ * <p>
+ * Корзина клиента вмещает {@code capacity} маркеров и пополняется на {@code refillPerSecond} в секунду,
+ * каждый запрос забирает один маркер. Состояние корзины - одно число, «теоретическое время прихода»
+ * следующего запроса (алгоритм GCRA, эквивалентный корзине маркеров), и меняется одним CAS без блокировок.
+ * <p>
+ * Корзины разложены по {@code stripes} независимым {@link ConcurrentHashMap} по хешу ключа клиента.
+ * Простаивающие дольше {@code idleTimeout} корзины (они уже полностью пополнены) удаляются лениво:
+ * раз в {@code idleTimeout} очередной запрос, попавший в полосу, просматривает её. Удалённая корзина
+ * неотличима от новой, поэтому удаление не меняет ограничений.
+ */
+public final class TokenBucketRateLimiter {
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final long idleTimeoutNanos;
+    private final ConcurrentHashMap<String, Bucket>[] stripes;
+    private final AtomicLongArray nextSweep;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketRateLimiter(int capacity, double refillPerSecond, long idleTimeoutNanos, int stripes) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate limit capacity and refill rate must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / refillPerSecond));
+        this.burstNanos = emissionIntervalNanos * capacity;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.nextSweep = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Забирает маркер из корзины клиента.
+     *
+     * @param client ключ клиента
+     * @param now    текущее время {@link System#nanoTime()}
+     * @return 0, если запрос разрешён, иначе через сколько наносекунд появится маркер
+     */
+    public long tryAcquire(String client, long now) {
+        int h = client.hashCode();
+        int stripe = (h ^ (h >>> 16)) & mask;
+        ConcurrentHashMap<String, Bucket> buckets = stripes[stripe];
+        sweepIfDue(stripe, buckets, now);
+
+        Bucket bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(client, key -> new Bucket(now));
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + emissionIntervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return количество корзин, ещё не удалённых как простаивающие
+     */
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, Bucket> buckets : stripes) {
+            size += buckets.size();
+        }
+        return size;
+    }
+
+    private void sweepIfDue(int stripe, ConcurrentHashMap<String, Bucket> buckets, long now) {
+        long due = nextSweep.get(stripe);
+        if (due == 0) {
+            nextSweep.compareAndSet(stripe, 0, now + idleTimeoutNanos);
+            return;
+        }
+        if (now - due < 0 || !nextSweep.compareAndSet(stripe, due, now + idleTimeoutNanos)) {
+            return;
+        }
+        long idleBefore = now - idleTimeoutNanos;
+        buckets.forEach((client, bucket) -> {
+            if (bucket.get() - idleBefore <= 0) {
+                buckets.remove(client, bucket);
+            }
+        });
+    }
+
+    /**
+     * Теоретическое время прихода следующего запроса: корзина полна, если оно не позже текущего.
+     */
+    private static final class Bucket extends AtomicLong {
+        private Bucket(long now) {
+            super(now);
+        }
+    }
+}
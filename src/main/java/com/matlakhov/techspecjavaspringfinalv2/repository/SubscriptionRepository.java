@@ -3,10 +3,12 @@ package com.matlakhov.techspecjavaspringfinalv2.repository;
 import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 /**
  * Репозиторий для работы с сущностью Subscription.
@@ -21,13 +23,17 @@ import java.util.List;
  */
 public interface SubscriptionRepository extends JpaRepository<SubscriptionEntity, Long> {
 
-    @Query("SELECT s FROM SubscriptionEntity s WHERE s.userEntity.id = :userId AND (s.endDate IS NULL OR s.endDate > :now) AND s.isDeleted = false")
+    /**
+     * Условие {@code startDate <= :now} позволяет планировщику не читать секции будущих месяцев.
+     */
+    @Query("SELECT s FROM SubscriptionEntity s WHERE s.userEntity.id = :userId AND s.startDate <= :now AND (s.endDate IS NULL OR s.endDate > :now) AND s.isDeleted = false")
     List<SubscriptionEntity> findByUserEntityId(Long userId, @Param("now") LocalDateTime now);
 
     @Query("""
             SELECT s.serviceName, COUNT(s) 
               FROM SubscriptionEntity s 
              WHERE s.serviceName IS NOT NULL AND s.serviceName <> '' 
+               AND s.startDate <= :now
                AND (s.endDate IS NULL OR s.endDate > :now) 
                AND s.isDeleted = false 
           GROUP BY s.serviceName 
@@ -36,4 +42,33 @@ public interface SubscriptionRepository extends JpaRepository<SubscriptionEntity
     List<Object[]> findTopSubscriptions(@Param("now") LocalDateTime now, Pageable pageable);
 
     boolean existsByUserEntityIdAndServiceName(Long userId, String serviceName);
+
+    @Query("SELECT s.userEntity.id, s.serviceName FROM SubscriptionEntity s WHERE s.userEntity.id IN :userIds")
+    List<Object[]> findServiceNamesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Находит неудалённые подписки нескольких пользователей одним запросом, не создавая сущностей.
+     *
+     * @param userIds идентификаторы пользователей
+     * @return подписки в порядке идентификаторов
+     */
+    @Query("SELECT new com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRow("
+            + "s.userEntity.id, s.id, s.serviceName, s.startDate, s.endDate) "
+            + "FROM SubscriptionEntity s WHERE s.userEntity.id IN :userIds AND s.isDeleted = false ORDER BY s.id")
+    List<SubscriptionRow> findActiveRowsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Помечает подписку удалённой, если она ещё не удалена. Проверка и изменение выполняются одним запросом,
+     * поэтому из нескольких одновременных удалений одной подписки строку изменяет только одно.
+     * Условие по {@code start_date} позволяет планировщику читать одну секцию.
+     *
+     * @param id        идентификатор подписки
+     * @param startDate дата начала подписки
+     * @param now       время удаления, оно же дата окончания
+     * @return 1, если подписка помечена удалённой, 0, если она уже удалена
+     */
+    @Modifying
+    @Query(value = "UPDATE subscriptions SET is_deleted = true, end_date = :now, deleted_at = :now "
+            + "WHERE id = :id AND start_date = :startDate AND is_deleted = false", nativeQuery = true)
+    int markDeleted(@Param("id") Long id, @Param("startDate") LocalDateTime startDate, @Param("now") LocalDateTime now);
 }
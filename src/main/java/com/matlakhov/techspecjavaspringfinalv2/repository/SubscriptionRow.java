@@ -0,0 +1,22 @@
+package com.matlakhov.techspecjavaspringfinalv2.repository;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка подписки с идентификатором пользователя: проекция запросов {@link SubscriptionRepository},
+ * не создающая {@code SubscriptionEntity}.
+ */
+public record SubscriptionRow(Long userId, Long id, String serviceName, LocalDateTime startDate,
+                              LocalDateTime endDate) {
+
+    public SubscriptionDto toDto() {
+        SubscriptionDto dto = new SubscriptionDto();
+        dto.setId(id);
+        dto.setServiceName(serviceName);
+        dto.setStartDate(startDate);
+        dto.setEndDate(endDate);
+        return dto;
+    }
+}
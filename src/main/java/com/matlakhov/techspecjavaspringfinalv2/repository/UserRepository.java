@@ -2,9 +2,12 @@ package com.matlakhov.techspecjavaspringfinalv2.repository;
 
 import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -37,4 +40,58 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
      */
     @Query("SELECT u FROM UserEntity u LEFT JOIN FETCH u.subscriptionEntities s WHERE u.id = :id AND (s.id IS NULL OR s.isDeleted = false)")
     Optional<UserEntity> findByIdWithSubscriptions(@Param("id") Long id);
-}
\ No newline at end of file
+
+    /**
+     * Находит строку пользователя по ID без подписок и без создания сущности.
+     *
+     * @param id идентификатор пользователя
+     * @return Optional со строкой пользователя
+     */
+    @Query("SELECT new com.matlakhov.techspecjavaspringfinalv2.repository.UserRow(u.id, u.username, u.email, u.isDeleted) "
+            + "FROM UserEntity u WHERE u.id = :id")
+    Optional<UserRow> findRowById(@Param("id") Long id);
+
+    /**
+     * Находит строку пользователя по ID вместе с количеством неудалённых подписок из {@code active_subscription_count}.
+     *
+     * @param id идентификатор пользователя
+     * @return Optional со строкой пользователя и количеством подписок
+     */
+    @Query("SELECT new com.matlakhov.techspecjavaspringfinalv2.repository.UserRow(u.id, u.username, u.email, u.isDeleted, "
+            + "u.activeSubscriptionCount) FROM UserEntity u WHERE u.id = :id")
+    Optional<UserRow> findRowWithSubscriptionCountById(@Param("id") Long id);
+
+    /**
+     * Находит строки пользователей по списку ID одним запросом, не создавая сущностей.
+     *
+     * @param ids идентификаторы пользователей
+     * @return найденные строки с количеством неудалённых подписок в произвольном порядке
+     */
+    @Query("SELECT new com.matlakhov.techspecjavaspringfinalv2.repository.UserRow(u.id, u.username, u.email, u.isDeleted, "
+            + "u.activeSubscriptionCount) FROM UserEntity u WHERE u.id IN :ids")
+    List<UserRow> findRowsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Увеличивает количество неудалённых подписок пользователя, если оно меньше {@code limit}.
+     * Проверка и увеличение выполняются одним запросом, строка пользователя блокируется до конца транзакции.
+     *
+     * @param id    идентификатор пользователя
+     * @param limit наибольшее допустимое количество подписок; 0 - без ограничения
+     * @return 1, если счётчик увеличен, 0, если лимит исчерпан или пользователя нет
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET active_subscription_count = active_subscription_count + 1 "
+            + "WHERE id = :id AND (:limit <= 0 OR active_subscription_count < :limit)", nativeQuery = true)
+    int incrementActiveSubscriptionCount(@Param("id") Long id, @Param("limit") long limit);
+
+    /**
+     * Уменьшает количество неудалённых подписок пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @return количество изменённых строк
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET active_subscription_count = active_subscription_count - 1 "
+            + "WHERE id = :id AND active_subscription_count > 0", nativeQuery = true)
+    int decrementActiveSubscriptionCount(@Param("id") Long id);
+}
@@ -0,0 +1,13 @@
+package com.matlakhov.techspecjavaspringfinalv2.repository;
+
+/**
+ * Строка пользователя без связанных сущностей: проекция запросов {@link UserRepository}, не создающая {@code UserEntity}.
+ *
+ * @param subscriptionCount количество неудалённых подписок; {@code null}, если запрос его не считает
+ */
+public record UserRow(Long id, String username, String email, Boolean isDeleted, Long subscriptionCount) {
+
+    public UserRow(Long id, String username, String email, Boolean isDeleted) {
+        this(id, username, email, isDeleted, null);
+    }
+}
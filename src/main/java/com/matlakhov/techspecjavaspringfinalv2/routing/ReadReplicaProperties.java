@@ -0,0 +1,69 @@
+package com.matlakhov.techspecjavaspringfinalv2.routing;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки чтения с реплик ({@code app.datasource.read-replicas.*}).
+ * Основной источник данных по-прежнему настраивается через {@code spring.datasource.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.datasource.read-replicas")
+public class ReadReplicaProperties {
+
+    /**
+     * Направлять транзакции {@code readOnly = true} на реплики.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Реплики, между которыми чтение распределяется по кругу.
+     */
+    private List<Node> nodes = new ArrayList<>();
+
+    /**
+     * Период проверки доступности реплик.
+     */
+    private long healthCheckIntervalMs = 5000;
+
+    /**
+     * Сколько после изменения данных пользователя его чтения идут на основной источник (0 - отключено).
+     * Защищает от чтения устаревших данных из-за задержки репликации.
+     */
+    private long readYourWritesWindowMs = 0;
+
+    /**
+     * Размер пула соединений каждой реплики.
+     */
+    private int maximumPoolSize = 10;
+
+    /**
+     * Максимальное ожидание соединения с реплики; по его истечении реплика исключается из чтения
+     * до следующей проверки, а запрос выполняется на основной базе.
+     */
+    private long connectionTimeoutMs = 2000;
+
+    @Getter
+    @Setter
+    public static class Node {
+        /**
+         * JDBC URL реплики.
+         */
+        private String url;
+
+        /**
+         * Имя пользователя; по умолчанию {@code spring.datasource.username}.
+         */
+        private String username;
+
+        /**
+         * Пароль; по умолчанию {@code spring.datasource.password}.
+         */
+        private String password;
+    }
+}
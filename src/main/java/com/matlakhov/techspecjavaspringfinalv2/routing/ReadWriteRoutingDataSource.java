@@ -0,0 +1,129 @@
+package com.matlakhov.techspecjavaspringfinalv2.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник данных, направляющий транзакции только для чтения на реплики, а остальные - на основную базу.
+ * <p>
+ * Реплики выбираются по кругу; недоступные реплики пропускаются до следующей успешной проверки.
+ * Если доступных реплик нет, чтение выполняется на основной базе. Решение принимается в момент получения
+ * физического соединения, поэтому источник должен быть обёрнут в
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: тогда признак
+ * {@code readOnly} транзакции уже известен к первому запросу.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements DisposableBean {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                      ReadYourWritesTracker readYourWritesTracker) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas.size());
+        for (DataSource replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routeToReplica()) {
+            return primary.getConnection();
+        }
+        int count = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.markHealthy(false, e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    private boolean routeToReplica() {
+        return !replicas.isEmpty()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !readYourWritesTracker.isWithinWindow(UserRoutingContext.currentUserId());
+    }
+
+    /**
+     * Проверяет доступность реплик и возвращает восстановившиеся в ротацию.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.read-replicas.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.markHealthy(connection.isValid(VALIDATION_TIMEOUT_SECONDS), null);
+            } catch (SQLException e) {
+                replica.markHealthy(false, e);
+            }
+        }
+    }
+
+    /**
+     * @return количество реплик, доступных для чтения
+     */
+    public int healthyReplicaCount() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private void markHealthy(boolean healthy, SQLException cause) {
+            if (this.healthy == healthy) {
+                return;
+            }
+            this.healthy = healthy;
+            if (healthy) {
+                log.info("Реплика {} снова доступна для чтения", dataSource);
+            } else {
+                log.warn("Реплика {} исключена из чтения: {}", dataSource,
+                        cause != null ? cause.getMessage() : "проверка соединения не пройдена");
+            }
+        }
+    }
+}
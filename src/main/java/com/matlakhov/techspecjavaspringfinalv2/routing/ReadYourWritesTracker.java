@@ -0,0 +1,68 @@
+package com.matlakhov.techspecjavaspringfinalv2.routing;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запоминает пользователей, данные которых недавно изменились.
+ * <p>
+ * После фиксации изменения пользователя (или его подписок) в течение заданного окна чтения
+ * этого пользователя направляются на основной источник данных, а не на реплику.
+ */
+public class ReadYourWritesTracker {
+    private final long windowNanos;
+    private final ConcurrentHashMap<Long, Long> deadlines = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long windowMs) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        markWritten(event.userId());
+    }
+
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        markWritten(event.userId());
+    }
+
+    public void markWritten(Long userId) {
+        if (windowNanos > 0 && userId != null) {
+            deadlines.put(userId, System.nanoTime() + windowNanos);
+        }
+    }
+
+    /**
+     * @param userId идентификатор пользователя (может быть {@code null})
+     * @return true, если данные пользователя изменялись в пределах окна
+     */
+    public boolean isWithinWindow(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long deadline = deadlines.get(userId);
+        if (deadline == null) {
+            return false;
+        }
+        if (deadline - System.nanoTime() > 0) {
+            return true;
+        }
+        deadlines.remove(userId, deadline);
+        return false;
+    }
+
+    /**
+     * Удаляет истёкшие записи пользователей, которых после изменения больше не читали.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.read-replicas.health-check-interval-ms:5000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        deadlines.values().removeIf(deadline -> deadline - now <= 0);
+    }
+}
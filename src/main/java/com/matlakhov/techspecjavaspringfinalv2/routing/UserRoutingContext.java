@@ -0,0 +1,29 @@
+package com.matlakhov.techspecjavaspringfinalv2.routing;
+
+/**
+ * Идентификатор пользователя, к которому относится текущий запрос.
+ * <p>
+ * Заполняется {@link UserRoutingInterceptor} из переменной пути {@code {id}} и используется
+ * слоем доступа к данным для выбора источника данных. Значение привязано к потоку обработки запроса.
+ */
+public final class UserRoutingContext {
+    private static final ThreadLocal<Long> CURRENT_USER_ID = new ThreadLocal<>();
+
+    private UserRoutingContext() {
+    }
+
+    public static void bind(Long userId) {
+        CURRENT_USER_ID.set(userId);
+    }
+
+    /**
+     * @return идентификатор пользователя текущего запроса или {@code null}, если он не определён
+     */
+    public static Long currentUserId() {
+        return CURRENT_USER_ID.get();
+    }
+
+    public static void clear() {
+        CURRENT_USER_ID.remove();
+    }
+}
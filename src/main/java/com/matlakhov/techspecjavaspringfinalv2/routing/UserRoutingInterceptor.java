@@ -0,0 +1,43 @@
+package com.matlakhov.techspecjavaspringfinalv2.routing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Привязывает идентификатор пользователя из переменной пути {@code {id}} (эндпоинты {@code /users/{id}/**})
+ * к {@link UserRoutingContext} на время обработки запроса.
+ */
+public class UserRoutingInterceptor implements AsyncHandlerInterceptor {
+    private static final String USER_ID_VARIABLE = "id";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String userId = variables != null ? variables.get(USER_ID_VARIABLE) : null;
+        if (userId != null) {
+            try {
+                UserRoutingContext.bind(Long.valueOf(userId));
+            } catch (NumberFormatException e) {
+                // Некорректный id отклонит сам контроллер при преобразовании параметра
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        UserRoutingContext.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Обработка продолжится в другом потоке; afterCompletion в этом потоке не вызывается
+        UserRoutingContext.clear();
+    }
+}
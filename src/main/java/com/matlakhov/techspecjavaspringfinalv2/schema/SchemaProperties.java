@@ -0,0 +1,20 @@
+package com.matlakhov.techspecjavaspringfinalv2.schema;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки проверки версии схемы при старте ({@code app.schema.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.schema")
+public class SchemaProperties {
+
+    /**
+     * Проверять одним запросом, что к базе применены все миграции сборки, и не запускать старт иначе.
+     * Используется вместе с {@code spring.liquibase.enabled=false}, когда миграции выполняет отдельный запуск.
+     */
+    private boolean verify = false;
+}
@@ -0,0 +1,147 @@
+package com.matlakhov.techspecjavaspringfinalv2.schema;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Ожидаемая версия схемы: changeSet-ы changelog-а Liquibase, которые должны быть применены к базе.
+ * <p>
+ * ChangeSet определяется ключом {@code файл::id::автор} - так же, как строка таблицы {@code databasechangelog}.
+ * Отпечаток - md5 отсортированных ключей, записанных через перевод строки.
+ * <p>
+ * Список вычисляется при сборке ({@link #main}) и кладётся в {@value #RESOURCE}, поэтому при запуске
+ * changelog не разбирается. Если ресурса нет (запуск без сборки Maven, например из IDE), список
+ * вычисляется из changelog-а на classpath. Changelog разбирается без Liquibase: учитываются {@code include}
+ * мастер-файла и {@code changeSet} включённых в него файлов.
+ */
+public final class SchemaVersion {
+    public static final String RESOURCE = "db/schema-version.txt";
+    static final String MASTER_CHANGELOG = "db/changelog/db.changelog-master.xml";
+
+    private final List<String> changeSets;
+    private final String fingerprint;
+
+    SchemaVersion(List<String> changeSets) {
+        List<String> sorted = new ArrayList<>(changeSets);
+        sorted.sort(null);
+        this.changeSets = List.copyOf(sorted);
+        this.fingerprint = fingerprintOf(this.changeSets);
+    }
+
+    /**
+     * Записывает список changeSet-ов в каталог классов сборки: {@code SchemaVersion <target/classes>}.
+     */
+    public static void main(String[] args) throws IOException {
+        Path classes = Path.of(args[0]);
+        SchemaVersion version = fromChangelog(resource -> Files.newInputStream(classes.resolve(resource)));
+        Path target = classes.resolve(RESOURCE);
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, String.join("\n", version.changeSets) + "\n", StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return версия схемы, с которой собрано приложение
+     */
+    public static SchemaVersion current() {
+        ClassLoader classLoader = SchemaVersion.class.getClassLoader();
+        try (InputStream in = classLoader.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                return fromChangelog(resource -> {
+                    InputStream changelog = classLoader.getResourceAsStream(resource);
+                    if (changelog == null) {
+                        throw new IOException("Changelog not found on classpath: " + resource);
+                    }
+                    return changelog;
+                });
+            }
+            List<String> changeSets = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        changeSets.add(line.strip());
+                    }
+                }
+            }
+            return new SchemaVersion(changeSets);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read expected schema version", e);
+        }
+    }
+
+    static SchemaVersion fromChangelog(ResourceOpener opener) throws IOException {
+        List<String> changeSets = new ArrayList<>();
+        String directory = MASTER_CHANGELOG.substring(0, MASTER_CHANGELOG.lastIndexOf('/') + 1);
+        NodeList includes = parse(opener, MASTER_CHANGELOG).getElementsByTagName("include");
+        for (int i = 0; i < includes.getLength(); i++) {
+            Element include = (Element) includes.item(i);
+            String file = include.getAttribute("file");
+            if (Boolean.parseBoolean(include.getAttribute("relativeToChangelogFile"))) {
+                file = directory + file;
+            }
+            NodeList items = parse(opener, file).getElementsByTagName("changeSet");
+            for (int j = 0; j < items.getLength(); j++) {
+                Element changeSet = (Element) items.item(j);
+                changeSets.add(file + "::" + changeSet.getAttribute("id") + "::" + changeSet.getAttribute("author"));
+            }
+        }
+        return new SchemaVersion(changeSets);
+    }
+
+    private static Document parse(ResourceOpener opener, String resource) throws IOException {
+        try (InputStream in = opener.open(resource)) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(in, resource);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Cannot parse changelog " + resource, e);
+        }
+    }
+
+    static String fingerprintOf(List<String> sortedChangeSets) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5")
+                    .digest(String.join("\n", sortedChangeSets).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return ключи changeSet-ов по возрастанию
+     */
+    public List<String> changeSets() {
+        return changeSets;
+    }
+
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    @FunctionalInterface
+    interface ResourceOpener {
+        InputStream open(String resource) throws IOException;
+    }
+}
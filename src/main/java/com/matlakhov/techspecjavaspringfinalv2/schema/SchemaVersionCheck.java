@@ -0,0 +1,80 @@
+package com.matlakhov.techspecjavaspringfinalv2.schema;
+
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Проверка версии схемы вместо миграций при старте ({@code app.schema.verify=true}).
+ * <p>
+ * Миграции выполняет отдельный запуск приложения с Liquibase, а экземпляры приложения с
+ * {@code spring.liquibase.enabled=false} не берут блокировку {@code databasechangeloglock} и не сверяют
+ * контрольные суммы changelog-а: после создания всех бинов они одним запросом к {@code databasechangelog}
+ * проверяют, что применены все changeSet-ы из {@link SchemaVersion} сборки. Если нет - старт прерывается.
+ * ChangeSet-ы новее сборки допускаются: при поэтапном обновлении миграции новой версии выполняются раньше,
+ * чем перезапускаются экземпляры старой. При шардировании проверяется каждый шард.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.schema", name = "verify", havingValue = "true")
+public class SchemaVersionCheck implements SmartInitializingSingleton {
+    private static final String CHANGE_SET_KEY = "filename || '::' || id || '::' || author";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardedQueryExecutor shardedQueries;
+    private final SchemaVersion expected;
+
+    @Autowired
+    public SchemaVersionCheck(JdbcTemplate jdbcTemplate, ShardedQueryExecutor shardedQueries) {
+        this(jdbcTemplate, shardedQueries, SchemaVersion.current());
+    }
+
+    SchemaVersionCheck(JdbcTemplate jdbcTemplate, ShardedQueryExecutor shardedQueries, SchemaVersion expected) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardedQueries = shardedQueries;
+        this.expected = expected;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        shardedQueries.forEachShard(this::verify);
+    }
+
+    private void verify(int shard) {
+        AppliedSchema applied;
+        try {
+            applied = jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) AS applied,
+                           COUNT(*) FILTER (WHERE %1$s = ANY (string_to_array(?, E'\\n'))) AS expected,
+                           md5(string_agg(%1$s, E'\\n' ORDER BY %1$s COLLATE "C")) AS fingerprint
+                      FROM databasechangelog
+                    """.formatted(CHANGE_SET_KEY),
+                    (rs, rowNum) -> new AppliedSchema(rs.getInt("applied"), rs.getInt("expected"),
+                            rs.getString("fingerprint")),
+                    String.join("\n", expected.changeSets()));
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Cannot read schema version on shard " + shard
+                    + "; run migrations with spring.liquibase.enabled=true first", e);
+        }
+        if (applied == null || applied.expected() < expected.changeSets().size()) {
+            int found = applied == null ? 0 : applied.expected();
+            throw new IllegalStateException("Schema on shard " + shard + " is behind the build: " + found + " of "
+                    + expected.changeSets().size() + " changesets applied (expected fingerprint "
+                    + expected.fingerprint() + "); run migrations with spring.liquibase.enabled=true first");
+        }
+        if (expected.fingerprint().equals(applied.fingerprint())) {
+            log.info("Схема шарда {} соответствует сборке ({})", shard, expected.fingerprint());
+        } else {
+            log.info("Схема шарда {} новее сборки: применено {} changeSet-ов из {} ожидаемых и {} новых",
+                    shard, applied.expected(), expected.changeSets().size(), applied.applied() - applied.expected());
+        }
+    }
+
+    record AppliedSchema(int applied, int expected, String fingerprint) {
+    }
+}
@@ -0,0 +1,219 @@
+package com.matlakhov.techspecjavaspringfinalv2.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Сжатое префиксное дерево (radix tree): цепочки узлов с единственным потомком хранятся одной меткой ребра.
+ * <p>
+ * Ключ может иметь несколько значений. Потомки узла упорядочены по первому символу метки,
+ * поэтому обход в глубину перечисляет ключи в лексикографическом порядке.
+ * Класс не потокобезопасен: синхронизацию обеспечивает вызывающий.
+ *
+ * @param <V> тип значения
+ */
+public final class PrefixTrie<V> {
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private final Node root = new Node("");
+    private int size;
+
+    /**
+     * @return количество пар ключ-значение
+     */
+    public int size() {
+        return size;
+    }
+
+    public void put(String key, V value) {
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(position));
+                node.insertChild(-index - 1, leaf);
+                node = leaf;
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, position);
+            if (common < child.label.length()) {
+                // Ключ расходится с меткой ребра: разбиваем ребро промежуточным узлом
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.insertChild(0, child);
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        node.addValue(value);
+        size++;
+    }
+
+    /**
+     * @return false, если такой пары ключ-значение нет
+     */
+    public boolean remove(String key, V value) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.indexOf(key.charAt(position));
+            if (index < 0) {
+                return false;
+            }
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, position)) {
+                return false;
+            }
+            path.add(node);
+            node = child;
+            position += child.label.length();
+        }
+        if (!node.removeValue(value)) {
+            return false;
+        }
+        size--;
+        compact(path, node);
+        return true;
+    }
+
+    /**
+     * Перечисляет значения ключей, начинающихся с {@code prefix}, в лексикографическом порядке ключей,
+     * пока {@code consumer} возвращает true.
+     */
+    public void forEachWithPrefix(String prefix, Predicate<V> consumer) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.indexOf(prefix.charAt(position));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, position);
+            if (position + common < prefix.length() && common < child.label.length()) {
+                return;
+            }
+            node = child;
+            position += common;
+        }
+        visit(node, consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean visit(Node node, Predicate<V> consumer) {
+        for (int i = 0; i < node.valueCount; i++) {
+            if (!consumer.test((V) node.values[i])) {
+                return false;
+            }
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            if (!visit(node.children[i], consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Удаляет опустевший узел и сливает узел с единственным потомком, чтобы дерево оставалось сжатым.
+     */
+    private void compact(List<Node> path, Node node) {
+        if (node == root || node.valueCount > 0) {
+            return;
+        }
+        Node parent = path.get(path.size() - 1);
+        if (node.childCount == 0) {
+            parent.removeChild(parent.indexOf(node.label.charAt(0)));
+            if (parent != root && parent.valueCount == 0 && parent.childCount == 1) {
+                parent.mergeWithOnlyChild();
+            }
+        } else if (node.childCount == 1) {
+            node.mergeWithOnlyChild();
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int limit = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < limit && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private String label;
+        private char[] firstChars = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        private Object[] values = NO_VALUES;
+        private int valueCount;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return индекс потомка или {@code -(точка вставки) - 1}
+         */
+        private int indexOf(char first) {
+            return Arrays.binarySearch(firstChars, 0, childCount, first);
+        }
+
+        private void insertChild(int index, Node child) {
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                children = Arrays.copyOf(children, capacity);
+                firstChars = Arrays.copyOf(firstChars, capacity);
+            }
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            System.arraycopy(firstChars, index, firstChars, index + 1, childCount - index);
+            children[index] = child;
+            firstChars[index] = child.label.charAt(0);
+            childCount++;
+        }
+
+        private void removeChild(int index) {
+            childCount--;
+            System.arraycopy(children, index + 1, children, index, childCount - index);
+            System.arraycopy(firstChars, index + 1, firstChars, index, childCount - index);
+            children[childCount] = null;
+        }
+
+        private void mergeWithOnlyChild() {
+            Node child = children[0];
+            label = label + child.label;
+            firstChars = child.firstChars;
+            children = child.children;
+            childCount = child.childCount;
+            values = child.values;
+            valueCount = child.valueCount;
+        }
+
+        private void addValue(Object value) {
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, Math.max(1, valueCount * 2));
+            }
+            values[valueCount++] = value;
+        }
+
+        private boolean removeValue(Object value) {
+            for (int i = 0; i < valueCount; i++) {
+                if (values[i].equals(value)) {
+                    valueCount--;
+                    System.arraycopy(values, i + 1, values, i, valueCount - i);
+                    values[valueCount] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.matlakhov.techspecjavaspringfinalv2.search;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.CachedEntity;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.LocalCache;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.LocalCacheLoader;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Префиксные деревья имён и email действующих пользователей в памяти ({@code app.users.search.trie-enabled}).
+ * <p>
+ * После старта приложения деревья загружаются в фоновом потоке (со всех шардов), затем обновляются событиями
+ * {@link UserChangedEvent} после фиксации транзакций: создание и изменение добавляют или заменяют пользователя,
+ * удаление убирает его. События, пришедшие во время загрузки, применяются после неё ({@link LocalCacheLoader});
+ * неудачная загрузка повторяется.
+ * Изменения на других узлах приходят через {@link LocalCache}: пользователь перечитывается из базы,
+ * а после потери уведомлений деревья загружаются заново.
+ * Ключи хранятся в нижнем регистре. Пока деревья не загружены (или выключены), {@link #isReady()} возвращает false.
+ */
+@Component
+public class UserPrefixIndex implements LocalCache {
+    private static final RowMapper<UserSummary> USER_SUMMARY = (rs, rowNum) ->
+            new UserSummary(rs.getLong("id"), rs.getString("username"), rs.getString("email"));
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+
+    private final boolean enabled;
+    private final int fetchSize;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardedQueryExecutor shardedQueries;
+    private final LocalCacheLoader loader;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private PrefixTrie<UserSummary> usernames = new PrefixTrie<>();
+    private PrefixTrie<UserSummary> emails = new PrefixTrie<>();
+    private final Map<Long, UserSummary> usersById = new HashMap<>();
+
+    public UserPrefixIndex(UserSearchProperties properties,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           ShardedQueryExecutor shardedQueries) {
+        this.enabled = properties.isTrieEnabled();
+        this.fetchSize = properties.getFetchSize();
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardedQueries = shardedQueries;
+        this.loader = new LocalCacheLoader("префиксное дерево пользователей", "user-prefix-index-loader", () -> {
+            clear();
+            shardedQueries.forEachShard(shard -> readOnlyTransaction.executeWithoutResult(status -> scan()));
+        }, this::size, INITIAL_RETRY_DELAY_MS, MAX_RETRY_DELAY_MS);
+    }
+
+    public boolean isReady() {
+        return loader.isReady();
+    }
+
+    /**
+     * Ищет пользователей, у которых имя, а затем email начинается с {@code prefix}
+     * (как {@link UserSearchService#search(String, int)} по базе).
+     *
+     * @param prefix префикс в нижнем регистре
+     * @param limit  максимальное количество результатов
+     */
+    public List<UserSummary> search(String prefix, int limit) {
+        Set<UserSummary> found = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            usernames.forEachWithPrefix(prefix, user -> {
+                found.add(user);
+                return found.size() < limit;
+            });
+            if (found.size() < limit) {
+                emails.forEachWithPrefix(prefix, user -> {
+                    found.add(user);
+                    return found.size() < limit;
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(found);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (enabled) {
+            loader.start();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (enabled) {
+            loader.apply(() -> apply(event));
+        }
+    }
+
+    @Override
+    public void evict(CachedEntity entity, long id) {
+        if (!enabled || entity != CachedEntity.USER) {
+            return;
+        }
+        Integer shard = ShardContext.currentShard();
+        loader.apply(() -> ShardContext.runOn(shard, () -> refresh(id)));
+    }
+
+    @Override
+    public void evictAll() {
+        if (enabled) {
+            loader.reload();
+        }
+    }
+
+    private void scan() {
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(
+                    "SELECT id, username, email FROM users WHERE is_deleted = false");
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, rs -> {
+            put(USER_SUMMARY.mapRow(rs, 0));
+        });
+    }
+
+    /**
+     * Перечитывает пользователя, изменённого на другом узле. Запрос идёт вне транзакции только для чтения:
+     * реплика могла ещё не получить изменение.
+     */
+    private void refresh(long userId) {
+        List<UserSummary> found = jdbcTemplate.query(
+                "SELECT id, username, email FROM users WHERE id = ? AND is_deleted = false", USER_SUMMARY, userId);
+        if (found.isEmpty()) {
+            remove(userId);
+        } else {
+            put(found.get(0));
+        }
+    }
+
+    private void apply(UserChangedEvent event) {
+        if (event.type() == ChangeType.DELETED) {
+            remove(event.userId());
+        } else {
+            put(new UserSummary(event.userId(), event.username(), event.email()));
+        }
+    }
+
+    private void put(UserSummary user) {
+        lock.writeLock().lock();
+        try {
+            removeKeys(usersById.put(user.id(), user));
+            usernames.put(key(user.username()), user);
+            emails.put(key(user.email()), user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return usersById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            usersById.clear();
+            usernames = new PrefixTrie<>();
+            emails = new PrefixTrie<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            removeKeys(usersById.remove(userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeKeys(UserSummary previous) {
+        if (previous != null) {
+            usernames.remove(key(previous.username()), previous);
+            emails.remove(key(previous.email()), previous);
+        }
+    }
+
+    static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
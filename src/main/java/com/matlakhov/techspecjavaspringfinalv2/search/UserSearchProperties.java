@@ -0,0 +1,30 @@
+package com.matlakhov.techspecjavaspringfinalv2.search;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки поиска пользователей по префиксу ({@code app.users.search.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.users.search")
+public class UserSearchProperties {
+
+    /**
+     * Максимальное количество результатов одного запроса; больший {@code limit} уменьшается до него.
+     */
+    private int maxLimit = 50;
+
+    /**
+     * Включает префиксное дерево имён и email действующих пользователей в памяти: при старте загружается
+     * из базы и затем обновляется событиями изменения пользователей. Поиск по нему не обращается к базе.
+     */
+    private boolean trieEnabled = false;
+
+    /**
+     * Количество строк, получаемых из базы за один раз при загрузке дерева.
+     */
+    private int fetchSize = 10_000;
+}
@@ -0,0 +1,65 @@
+package com.matlakhov.techspecjavaspringfinalv2.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Поиск действующих пользователей по префиксу имени или email.
+ * <p>
+ * Префикс задаётся диапазоном {@code [prefix, upperBound(prefix))} по {@code lower(...) COLLATE "C"}:
+ * в отличие от {@code LIKE ?} диапазон остаётся условием индекса и в общем плане подготовленного запроса.
+ * Индексы {@code idx_users_username_prefix} и {@code idx_users_email_prefix} по этому выражению обслуживают
+ * и условие, и сортировку, поэтому запрос читает из индекса только {@code limit} строк. Порядок - по кодам
+ * символов, как в {@link UserPrefixIndex}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserSearchRepository {
+    private static final RowMapper<UserSummary> USER_SUMMARY = (rs, rowNum) ->
+            new UserSummary(rs.getLong("id"), rs.getString("username"), rs.getString("email"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param prefix непустой префикс в нижнем регистре
+     * @return до {@code limit} пользователей в порядке имени
+     */
+    public List<UserSummary> findByUsernamePrefix(String prefix, int limit) {
+        return jdbcTemplate.query("""
+                SELECT id, username, email
+                  FROM users
+                 WHERE lower(username) COLLATE "C" >= ? AND lower(username) COLLATE "C" < ?
+                   AND is_deleted = false
+                 ORDER BY lower(username) COLLATE "C"
+                 LIMIT ?
+                """, USER_SUMMARY, prefix, upperBound(prefix), limit);
+    }
+
+    /**
+     * @param prefix непустой префикс в нижнем регистре
+     * @return до {@code limit} пользователей в порядке email
+     */
+    public List<UserSummary> findByEmailPrefix(String prefix, int limit) {
+        return jdbcTemplate.query("""
+                SELECT id, username, email
+                  FROM users
+                 WHERE lower(email) COLLATE "C" >= ? AND lower(email) COLLATE "C" < ?
+                   AND is_deleted = false
+                 ORDER BY lower(email) COLLATE "C"
+                 LIMIT ?
+                """, USER_SUMMARY, prefix, upperBound(prefix), limit);
+    }
+
+    /**
+     * @return наименьшая строка больше всех строк, начинающихся с {@code prefix}
+     */
+    static String upperBound(String prefix) {
+        int last = prefix.codePointBefore(prefix.length());
+        int next = last + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : last + 1;
+        return prefix.substring(0, prefix.length() - Character.charCount(last)) + Character.toString(next);
+    }
+}
@@ -0,0 +1,86 @@
+package com.matlakhov.techspecjavaspringfinalv2.search;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Поиск действующих пользователей по началу имени или email (подсказки при вводе).
+ * <p>
+ * Сначала возвращаются пользователи, имя которых начинается с префикса, в порядке имени, затем,
+ * если результатов меньше лимита, - пользователи, email которых начинается с префикса, в порядке email.
+ * Регистр не учитывается. Если загружено префиксное дерево {@link UserPrefixIndex}, поиск идёт по нему
+ * без обращения к базе, иначе - запросами {@link UserSearchRepository} (при шардировании - на всех шардах).
+ */
+@Service
+public class UserSearchService {
+    private final UserSearchRepository searchRepository;
+    private final UserPrefixIndex prefixIndex;
+    private final ShardedQueryExecutor shardedQueries;
+    private final int maxLimit;
+
+    public UserSearchService(UserSearchRepository searchRepository,
+                             UserPrefixIndex prefixIndex,
+                             ShardedQueryExecutor shardedQueries,
+                             UserSearchProperties properties) {
+        this.searchRepository = searchRepository;
+        this.prefixIndex = prefixIndex;
+        this.shardedQueries = shardedQueries;
+        this.maxLimit = properties.getMaxLimit();
+    }
+
+    /**
+     * @param prefix начало имени или email; пустой префикс ничего не находит
+     * @param limit  максимальное количество результатов, не больше {@code app.users.search.max-limit}
+     * @return пользователи без подписок
+     */
+    @Transactional(readOnly = true)
+    public List<UserDto> search(String prefix, int limit) {
+        String normalized = prefix != null ? UserPrefixIndex.key(prefix.strip()) : "";
+        int bounded = Math.max(1, Math.min(limit, maxLimit));
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<UserSummary> found = prefixIndex.isReady()
+                ? prefixIndex.search(normalized, bounded)
+                : searchDatabase(normalized, bounded);
+        return found.stream().map(UserSummary::toDto).toList();
+    }
+
+    private List<UserSummary> searchDatabase(String prefix, int limit) {
+        Set<UserSummary> found = new LinkedHashSet<>(
+                find(prefix, limit, searchRepository::findByUsernamePrefix, UserSummary::username));
+        if (found.size() < limit) {
+            for (UserSummary user : find(prefix, limit, searchRepository::findByEmailPrefix, UserSummary::email)) {
+                if (found.add(user) && found.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    private List<UserSummary> find(String prefix, int limit, PrefixQuery query, Function<UserSummary, String> key) {
+        if (!shardedQueries.isEnabled()) {
+            return query.find(prefix, limit);
+        }
+        return shardedQueries.onEveryShard(() -> query.find(prefix, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(user -> UserPrefixIndex.key(key.apply(user))))
+                .limit(limit)
+                .toList();
+    }
+
+    @FunctionalInterface
+    private interface PrefixQuery {
+        List<UserSummary> find(String prefix, int limit);
+    }
+}
@@ -0,0 +1,17 @@
+package com.matlakhov.techspecjavaspringfinalv2.search;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+
+/**
+ * Пользователь в результатах поиска: без подписок.
+ */
+public record UserSummary(Long id, String username, String email) {
+
+    public UserDto toDto() {
+        UserDto dto = new UserDto();
+        dto.setId(id);
+        dto.setUsername(username);
+        dto.setEmail(email);
+        return dto;
+    }
+}
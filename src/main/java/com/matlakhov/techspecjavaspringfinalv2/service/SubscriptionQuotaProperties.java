@@ -0,0 +1,20 @@
+package com.matlakhov.techspecjavaspringfinalv2.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Ограничения на подписки пользователя ({@code app.subscriptions.quota.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.subscriptions.quota")
+public class SubscriptionQuotaProperties {
+
+    /**
+     * Сколько неудалённых подписок может быть у одного пользователя; 0 - без ограничения.
+     * Проверяется по {@code users.active_subscription_count} тем же запросом, что увеличивает счётчик.
+     */
+    private long maxActivePerUser = 0;
+}
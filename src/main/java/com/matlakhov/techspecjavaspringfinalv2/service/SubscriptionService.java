@@ -1,18 +1,28 @@
 package com.matlakhov.techspecjavaspringfinalv2.service;
 
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnStore;
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnarSnapshot;
 import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
 import com.matlakhov.techspecjavaspringfinalv2.mappers.SubscriptionMapper;
 import com.matlakhov.techspecjavaspringfinalv2.exception.DuplicateResourceException;
 import com.matlakhov.techspecjavaspringfinalv2.exception.ResourceNotFoundException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.QuotaExceededException;
 import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
 import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
 import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRepository;
 import com.matlakhov.techspecjavaspringfinalv2.repository.UserRepository;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.time.LocalDateTime;
 
 /**
@@ -28,7 +38,19 @@ public class SubscriptionService {
     private final SubscriptionRepository subscriptionRepository;
     private final SubscriptionMapper subscriptionMapper;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardedQueryExecutor shardedQueries;
+    private final SubscriptionColumnarSnapshot columnarSnapshot;
+    private final SubscriptionQuotaProperties quotaProperties;
 
+    /**
+     * Добавляет подписку пользователю и в той же транзакции увеличивает {@code users.active_subscription_count}.
+     * Лимит подписок проверяется тем же запросом, что увеличивает счётчик, без подсчёта подписок.
+     *
+     * @throws ResourceNotFoundException  если пользователь не найден
+     * @throws DuplicateResourceException если подписка на сервис уже есть
+     * @throws QuotaExceededException     если у пользователя уже {@code max-active-per-user} подписок
+     */
     @Transactional
     public SubscriptionDto addSubscription(Long userId, SubscriptionDto dto) {
         UserEntity userEntity = userRepository.findById(userId)
@@ -37,6 +59,9 @@ public class SubscriptionService {
         if (subscriptionRepository.existsByUserEntityIdAndServiceName(userId, dto.getServiceName())) {
             throw new DuplicateResourceException("Subscription already exists");
         }
+        if (userRepository.incrementActiveSubscriptionCount(userId, quotaProperties.getMaxActivePerUser()) == 0) {
+            throw new QuotaExceededException("Active subscription limit reached");
+        }
 
         SubscriptionEntity sub = subscriptionMapper.toEntity(dto);
         sub.setUserEntity(userEntity);
@@ -44,6 +69,9 @@ public class SubscriptionService {
         sub.setStartDate(LocalDateTime.now());
         sub.setEndDate(null);
         SubscriptionEntity savedSubscription = subscriptionRepository.save(sub);
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(
+                ChangeType.CREATED, userId, savedSubscription.getId(), savedSubscription.getServiceName(),
+                savedSubscription.getStartDate(), savedSubscription.getEndDate()));
         return subscriptionMapper.toDto(savedSubscription);
     }
 
@@ -67,17 +95,50 @@ public class SubscriptionService {
         if (!sub.getUserEntity().getId().equals(userId)) {
             throw new ResourceNotFoundException("Subscription does not belong to user");
         }
-        sub.setIsDeleted(true);
-        sub.setEndDate(LocalDateTime.now());
-        subscriptionRepository.save(sub);
+        LocalDateTime now = LocalDateTime.now();
+        // Счётчик уменьшает только то удаление, которое действительно изменило строку
+        if (subscriptionRepository.markDeleted(subId, sub.getStartDate(), now) == 0) {
+            return;
+        }
+        userRepository.decrementActiveSubscriptionCount(userId);
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(
+                ChangeType.DELETED, userId, sub.getId(), sub.getServiceName(), sub.getStartDate(), now));
     }
 
     @Transactional(readOnly = true)
     public List<String> getTopSubscriptions() {
+        if (columnarSnapshot.isReady()) {
+            return columnarSnapshot.store()
+                    .topCurrent(3, SubscriptionColumnStore.toEpochSecond(LocalDateTime.now()));
+        }
+        if (shardedQueries.isEnabled()) {
+            return getTopSubscriptionsAcrossShards();
+        }
         return subscriptionRepository
                 .findTopSubscriptions(LocalDateTime.now(), PageRequest.of(0, 3))
                 .stream()
                 .map(row -> (String) row[0])
                 .toList();
     }
-}
\ No newline at end of file
+
+    /**
+     * Топ по всем шардам: каждый шард возвращает полные счётчики по сервисам,
+     * счётчики складываются, и из суммы выбираются три самых популярных сервиса.
+     */
+    private List<String> getTopSubscriptionsAcrossShards() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> totals = new HashMap<>();
+        for (List<Object[]> rows : shardedQueries.onEveryShard(
+                () -> subscriptionRepository.findTopSubscriptions(now, Pageable.unpaged()))) {
+            for (Object[] row : rows) {
+                totals.merge((String) row[0], ((Number) row[1]).longValue(), Long::sum);
+            }
+        }
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(3)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
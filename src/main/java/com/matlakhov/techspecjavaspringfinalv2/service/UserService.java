@@ -1,19 +1,37 @@
 package com.matlakhov.techspecjavaspringfinalv2.service;
 
+import com.matlakhov.techspecjavaspringfinalv2.archive.SoftDeleteArchiveRepository;
+import com.matlakhov.techspecjavaspringfinalv2.dto.PartialUserDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserBatchDto;
 import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserField;
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
 import com.matlakhov.techspecjavaspringfinalv2.mappers.SubscriptionMapper;
 import com.matlakhov.techspecjavaspringfinalv2.exception.DuplicateResourceException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.InvalidRequestException;
 import com.matlakhov.techspecjavaspringfinalv2.exception.ResourceNotFoundException;
 import com.matlakhov.techspecjavaspringfinalv2.mappers.UserMapper;
 import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
+import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRepository;
+import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRow;
 import com.matlakhov.techspecjavaspringfinalv2.repository.UserRepository;
+import com.matlakhov.techspecjavaspringfinalv2.repository.UserRow;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Сервис для управления пользователями системы.
@@ -32,8 +50,17 @@ import java.util.List;
 @RequiredArgsConstructor
 @Service
 public class UserService {
+    /**
+     * Сколько пользователей можно запросить у {@link #getUsers(List)} за раз.
+     */
+    public static final int MAX_MULTI_GET_IDS = 500;
+
     private final UserRepository userRepository;
+    private final SubscriptionRepository subscriptionRepository;
+    private final ShardedQueryExecutor shardedQueries;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SoftDeleteArchiveRepository archiveRepository;
 
 
     /**
@@ -61,6 +88,7 @@ public class UserService {
         UserEntity userEntity = userMapper.toEntity(dto);
         userEntity.setIsDeleted(false);
         UserEntity savedUser = userRepository.save(userEntity);
+        publishChange(ChangeType.CREATED, savedUser);
         return userMapper.toDto(savedUser);
     }
 
@@ -81,6 +109,119 @@ public class UserService {
         return userMapper.toDto(userEntity);
     }
 
+    /**
+     * Получает выбранные поля пользователя.
+     * <p>
+     * От набора полей зависит запрос: подписки загружаются и преобразуются только для
+     * {@link UserField#SUBSCRIPTIONS}, для {@link UserField#SUBSCRIPTION_COUNT} их количество берётся из счётчика
+     * в строке пользователя, иначе читается только строка пользователя.
+     *
+     * @param id     уникальный идентификатор пользователя
+     * @param fields запрошенные поля
+     * @return DTO пользователя, в котором заполнены только запрошенные поля
+     * @throws ResourceNotFoundException если пользователь не найден
+     */
+    @Transactional(readOnly = true)
+    public PartialUserDto getUser(Long id, Set<UserField> fields) {
+        PartialUserDto dto = new PartialUserDto();
+        if (fields.contains(UserField.SUBSCRIPTIONS)) {
+            UserDto user = getUser(id);
+            fillScalarFields(dto, fields, user.getId(), user.getUsername(), user.getEmail());
+            dto.setSubscriptions(user.getSubscriptions());
+            if (fields.contains(UserField.SUBSCRIPTION_COUNT)) {
+                dto.setSubscriptionCount((long) user.getSubscriptions().size());
+            }
+            return dto;
+        }
+
+        UserRow row = (fields.contains(UserField.SUBSCRIPTION_COUNT)
+                ? userRepository.findRowWithSubscriptionCountById(id)
+                : userRepository.findRowById(id))
+                .filter(user -> !Boolean.TRUE.equals(user.isDeleted()))
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        fillScalarFields(dto, fields, row.id(), row.username(), row.email());
+        if (fields.contains(UserField.SUBSCRIPTION_COUNT)) {
+            dto.setSubscriptionCount(row.subscriptionCount());
+        }
+        return dto;
+    }
+
+    private static void fillScalarFields(PartialUserDto dto, Set<UserField> fields,
+                                         Long id, String username, String email) {
+        if (fields.contains(UserField.ID)) {
+            dto.setId(id);
+        }
+        if (fields.contains(UserField.USERNAME)) {
+            dto.setUsername(username);
+        }
+        if (fields.contains(UserField.EMAIL)) {
+            dto.setEmail(email);
+        }
+    }
+
+    /**
+     * Получает нескольких пользователей с неудалёнными подписками.
+     * <p>
+     * Пользователи читаются одним запросом {@code IN}, их подписки - вторым, и группируются в памяти
+     * (при шардировании - по два запроса на каждом шарде). Повторяющиеся идентификаторы учитываются один раз.
+     * Результат собирается целиком: ответ не передаётся потоком, чтобы работало согласование формата по
+     * {@code Accept}, а его размер ограничен {@link #MAX_MULTI_GET_IDS}.
+     *
+     * @param ids идентификаторы пользователей, не больше {@link #MAX_MULTI_GET_IDS}
+     * @return найденные пользователи в порядке запроса и идентификаторы ненайденных или удалённых
+     * @throws InvalidRequestException если идентификаторов слишком много
+     */
+    @Transactional(readOnly = true)
+    public UserBatchDto getUsers(List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                requested.add(id);
+            }
+        }
+        if (requested.size() > MAX_MULTI_GET_IDS) {
+            throw new InvalidRequestException("Too many ids: at most " + MAX_MULTI_GET_IDS + " per request");
+        }
+
+        Map<Long, UserDto> found = new HashMap<>();
+        if (!requested.isEmpty()) {
+            List<Long> lookup = List.copyOf(requested);
+            shardedQueries.onEveryShard(() -> loadUsers(lookup)).forEach(found::putAll);
+        }
+        List<UserDto> users = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            UserDto user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new UserBatchDto(users, missing);
+    }
+
+    private Map<Long, UserDto> loadUsers(List<Long> ids) {
+        Map<Long, UserDto> users = new HashMap<>();
+        for (UserRow row : userRepository.findRowsByIds(ids)) {
+            if (!Boolean.TRUE.equals(row.isDeleted())) {
+                UserDto user = new UserDto();
+                user.setId(row.id());
+                user.setUsername(row.username());
+                user.setEmail(row.email());
+                user.setActiveSubscriptionCount(row.subscriptionCount());
+                user.setSubscriptions(new ArrayList<>());
+                users.put(row.id(), user);
+            }
+        }
+        if (!users.isEmpty()) {
+            for (SubscriptionRow row : subscriptionRepository.findActiveRowsByUserIds(users.keySet())) {
+                users.get(row.userId()).getSubscriptions().add(row.toDto());
+            }
+        }
+        return users;
+    }
+
     /**
      * Обновляет данные существующего пользователя.
      * <p>
@@ -111,6 +252,7 @@ public class UserService {
         }
 
         UserEntity updatedUser = userRepository.save(userEntity);
+        publishChange(ChangeType.UPDATED, updatedUser);
 
         return userMapper.toDto(updatedUser);
     }
@@ -126,7 +268,66 @@ public class UserService {
         UserEntity user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         user.setIsDeleted(true);
+        user.setDeletedAt(LocalDateTime.now());
         userRepository.save(user);
+        publishChange(ChangeType.DELETED, user);
+    }
+
+    /**
+     * Восстанавливает удалённого пользователя.
+     * <p>
+     * Пользователь, ещё не перенесённый в архив, снова становится действующим. Пользователь из архива
+     * возвращается в рабочую таблицу вместе со своими подписками в том состоянии, в котором они были перенесены.
+     * Для действующего пользователя ничего не меняется.
+     *
+     * @param id уникальный идентификатор пользователя
+     * @return DTO восстановленного пользователя
+     * @throws ResourceNotFoundException  если пользователя нет ни в рабочей таблице, ни в архиве
+     * @throws DuplicateResourceException если имя или email пользователя из архива уже заняты
+     */
+    @Transactional
+    public UserDto restoreUser(Long id) {
+        UserEntity userEntity = userRepository.findById(id).orElse(null);
+        if (userEntity != null) {
+            if (Boolean.TRUE.equals(userEntity.getIsDeleted())) {
+                userEntity.setIsDeleted(false);
+                userEntity.setDeletedAt(null);
+                userEntity = userRepository.save(userEntity);
+                publishChange(ChangeType.UPDATED, userEntity);
+            }
+            return userMapper.toDto(userEntity);
+        }
+
+        SoftDeleteArchiveRepository.ArchivedUser archived = archiveRepository.findArchivedUser(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        if (userRepository.existsByUsername(archived.username())) {
+            throw new DuplicateResourceException("Username already exists");
+        }
+        if (userRepository.existsByEmail(archived.email())) {
+            throw new DuplicateResourceException("Email already exists");
+        }
+        for (SoftDeleteArchiveRepository.RestoredSubscription sub : archiveRepository.restoreUser(id)) {
+            if (!sub.deleted()) {
+                eventPublisher.publishEvent(new SubscriptionChangedEvent(
+                        ChangeType.CREATED, id, sub.id(), sub.serviceName(), sub.startDate(), sub.endDate()));
+            }
+        }
+        UserEntity restored = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        publishChange(ChangeType.UPDATED, restored);
+        return userMapper.toDto(restored);
+    }
+
+    /**
+     * Публикует событие об изменении пользователя для слушателей вне сервиса
+     * (маршрутизация чтения, кэши и т.п.).
+     *
+     * @param type       вид изменения
+     * @param userEntity изменённый пользователь
+     */
+    private void publishChange(ChangeType type, UserEntity userEntity) {
+        eventPublisher.publishEvent(
+                new UserChangedEvent(type, userEntity.getId(), userEntity.getUsername(), userEntity.getEmail()));
     }
 
 
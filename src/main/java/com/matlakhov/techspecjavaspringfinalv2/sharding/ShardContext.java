@@ -0,0 +1,49 @@
+package com.matlakhov.techspecjavaspringfinalv2.sharding;
+
+/**
+ * Явно выбранный шард для текущего потока.
+ * <p>
+ * Используется там, где шард не следует из пользователя запроса: запросы ко всем шардам,
+ * миграции, фоновые задачи. Имеет приоритет над
+ * {@link com.matlakhov.techspecjavaspringfinalv2.routing.UserRoutingContext}.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static void bind(int shard) {
+        CURRENT_SHARD.set(shard);
+    }
+
+    /**
+     * @return индекс шарда или {@code null}, если шард не выбран явно
+     */
+    public static Integer currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    public static void clear() {
+        CURRENT_SHARD.remove();
+    }
+
+    /**
+     * Выполняет действие с явно выбранным шардом и затем восстанавливает прежний выбор.
+     *
+     * @param shard индекс шарда или {@code null}, чтобы выполнить действие без явного шарда
+     */
+    public static void runOn(Integer shard, Runnable action) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            action.run();
+        } finally {
+            if (previous != null) {
+                CURRENT_SHARD.set(previous);
+            } else {
+                CURRENT_SHARD.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.matlakhov.techspecjavaspringfinalv2.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.List;
+
+/**
+ * Пулы соединений всех шардов в порядке их индексов.
+ */
+public class ShardDataSources implements DisposableBean {
+    private final List<HikariDataSource> shards;
+    private final int directoryShard;
+
+    public ShardDataSources(List<HikariDataSource> shards, int directoryShard) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("app.sharding.shards must not be empty");
+        }
+        if (directoryShard < 0 || directoryShard >= shards.size()) {
+            throw new IllegalArgumentException("app.sharding.directory-shard is out of range: " + directoryShard);
+        }
+        this.shards = List.copyOf(shards);
+        this.directoryShard = directoryShard;
+    }
+
+    public List<HikariDataSource> all() {
+        return shards;
+    }
+
+    public HikariDataSource get(int shard) {
+        return shards.get(shard);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * @return пул шарда с глобальным справочником пользователей
+     */
+    public HikariDataSource directory() {
+        return shards.get(directoryShard);
+    }
+
+    public int directoryShard() {
+        return directoryShard;
+    }
+
+    @Override
+    public void destroy() {
+        shards.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,59 @@
+package com.matlakhov.techspecjavaspringfinalv2.sharding;
+
+import com.matlakhov.techspecjavaspringfinalv2.routing.UserRoutingContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник данных, выбирающий шард для каждого физического соединения.
+ * <p>
+ * Порядок выбора:
+ * <ol>
+ *   <li>шард, явно заданный в {@link ShardContext};</li>
+ *   <li>шард пользователя из {@link UserRoutingContext}: {@code floorMod(userId, shardCount)};</li>
+ *   <li>иначе шарды по кругу - так распределяются новые пользователи, чей id ещё не известен.</li>
+ * </ol>
+ * Должен быть обёрнут в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * чтобы шард выбирался при первом запросе транзакции, а не при её открытии.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final int shardCount;
+    private final AtomicInteger nextPlacement = new AtomicInteger();
+
+    public ShardRoutingDataSource(List<? extends DataSource> shards) {
+        this.shardCount = shards.size();
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @param userId идентификатор пользователя
+     * @return индекс шарда, на котором хранится пользователь
+     */
+    public static int shardOf(long userId, int shardCount) {
+        return (int) Math.floorMod(userId, (long) shardCount);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.currentShard();
+        if (shard != null) {
+            return shard;
+        }
+        Long userId = UserRoutingContext.currentUserId();
+        if (userId != null) {
+            return shardOf(userId, shardCount);
+        }
+        return Math.floorMod(nextPlacement.getAndIncrement(), shardCount);
+    }
+}
@@ -0,0 +1,133 @@
+package com.matlakhov.techspecjavaspringfinalv2.sharding;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Выполнение запроса сразу на всех шардах (scatter-gather).
+ * <p>
+ * Запрос выполняется параллельно, по одному потоку на шард, каждый раз в отдельной транзакции
+ * только для чтения с привязанным {@link ShardContext}. Результаты возвращаются в порядке индексов шардов,
+ * объединять их должен вызывающий код. Без шардирования {@link #isEnabled()} возвращает false,
+ * а запрос выполняется один раз в текущем потоке.
+ */
+@Component
+public class ShardedQueryExecutor implements DisposableBean {
+    private final boolean enabled;
+    private final int shardCount;
+    private final long timeoutMs;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService executor;
+
+    public ShardedQueryExecutor(ShardingProperties properties, PlatformTransactionManager transactionManager) {
+        this.enabled = properties.isEnabled();
+        this.shardCount = enabled ? properties.getShards().size() : 1;
+        this.timeoutMs = properties.getScatterGatherTimeoutMs();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        if (enabled) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("shard-query-");
+            threadFactory.setDaemon(true);
+            this.executor = Executors.newFixedThreadPool(shardCount, threadFactory);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Выполняет запрос на каждом шарде.
+     *
+     * @param query запрос к репозиториям; выполняется в транзакции только для чтения
+     * @return результаты в порядке индексов шардов
+     * @throws QueryTimeoutException если шарды не ответили за {@code app.sharding.scatter-gather-timeout-ms}
+     */
+    public <T> List<T> onEveryShard(Supplier<T> query) {
+        if (!enabled) {
+            return List.of(query.get());
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> {
+                ShardContext.bind(target);
+                try {
+                    return readOnlyTransaction.execute(status -> query.get());
+                } finally {
+                    ShardContext.clear();
+                }
+            }));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<T> results = new ArrayList<>(shardCount);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Shards did not respond within " + timeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Выполняет действие на каждом шарде по очереди в текущем потоке, например для фоновых задач обслуживания.
+     * Транзакцией управляет само действие.
+     *
+     * @param action действие; получает индекс шарда (без шардирования вызывается один раз с индексом 0)
+     */
+    public void forEachShard(IntConsumer action) {
+        if (!enabled) {
+            action.accept(0);
+            return;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardContext.bind(shard);
+            try {
+                action.accept(shard);
+            } finally {
+                ShardContext.clear();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.matlakhov.techspecjavaspringfinalv2.sharding;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Применяет changelog к каждому шарду по очереди.
+ * <p>
+ * В changelog передаются параметры {@code shard.count}, {@code shard.index} и {@code shard.directory},
+ * по которым миграции настраивают генерацию идентификаторов шарда и создают справочник пользователей.
+ */
+public class ShardedSpringLiquibase extends SpringLiquibase {
+    private final ShardDataSources shards;
+
+    public ShardedSpringLiquibase(ShardDataSources shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("shard.count", String.valueOf(shards.size()));
+            parameters.put("shard.index", String.valueOf(shard));
+            parameters.put("shard.directory", String.valueOf(shard == shards.directoryShard()));
+            setChangeLogParameters(parameters);
+            setDataSource(shards.get(shard));
+            super.afterPropertiesSet();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.matlakhov.techspecjavaspringfinalv2.sharding;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки шардирования пользователей и подписок ({@code app.sharding.*}).
+ * <p>
+ * Пользователь и все его подписки хранятся на шарде {@code floorMod(userId, shards.size())}.
+ * Не совместимо с {@code app.datasource.read-replicas.enabled}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    /**
+     * Включает шардирование; при этом {@code spring.datasource.url} не используется.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Шарды. Порядок важен: индекс шарда определяет, какие идентификаторы он выдаёт.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Индекс шарда, на котором хранится глобальный справочник имён и email ({@code user_directory}).
+     */
+    private int directoryShard = 0;
+
+    /**
+     * Размер пула соединений каждого шарда.
+     */
+    private int maximumPoolSize = 10;
+
+    /**
+     * Предельное время выполнения запроса сразу на всех шардах.
+     */
+    private long scatterGatherTimeoutMs = 5000;
+
+    @Getter
+    @Setter
+    public static class Shard {
+        /**
+         * JDBC URL шарда.
+         */
+        private String url;
+
+        /**
+         * Имя пользователя; по умолчанию {@code spring.datasource.username}.
+         */
+        private String username;
+
+        /**
+         * Пароль; по умолчанию {@code spring.datasource.password}.
+         */
+        private String password;
+    }
+}
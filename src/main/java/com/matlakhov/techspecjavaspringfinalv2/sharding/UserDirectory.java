@@ -0,0 +1,109 @@
+package com.matlakhov.techspecjavaspringfinalv2.sharding;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.exception.DuplicateResourceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Глобальный справочник имён пользователей и email ({@code user_directory} на шарде-справочнике).
+ * <p>
+ * Уникальность имени и email при шардировании нельзя проверить на одном шарде, поэтому перед фиксацией
+ * транзакции шарда, создающей или изменяющей пользователя, значения резервируются в справочнике в отдельной
+ * транзакции. Конфликт уникального индекса превращается в {@link DuplicateResourceException} и откатывает
+ * транзакцию шарда. Транзакция справочника фиксируется после фиксации шарда и откатывается вместе с ним.
+ * Удалённые пользователи остаются в справочнике, как и в таблице {@code users}.
+ */
+@Slf4j
+public class UserDirectory {
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String EMAIL_CONSTRAINT = "uq_user_directory_email";
+
+    private final DataSource directoryDataSource;
+
+    public UserDirectory(DataSource directoryDataSource) {
+        this.directoryDataSource = directoryDataSource;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() == ChangeType.DELETED) {
+            return;
+        }
+        Connection connection = null;
+        try {
+            connection = directoryDataSource.getConnection();
+            connection.setAutoCommit(false);
+            reserve(connection, event);
+        } catch (SQLException e) {
+            rollbackAndClose(connection);
+            if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                throw new DuplicateResourceException(String.valueOf(e.getMessage()).contains(EMAIL_CONSTRAINT)
+                        ? "Email already exists"
+                        : "Username already exists");
+            }
+            throw new DataAccessResourceFailureException("User directory is unavailable", e);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new DirectoryCompletion(connection, event.userId()));
+    }
+
+    private void reserve(Connection connection, UserChangedEvent event) throws SQLException {
+        if (event.type() == ChangeType.UPDATED) {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE user_directory SET username = ?, email = ? WHERE user_id = ?")) {
+                update.setString(1, event.username());
+                update.setString(2, event.email());
+                update.setLong(3, event.userId());
+                if (update.executeUpdate() > 0) {
+                    return;
+                }
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO user_directory (user_id, username, email) VALUES (?, ?, ?)")) {
+            insert.setLong(1, event.userId());
+            insert.setString(2, event.username());
+            insert.setString(3, event.email());
+            insert.executeUpdate();
+        }
+    }
+
+    private static void rollbackAndClose(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try (connection) {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("Не удалось откатить транзакцию справочника пользователей", e);
+        }
+    }
+
+    /**
+     * Завершает транзакцию справочника так же, как завершилась транзакция шарда.
+     */
+    private record DirectoryCompletion(Connection connection, Long userId) implements TransactionSynchronization {
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                rollbackAndClose(connection);
+                return;
+            }
+            try (connection) {
+                connection.commit();
+            } catch (SQLException e) {
+                log.error("Справочник пользователей не обновлён для пользователя {}", userId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+/**
+ * Интервалы гистограммы длительности завершённых подписок ({@code endDate - startDate}).
+ */
+public enum DurationBucket {
+    UNDER_1_DAY(1),
+    DAYS_1_TO_7(7),
+    DAYS_7_TO_30(30),
+    DAYS_30_TO_90(90),
+    DAYS_90_TO_365(365),
+    OVER_365_DAYS(Integer.MAX_VALUE);
+
+    private final int upperBoundDays;
+
+    DurationBucket(int upperBoundDays) {
+        this.upperBoundDays = upperBoundDays;
+    }
+
+    /**
+     * @return верхняя граница интервала в днях (не включительно)
+     */
+    public int getUpperBoundDays() {
+        return upperBoundDays;
+    }
+
+    /**
+     * Выражение SQL, относящее подписку к интервалу по колонкам {@code start_date} и {@code end_date}.
+     */
+    static String sqlCaseExpression() {
+        StringBuilder sql = new StringBuilder("CASE");
+        for (DurationBucket bucket : values()) {
+            if (bucket.upperBoundDays == Integer.MAX_VALUE) {
+                sql.append(" ELSE '").append(bucket.name()).append('\'');
+            } else {
+                sql.append(" WHEN end_date - start_date < INTERVAL '").append(bucket.upperBoundDays)
+                        .append(" days' THEN '").append(bucket.name()).append('\'');
+            }
+        }
+        return sql.append(" END").toString();
+    }
+}
@@ -0,0 +1,213 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import com.matlakhov.techspecjavaspringfinalv2.columnar.LongIntHashMap;
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnarSnapshot;
+import com.matlakhov.techspecjavaspringfinalv2.partitioning.PartitioningProperties;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Полный пересчёт статистики подписок и исправление расхождений с инкрементальными агрегатами.
+ * <p>
+ * Счётчики {@link SubscriptionRollupJob} и колоночного снимка расходятся с таблицей подписок после падений,
+ * ручных правок в базе и повторно учтённых отмен. Сверка делит подписки (вместе с архивом) на диапазоны
+ * {@code user_id} и читает их параллельно в пуле fork-join: каждый поток берёт следующий диапазон, пока
+ * диапазоны не закончатся, и читает его потоковым курсором в отдельной транзакции. По прочитанным строкам заново
+ * считаются суточные счётчики и гистограмма длительности по сервисам и количество подписок каждого пользователя.
+ * В той же транзакции исправляются счётчики {@code users.active_subscription_count} диапазона, поэтому строки
+ * пользователей блокируются только на время одного диапазона.
+ * <p>
+ * Статистика пересчитывается на водяной знак агрегации; на время прохода сверка держит блокировку агрегации,
+ * поэтому водяной знак не сдвигается, а изменения, сделанные во время прохода, учтёт следующая агрегация.
+ * Расходящиеся группы статистики перезаписываются точечно, таблица подписок не блокируется. Дни до самой старой
+ * присоединённой секции {@code subscriptions} и старше {@code app.partitioning.retention-months} не сверяются:
+ * подписок отсоединённых месяцев в таблице уже нет, а отсоединяются только секции, подписки которых отменены
+ * до срока хранения. Пользователи,
+ * у которых количество подписок в снимке расходится с базой, перечитываются в снимок.
+ * При шардировании каждый шард сверяется отдельно.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.stats.reconciliation", name = "enabled", havingValue = "true")
+public class SubscriptionReconciliationJob {
+    private final SubscriptionRollupRepository rollupRepository;
+    private final SubscriptionReconciliationRepository reconciliationRepository;
+    private final SubscriptionColumnarSnapshot snapshot;
+    private final ShardedQueryExecutor shardedQueries;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate scanTransaction;
+    private final int parallelism;
+    private final long rangeSize;
+    private final int fetchSize;
+    private final int maxUserRefreshes;
+    private final int retentionMonths;
+
+    public SubscriptionReconciliationJob(SubscriptionRollupRepository rollupRepository,
+                                         SubscriptionReconciliationRepository reconciliationRepository,
+                                         SubscriptionColumnarSnapshot snapshot,
+                                         ShardedQueryExecutor shardedQueries,
+                                         PlatformTransactionManager transactionManager,
+                                         SubscriptionReconciliationProperties properties,
+                                         PartitioningProperties partitioningProperties) {
+        this.rollupRepository = rollupRepository;
+        this.reconciliationRepository = reconciliationRepository;
+        this.snapshot = snapshot;
+        this.shardedQueries = shardedQueries;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Пул может выполнить задачу в вызывающем потоке: чтение не должно попасть в транзакцию сверки
+        this.scanTransaction = new TransactionTemplate(transactionManager);
+        this.scanTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.parallelism = Math.max(1, properties.getParallelism());
+        this.rangeSize = Math.max(1, properties.getRangeSize());
+        this.fetchSize = properties.getFetchSize();
+        this.maxUserRefreshes = properties.getMaxUserRefreshes();
+        this.retentionMonths = partitioningProperties.getRetentionMonths();
+    }
+
+    @Scheduled(cron = "${app.stats.reconciliation.cron:0 0 4 * * *}")
+    public void reconcile() {
+        shardedQueries.forEachShard(shard -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> reconcileShard(shard));
+            } catch (RuntimeException e) {
+                log.warn("Сверка статистики подписок на шарде {} не выполнена: {}", shard, e.getMessage());
+            }
+        });
+    }
+
+    private void reconcileShard(int shard) {
+        if (!rollupRepository.tryLock()) {
+            log.info("Сверка статистики подписок на шарде {} пропущена: выполняется агрегация", shard);
+            return;
+        }
+        long started = System.nanoTime();
+        LocalDateTime watermark = rollupRepository.findWatermark();
+        boolean countUsers = snapshot.isReady();
+        long[] userIds = reconciliationRepository.findUserIdRange();
+        SubscriptionTotals totals = userIds != null
+                ? scan(userIds[0], userIds[1], watermark, countUsers)
+                : new SubscriptionTotals(countUsers);
+
+        LocalDate from = firstReconciledDay();
+        Map<SubscriptionTotals.DailyKey, long[]> dailyDrift =
+                totals.dailyDrift(reconciliationRepository.findDailyTotals(), from);
+        Map<SubscriptionTotals.DurationKey, Long> durationDrift =
+                totals.durationDrift(reconciliationRepository.findDurationTotals(), from);
+        reconciliationRepository.repairDaily(dailyDrift);
+        reconciliationRepository.repairDurations(durationDrift);
+        int users = reconcileSnapshot(totals.aliveByUser());
+        log.info("Сверка статистики подписок на шарде {}: {} строк за {} мс, исправлено суточных групп {}, "
+                        + "групп длительности {}, счётчиков пользователей {}, пользователей снимка {}",
+                shard, totals.rows(), (System.nanoTime() - started) / 1_000_000,
+                dailyDrift.size(), durationDrift.size(), totals.repairedUserCounters(), users);
+    }
+
+    /**
+     * @return первый сверяемый день или {@code null}, если сверяются все дни
+     */
+    private LocalDate firstReconciledDay() {
+        LocalDate from = reconciliationRepository.findOldestAttachedDay();
+        if (retentionMonths > 0) {
+            LocalDate retained = YearMonth.now().minusMonths(retentionMonths).atDay(1);
+            if (from == null || from.isBefore(retained)) {
+                from = retained;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Читает пользователей {@code [minUserId, maxUserId]} диапазонами по {@code rangeSize} в {@code parallelism} потоков.
+     */
+    private SubscriptionTotals scan(long minUserId, long maxUserId, LocalDateTime watermark, boolean countUsers) {
+        long rangeCount = (maxUserId - minUserId) / rangeSize + 1;
+        AtomicLong nextRange = new AtomicLong();
+        Integer shard = ShardContext.currentShard();
+        List<Callable<SubscriptionTotals>> workers = new ArrayList<>();
+        for (long i = 0; i < Math.min(parallelism, rangeCount); i++) {
+            workers.add(() -> {
+                SubscriptionTotals partial = new SubscriptionTotals(countUsers);
+                try {
+                    ShardContext.runOn(shard, () -> {
+                        for (long range = nextRange.getAndIncrement(); range < rangeCount;
+                             range = nextRange.getAndIncrement()) {
+                            long from = minUserId + range * rangeSize;
+                            scanTransaction.executeWithoutResult(status -> {
+                                reconciliationRepository.scan(from, from + rangeSize, watermark, fetchSize, partial);
+                                partial.addRepairedUserCounters(
+                                        reconciliationRepository.repairActiveSubscriptionCounts(from, from + rangeSize));
+                            });
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // Остальные потоки не берут новые диапазоны
+                    nextRange.set(rangeCount);
+                    throw e;
+                }
+                return partial;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            SubscriptionTotals totals = new SubscriptionTotals(countUsers);
+            for (Future<SubscriptionTotals> partial : pool.invokeAll(workers)) {
+                totals.merge(partial.get());
+            }
+            return totals;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning subscriptions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Перечитывает в колоночный снимок пользователей, у которых количество подписок расходится с базой.
+     *
+     * @return количество таких пользователей
+     */
+    private int reconcileSnapshot(LongIntHashMap expected) {
+        LongIntHashMap actual = expected != null ? snapshot.aliveCountsByUser() : null;
+        if (actual == null) {
+            return 0;
+        }
+        List<Long> drifted = new ArrayList<>();
+        expected.forEach((userId, alive) -> {
+            if (Math.max(actual.get(userId), 0) != alive) {
+                drifted.add(userId);
+            }
+        });
+        if (drifted.size() > maxUserRefreshes) {
+            snapshot.evictAll();
+        } else {
+            drifted.forEach(snapshot::refreshUser);
+        }
+        return drifted.size();
+    }
+}
@@ -0,0 +1,45 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки сверки статистики подписок с таблицами подписок ({@code app.stats.reconciliation.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.stats.reconciliation")
+public class SubscriptionReconciliationProperties {
+
+    /**
+     * Включает полный пересчёт и исправление статистики по расписанию.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Расписание сверки (cron).
+     */
+    private String cron = "0 0 4 * * *";
+
+    /**
+     * Количество потоков чтения; каждый держит своё соединение, поэтому значение должно быть меньше размера пула.
+     */
+    private int parallelism = 4;
+
+    /**
+     * Сколько идентификаторов пользователей входит в один диапазон чтения.
+     */
+    private long rangeSize = 50_000;
+
+    /**
+     * Сколько строк драйвер получает за одно обращение к базе.
+     */
+    private int fetchSize = 10_000;
+
+    /**
+     * Сколько пользователей колоночного снимка перечитывается по отдельности; при большем расхождении
+     * снимок перечитывается целиком.
+     */
+    private int maxUserRefreshes = 10_000;
+}
@@ -0,0 +1,198 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запросы сверки статистики подписок: потоковое чтение подписок по диапазонам пользователей,
+ * исправление суточных таблиц статистики и счётчиков подписок пользователей. Все методы работают в текущей транзакции.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubscriptionReconciliationRepository {
+    private static final String DURATION_BUCKET = DurationBucket.sqlCaseExpression();
+
+    /**
+     * Подписки диапазона пользователей из рабочей и архивной таблиц одним запросом: строки, переносимые
+     * в архив во время чтения, попадают в результат ровно один раз.
+     */
+    private static final String SCAN = """
+            SELECT user_id, service_name, is_deleted, FALSE AS archived,
+                   CAST(start_date AS DATE) AS start_day, CAST(end_date AS DATE) AS end_day, %1$s AS bucket,
+                   created_at <= ? AS started_rolled_up, end_date IS NOT NULL AND updated_at <= ? AS cancel_rolled_up
+              FROM subscriptions
+             WHERE user_id >= ? AND user_id < ?
+            UNION ALL
+            SELECT user_id, service_name, is_deleted, TRUE,
+                   CAST(start_date AS DATE), CAST(end_date AS DATE), %1$s,
+                   created_at <= ?, end_date IS NOT NULL AND updated_at <= ?
+              FROM subscriptions_archive
+             WHERE user_id >= ? AND user_id < ?
+            """.formatted(DURATION_BUCKET);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Исправляет {@code users.active_subscription_count} по количеству неудалённых подписок. Счётчик сдвигается
+     * на расхождение, увиденное запросом, а не перезаписывается: подписки, добавленные и удалённые параллельно
+     * со сверкой, остаются учтёнными.
+     */
+    private static final String REPAIR_USER_COUNTERS = """
+            UPDATE users u
+               SET active_subscription_count = u.active_subscription_count + c.actual - c.counted
+              FROM (SELECT cu.id, cu.active_subscription_count AS counted, COUNT(s.id) AS actual
+                      FROM users cu
+                      LEFT JOIN subscriptions s ON s.user_id = cu.id AND s.is_deleted = false
+                     WHERE cu.id >= ? AND cu.id < ?
+                     GROUP BY cu.id, cu.active_subscription_count) c
+             WHERE u.id = c.id AND c.actual <> c.counted
+            """;
+
+    /**
+     * @return наименьший и наибольший id пользователя (в том числе по подпискам и архиву) или {@code null},
+     * если нет ни пользователей, ни подписок
+     */
+    public long[] findUserIdRange() {
+        return jdbcTemplate.query("""
+                SELECT LEAST((SELECT MIN(id) FROM users), (SELECT MIN(user_id) FROM subscriptions),
+                             (SELECT MIN(user_id) FROM subscriptions_archive)),
+                       GREATEST((SELECT MAX(id) FROM users), (SELECT MAX(user_id) FROM subscriptions),
+                                (SELECT MAX(user_id) FROM subscriptions_archive))
+                """, rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+
+    /**
+     * Читает подписки пользователей {@code [fromUserId, toUserId)} порциями по {@code fetchSize} строк
+     * и добавляет их к {@code totals}. Оформления учитываются по {@code created_at}, отмены - по {@code updated_at}
+     * не позже {@code watermark}, как их учитывает {@link SubscriptionRollupJob}.
+     */
+    public void scan(long fromUserId, long toUserId, LocalDateTime watermark, int fetchSize, SubscriptionTotals totals) {
+        long[] rows = new long[1];
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SCAN);
+            Object[] args = {watermark, watermark, fromUserId, toUserId};
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+                statement.setObject(i + 1 + args.length, args[i]);
+            }
+            // Драйвер PostgreSQL читает порциями только вне режима autocommit, поэтому чтение идёт в транзакции
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (ResultSet rs) -> {
+            String serviceName = rs.getString("service_name");
+            if (rs.getBoolean("started_rolled_up")) {
+                totals.addStarted(rs.getObject("start_day", LocalDate.class), serviceName);
+            }
+            if (rs.getBoolean("cancel_rolled_up")) {
+                totals.addCancelled(rs.getObject("end_day", LocalDate.class), serviceName,
+                        DurationBucket.valueOf(rs.getString("bucket")));
+            }
+            if (!rs.getBoolean("archived")) {
+                totals.addUserSubscription(rs.getLong("user_id"), rs.getBoolean("is_deleted"));
+            }
+            rows[0]++;
+        });
+        totals.addRows(rows[0]);
+    }
+
+    /**
+     * Исправляет счётчики неудалённых подписок пользователей {@code [fromUserId, toUserId)}.
+     *
+     * @return количество исправленных пользователей
+     */
+    public int repairActiveSubscriptionCounts(long fromUserId, long toUserId) {
+        return jdbcTemplate.update(REPAIR_USER_COUNTERS, fromUserId, toUserId);
+    }
+
+    /**
+     * @return первый день самой старой месячной секции, присоединённой к {@code subscriptions}, или {@code null},
+     * если секций нет. Подписки более ранних месяцев отсоединены ({@code SubscriptionPartitionMaintenance})
+     * или удалены вместе с таблицей, поэтому их статистику пересчитать нельзя.
+     */
+    public LocalDate findOldestAttachedDay() {
+        return jdbcTemplate.queryForObject("""
+                SELECT MIN(to_date(substring(c.relname FROM 16), 'YYYYMM'))
+                  FROM pg_inherits i
+                  JOIN pg_class c ON c.oid = i.inhrelid
+                 WHERE i.inhparent = 'subscriptions'::regclass
+                   AND c.relname ~ '^subscriptions_p[0-9]{6}$'
+                """, LocalDate.class);
+    }
+
+    public Map<SubscriptionTotals.DailyKey, long[]> findDailyTotals() {
+        Map<SubscriptionTotals.DailyKey, long[]> totals = new HashMap<>();
+        jdbcTemplate.query("SELECT day, service_name, added, cancelled FROM subscription_daily_stats", rs -> {
+            totals.put(new SubscriptionTotals.DailyKey(rs.getObject("day", LocalDate.class), rs.getString("service_name")),
+                    new long[]{rs.getLong("added"), rs.getLong("cancelled")});
+        });
+        return totals;
+    }
+
+    public Map<SubscriptionTotals.DurationKey, Long> findDurationTotals() {
+        Map<SubscriptionTotals.DurationKey, Long> totals = new HashMap<>();
+        jdbcTemplate.query("SELECT day, service_name, bucket, total FROM subscription_duration_stats", rs -> {
+            totals.put(new SubscriptionTotals.DurationKey(rs.getObject("day", LocalDate.class),
+                    rs.getString("service_name"), DurationBucket.valueOf(rs.getString("bucket"))), rs.getLong("total"));
+        });
+        return totals;
+    }
+
+    /**
+     * Записывает правильные суточные счётчики; группы с нулевыми счётчиками удаляются.
+     */
+    public void repairDaily(Map<SubscriptionTotals.DailyKey, long[]> drift) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        drift.forEach((key, counts) -> {
+            if (counts[0] == 0 && counts[1] == 0) {
+                deletes.add(new Object[]{Date.valueOf(key.day()), key.serviceName()});
+            } else {
+                upserts.add(new Object[]{Date.valueOf(key.day()), key.serviceName(), counts[0], counts[1]});
+            }
+        });
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO subscription_daily_stats (day, service_name, added, cancelled)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (day, service_name)
+                DO UPDATE SET added = EXCLUDED.added, cancelled = EXCLUDED.cancelled
+                """, upserts);
+        jdbcTemplate.batchUpdate("DELETE FROM subscription_daily_stats WHERE day = ? AND service_name = ?", deletes);
+    }
+
+    /**
+     * Записывает правильную гистограмму длительности; пустые группы удаляются.
+     */
+    public void repairDurations(Map<SubscriptionTotals.DurationKey, Long> drift) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        drift.forEach((key, total) -> {
+            if (total == 0) {
+                deletes.add(new Object[]{Date.valueOf(key.day()), key.serviceName(), key.bucket().name()});
+            } else {
+                upserts.add(new Object[]{Date.valueOf(key.day()), key.serviceName(), key.bucket().name(), total});
+            }
+        });
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO subscription_duration_stats (day, service_name, bucket, total)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT (day, service_name, bucket)
+                DO UPDATE SET total = EXCLUDED.total
+                """, upserts);
+        jdbcTemplate.batchUpdate(
+                "DELETE FROM subscription_duration_stats WHERE day = ? AND service_name = ? AND bucket = ?", deletes);
+    }
+}
@@ -0,0 +1,67 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Фоновая агрегация подписок в суточные таблицы статистики.
+ * <p>
+ * Каждый запуск обрабатывает только подписки, созданные или изменённые после водяного знака предыдущего
+ * запуска, и добавляет их к счётчикам; водяной знак сдвигается в той же транзакции. Одновременно агрегацию
+ * выполняет только один экземпляр приложения (advisory lock). При шардировании каждый шард агрегируется
+ * в собственные таблицы статистики.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.stats.rollup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SubscriptionRollupJob {
+    private final SubscriptionRollupRepository rollupRepository;
+    private final ShardedQueryExecutor shardedQueries;
+    private final TransactionTemplate transactionTemplate;
+    private final long lagMs;
+
+    public SubscriptionRollupJob(SubscriptionRollupRepository rollupRepository,
+                                 ShardedQueryExecutor shardedQueries,
+                                 PlatformTransactionManager transactionManager,
+                                 SubscriptionStatsProperties properties) {
+        this.rollupRepository = rollupRepository;
+        this.shardedQueries = shardedQueries;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lagMs = properties.getLagMs();
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.rollup.interval-ms:60000}")
+    public void rollUp() {
+        shardedQueries.forEachShard(shard -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rollUpShard(shard));
+            } catch (RuntimeException e) {
+                log.warn("Агрегация статистики подписок на шарде {} не выполнена: {}", shard, e.getMessage());
+            }
+        });
+    }
+
+    private void rollUpShard(int shard) {
+        if (!rollupRepository.tryLock()) {
+            return;
+        }
+        LocalDateTime from = rollupRepository.findWatermark();
+        LocalDateTime to = rollupRepository.currentTimeMinus(lagMs);
+        if (!to.isAfter(from)) {
+            return;
+        }
+        int added = rollupRepository.rollUpAdded(from, to);
+        int cancelled = rollupRepository.rollUpCancelled(from, to);
+        rollupRepository.rollUpDurations(from, to);
+        rollupRepository.saveWatermark(to);
+        log.debug("Статистика подписок на шарде {} обновлена до {}: {} групп оформлений, {} групп отмен",
+                shard, to, added, cancelled);
+    }
+}
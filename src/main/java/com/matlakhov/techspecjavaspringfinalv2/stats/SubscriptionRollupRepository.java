@@ -0,0 +1,139 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.DailySubscriptionStatsDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.ServiceActiveCountDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Доступ к суточным таблицам статистики подписок.
+ * <p>
+ * Методы {@code rollUp*} добавляют к статистике подписки, изменённые в окне {@code (from, to]}
+ * (по колонкам {@code created_at} и {@code updated_at}); остальные методы читают только таблицы статистики.
+ * Все методы работают в текущей транзакции.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubscriptionRollupRepository {
+    static final String JOB_NAME = "subscriptions";
+
+    private static final String DURATION_BUCKET = DurationBucket.sqlCaseExpression();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Захватывает блокировку агрегации до конца транзакции, не дожидаясь её освобождения.
+     *
+     * @return false, если агрегацию сейчас выполняет другой экземпляр приложения
+     */
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('subscription_rollup'))", Boolean.class));
+    }
+
+    public LocalDateTime findWatermark() {
+        return jdbcTemplate.queryForObject(
+                "SELECT processed_until FROM subscription_rollup_watermark WHERE job = ?", LocalDateTime.class, JOB_NAME);
+    }
+
+    /**
+     * @return время базы данных минус отставание
+     */
+    public LocalDateTime currentTimeMinus(long lagMs) {
+        return jdbcTemplate.queryForObject(
+                "SELECT LOCALTIMESTAMP - make_interval(secs => ?)", LocalDateTime.class, lagMs / 1000.0);
+    }
+
+    public void saveWatermark(LocalDateTime processedUntil) {
+        jdbcTemplate.update(
+                "UPDATE subscription_rollup_watermark SET processed_until = ? WHERE job = ?", processedUntil, JOB_NAME);
+    }
+
+    public int rollUpAdded(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.update("""
+                INSERT INTO subscription_daily_stats (day, service_name, added, cancelled)
+                SELECT CAST(start_date AS DATE), service_name, COUNT(*), 0
+                  FROM subscriptions
+                 WHERE created_at > ? AND created_at <= ?
+                 GROUP BY CAST(start_date AS DATE), service_name
+                ON CONFLICT (day, service_name)
+                DO UPDATE SET added = subscription_daily_stats.added + EXCLUDED.added
+                """, from, to);
+    }
+
+    public int rollUpCancelled(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.update("""
+                INSERT INTO subscription_daily_stats (day, service_name, added, cancelled)
+                SELECT CAST(end_date AS DATE), service_name, 0, COUNT(*)
+                  FROM subscriptions
+                 WHERE updated_at > ? AND updated_at <= ? AND end_date IS NOT NULL
+                 GROUP BY CAST(end_date AS DATE), service_name
+                ON CONFLICT (day, service_name)
+                DO UPDATE SET cancelled = subscription_daily_stats.cancelled + EXCLUDED.cancelled
+                """, from, to);
+    }
+
+    public int rollUpDurations(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.update("""
+                INSERT INTO subscription_duration_stats (day, service_name, bucket, total)
+                SELECT CAST(end_date AS DATE), service_name, %s, COUNT(*)
+                  FROM subscriptions
+                 WHERE updated_at > ? AND updated_at <= ? AND end_date IS NOT NULL
+                 GROUP BY 1, 2, 3
+                ON CONFLICT (day, service_name, bucket)
+                DO UPDATE SET total = subscription_duration_stats.total + EXCLUDED.total
+                """.formatted(DURATION_BUCKET), from, to);
+    }
+
+    public List<ServiceActiveCountDto> findActiveCounts() {
+        return jdbcTemplate.query("""
+                SELECT service_name, SUM(added) - SUM(cancelled) AS active
+                  FROM subscription_daily_stats
+                 GROUP BY service_name
+                """,
+                (rs, rowNum) -> new ServiceActiveCountDto(rs.getString("service_name"), rs.getLong("active")));
+    }
+
+    public List<DailySubscriptionStatsDto> findDaily(LocalDate from, LocalDate to, String serviceName) {
+        List<Object> args = new ArrayList<>(List.of(from, to));
+        StringBuilder sql = new StringBuilder(
+                "SELECT day, service_name, added, cancelled FROM subscription_daily_stats WHERE day BETWEEN ? AND ?");
+        if (serviceName != null) {
+            sql.append(" AND service_name = ?");
+            args.add(serviceName);
+        }
+        return jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> new DailySubscriptionStatsDto(rs.getObject("day", LocalDate.class),
+                        rs.getString("service_name"), rs.getLong("added"), rs.getLong("cancelled")),
+                args.toArray());
+    }
+
+    /**
+     * @return количество завершённых подписок по интервалам длительности (только непустые интервалы)
+     */
+    public Map<DurationBucket, Long> findDurations(LocalDate from, LocalDate to, String serviceName) {
+        List<Object> args = new ArrayList<>(List.of(from, to));
+        StringBuilder sql = new StringBuilder(
+                "SELECT bucket, SUM(total) AS total FROM subscription_duration_stats WHERE day BETWEEN ? AND ?");
+        if (serviceName != null) {
+            sql.append(" AND service_name = ?");
+            args.add(serviceName);
+        }
+        sql.append(" GROUP BY bucket");
+        Map<DurationBucket, Long> totals = new EnumMap<>(DurationBucket.class);
+        jdbcTemplate.query(sql.toString(),
+                rs -> {
+                    totals.put(DurationBucket.valueOf(rs.getString("bucket")), rs.getLong("total"));
+                },
+                args.toArray());
+        return totals;
+    }
+}
@@ -0,0 +1,30 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки агрегации статистики подписок ({@code app.stats.rollup.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.stats.rollup")
+public class SubscriptionStatsProperties {
+
+    /**
+     * Включает фоновую агрегацию изменённых подписок в суточные таблицы статистики.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Пауза между запусками агрегации.
+     */
+    private long intervalMs = 60_000;
+
+    /**
+     * Отставание водяного знака от текущего времени. Изменения транзакций, которые длятся дольше,
+     * могут не попасть в статистику.
+     */
+    private long lagMs = 60_000;
+}
@@ -0,0 +1,93 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.DailySubscriptionStatsDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.DurationBucketDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.ServiceActiveCountDto;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис статистики подписок. Читает только суточные таблицы статистики, которые заполняет
+ * {@link SubscriptionRollupJob}; данные отстают от таблицы подписок на интервал агрегации.
+ * При шардировании статистика всех шардов складывается.
+ */
+@RequiredArgsConstructor
+@Service
+public class SubscriptionStatsService {
+    private final SubscriptionRollupRepository rollupRepository;
+    private final ShardedQueryExecutor shardedQueries;
+
+    /**
+     * @return количество активных подписок по сервисам, по убыванию
+     */
+    @Transactional(readOnly = true)
+    public List<ServiceActiveCountDto> getActiveCounts() {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (List<ServiceActiveCountDto> rows : shardedQueries.onEveryShard(rollupRepository::findActiveCounts)) {
+            rows.forEach(row -> totals.merge(row.getServiceName(), row.getActive(), Long::sum));
+        }
+        return totals.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(entry -> new ServiceActiveCountDto(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(ServiceActiveCountDto::getActive).reversed()
+                        .thenComparing(ServiceActiveCountDto::getServiceName))
+                .toList();
+    }
+
+    /**
+     * @param from        первый день, включительно
+     * @param to          последний день, включительно
+     * @param serviceName сервис или null для всех сервисов
+     * @return оформления и отмены по дням и сервисам, по возрастанию дня
+     */
+    @Transactional(readOnly = true)
+    public List<DailySubscriptionStatsDto> getDailyStats(LocalDate from, LocalDate to, String serviceName) {
+        Map<DailyKey, DailySubscriptionStatsDto> merged = new LinkedHashMap<>();
+        for (List<DailySubscriptionStatsDto> rows
+                : shardedQueries.onEveryShard(() -> rollupRepository.findDaily(from, to, serviceName))) {
+            for (DailySubscriptionStatsDto row : rows) {
+                merged.merge(new DailyKey(row.getDay(), row.getServiceName()), row, (left, right) ->
+                        new DailySubscriptionStatsDto(left.getDay(), left.getServiceName(),
+                                left.getAdded() + right.getAdded(), left.getCancelled() + right.getCancelled()));
+            }
+        }
+        List<DailySubscriptionStatsDto> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparing(DailySubscriptionStatsDto::getDay)
+                .thenComparing(DailySubscriptionStatsDto::getServiceName));
+        return result;
+    }
+
+    /**
+     * @param from        первый день окончания подписки, включительно
+     * @param to          последний день окончания подписки, включительно
+     * @param serviceName сервис или null для всех сервисов
+     * @return гистограмма длительности завершённых подписок; содержит все интервалы, в том числе пустые
+     */
+    @Transactional(readOnly = true)
+    public List<DurationBucketDto> getDurationHistogram(LocalDate from, LocalDate to, String serviceName) {
+        Map<DurationBucket, Long> totals = new EnumMap<>(DurationBucket.class);
+        for (Map<DurationBucket, Long> shard
+                : shardedQueries.onEveryShard(() -> rollupRepository.findDurations(from, to, serviceName))) {
+            shard.forEach((bucket, count) -> totals.merge(bucket, count, Long::sum));
+        }
+        List<DurationBucketDto> result = new ArrayList<>(DurationBucket.values().length);
+        for (DurationBucket bucket : DurationBucket.values()) {
+            Integer upperBound = bucket.getUpperBoundDays() == Integer.MAX_VALUE ? null : bucket.getUpperBoundDays();
+            result.add(new DurationBucketDto(bucket.name(), upperBound, totals.getOrDefault(bucket, 0L)));
+        }
+        return result;
+    }
+
+    private record DailyKey(LocalDate day, String serviceName) {
+    }
+}
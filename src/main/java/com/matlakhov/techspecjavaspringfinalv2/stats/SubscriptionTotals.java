@@ -0,0 +1,156 @@
+package com.matlakhov.techspecjavaspringfinalv2.stats;
+
+import com.matlakhov.techspecjavaspringfinalv2.columnar.LongIntHashMap;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Агрегаты подписок, пересчитанные заново по строкам таблиц: суточные оформления и отмены, гистограмма
+ * длительности по сервисам и количество неудалённых подписок каждого пользователя.
+ * <p>
+ * Каждый поток сверки заполняет собственный экземпляр, затем они объединяются через {@link #merge}.
+ * Не потокобезопасен.
+ */
+public final class SubscriptionTotals {
+    private final Map<DailyKey, long[]> daily = new HashMap<>();
+    private final Map<DurationKey, long[]> durations = new HashMap<>();
+    private final LongIntHashMap aliveByUser;
+    private long rows;
+    private long repairedUserCounters;
+
+    /**
+     * @param countUsers считать ли подписки по пользователям
+     */
+    public SubscriptionTotals(boolean countUsers) {
+        this.aliveByUser = countUsers ? new LongIntHashMap(1024) : null;
+    }
+
+    /**
+     * Учитывает оформление подписки, уже попавшее в статистику (создана не позже водяного знака).
+     */
+    public void addStarted(LocalDate day, String serviceName) {
+        daily.computeIfAbsent(new DailyKey(day, serviceName), key -> new long[2])[0]++;
+    }
+
+    /**
+     * Учитывает отмену подписки, уже попавшую в статистику (изменена не позже водяного знака).
+     */
+    public void addCancelled(LocalDate day, String serviceName, DurationBucket bucket) {
+        daily.computeIfAbsent(new DailyKey(day, serviceName), key -> new long[2])[1]++;
+        durations.computeIfAbsent(new DurationKey(day, serviceName, bucket), key -> new long[1])[0]++;
+    }
+
+    /**
+     * Учитывает подписку пользователя из рабочей таблицы (не из архива).
+     */
+    public void addUserSubscription(long userId, boolean deleted) {
+        if (aliveByUser != null) {
+            aliveByUser.add(userId, deleted ? 0 : 1);
+        }
+    }
+
+    public void addRows(long count) {
+        rows += count;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public void addRepairedUserCounters(long count) {
+        repairedUserCounters += count;
+    }
+
+    /**
+     * @return сколько исправлено счётчиков {@code users.active_subscription_count}
+     */
+    public long repairedUserCounters() {
+        return repairedUserCounters;
+    }
+
+    /**
+     * @return количество неудалённых подписок по пользователям или {@code null}, если они не считались
+     */
+    public LongIntHashMap aliveByUser() {
+        return aliveByUser;
+    }
+
+    public void merge(SubscriptionTotals other) {
+        other.daily.forEach((key, counts) -> {
+            long[] target = daily.computeIfAbsent(key, k -> new long[2]);
+            target[0] += counts[0];
+            target[1] += counts[1];
+        });
+        other.durations.forEach((key, total) -> durations.computeIfAbsent(key, k -> new long[1])[0] += total[0]);
+        if (aliveByUser != null && other.aliveByUser != null) {
+            other.aliveByUser.forEach(aliveByUser::add);
+        }
+        rows += other.rows;
+        repairedUserCounters += other.repairedUserCounters;
+    }
+
+    /**
+     * Сравнивает пересчитанные суточные счётчики с таблицей статистики.
+     *
+     * @param live строки {@code subscription_daily_stats}: {@code {added, cancelled}}
+     * @param from  группы более ранних дней не сравниваются; {@code null} - сравниваются все
+     * @return правильные значения {@code {added, cancelled}} для расходящихся групп; {@code {0, 0}} - строку нужно удалить
+     */
+    public Map<DailyKey, long[]> dailyDrift(Map<DailyKey, long[]> live, LocalDate from) {
+        Map<DailyKey, long[]> drift = new LinkedHashMap<>();
+        daily.forEach((key, expected) -> {
+            if (isBefore(key.day(), from)) {
+                return;
+            }
+            long[] actual = live.get(key);
+            if (actual == null || actual[0] != expected[0] || actual[1] != expected[1]) {
+                drift.put(key, expected.clone());
+            }
+        });
+        live.forEach((key, actual) -> {
+            if (!daily.containsKey(key) && !isBefore(key.day(), from)) {
+                drift.put(key, new long[2]);
+            }
+        });
+        return drift;
+    }
+
+    /**
+     * Сравнивает пересчитанную гистограмму длительности с таблицей статистики.
+     *
+     * @param live строки {@code subscription_duration_stats}
+     * @param from группы более ранних дней не сравниваются; {@code null} - сравниваются все
+     * @return правильные значения для расходящихся групп; 0 - строку нужно удалить
+     */
+    public Map<DurationKey, Long> durationDrift(Map<DurationKey, Long> live, LocalDate from) {
+        Map<DurationKey, Long> drift = new LinkedHashMap<>();
+        durations.forEach((key, expected) -> {
+            if (isBefore(key.day(), from)) {
+                return;
+            }
+            Long actual = live.get(key);
+            if (actual == null || actual != expected[0]) {
+                drift.put(key, expected[0]);
+            }
+        });
+        live.forEach((key, actual) -> {
+            if (!durations.containsKey(key) && !isBefore(key.day(), from)) {
+                drift.put(key, 0L);
+            }
+        });
+        return drift;
+    }
+
+    private static boolean isBefore(LocalDate day, LocalDate from) {
+        return from != null && day.isBefore(from);
+    }
+
+    public record DailyKey(LocalDate day, String serviceName) {
+    }
+
+    public record DurationKey(LocalDate day, String serviceName, DurationBucket bucket) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.matlakhov.techspecjavaspringfinalv2.streaming;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки потока изменений топа подписок {@code GET /subscriptions/top/stream} ({@code app.subscriptions.top-stream.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.subscriptions.top-stream")
+public class TopStreamProperties {
+
+    /**
+     * Не чаще какого интервала топ пересчитывается после изменений подписок; изменения за интервал
+     * пересчитываются одним запросом.
+     */
+    private long debounceMs = 1000;
+
+    /**
+     * Интервал пересчёта без изменений подписок: топ меняется и тогда, когда подписки заканчиваются по времени.
+     */
+    private long refreshIntervalMs = 60_000;
+
+    /**
+     * Интервал комментариев-пингов, по которым обнаруживаются отключившиеся клиенты.
+     */
+    private long heartbeatMs = 15_000;
+
+    /**
+     * Через сколько миллисекунд соединение закрывается сервером; клиент EventSource переподключается сам.
+     */
+    private long timeoutMs = 30 * 60_000;
+
+    /**
+     * Максимальное количество одновременно подключённых клиентов.
+     */
+    private int maxClients = 1000;
+}
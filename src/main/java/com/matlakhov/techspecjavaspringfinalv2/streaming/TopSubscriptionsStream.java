@@ -0,0 +1,191 @@
+package com.matlakhov.techspecjavaspringfinalv2.streaming;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.CachedEntity;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.LocalCache;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Рассылка изменений топа подписок клиентам Server-Sent Events.
+ * <p>
+ * Топ пересчитывается одним запросом на всех клиентов и только при изменениях подписок: после фиксации
+ * транзакции (и после изменений на других узлах, см. {@link LocalCache}) пересчёт откладывается
+ * на {@code debounce-ms}, все изменения за это время обслуживает один пересчёт. Клиентам уходит событие
+ * {@code top} с JSON-массивом сервисов, только если топ изменился; новый клиент сразу получает текущий топ.
+ * Пересчёт и рассылка идут в одном потоке, поэтому клиент получает значения топа по порядку.
+ * Пока клиентов нет, топ не пересчитывается.
+ */
+@Slf4j
+@Component
+public class TopSubscriptionsStream implements LocalCache, DisposableBean {
+    static final String EVENT_NAME = "top";
+
+    private final SubscriptionService subscriptionService;
+    private final ObjectMapper objectMapper;
+    private final long debounceMs;
+    private final long timeoutMs;
+    private final int maxClients;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    /**
+     * Последний разосланный топ в JSON; {@code null}, если он неизвестен или мог устареть без клиентов.
+     * Изменяется только потоком рассылки.
+     */
+    private String current;
+
+    public TopSubscriptionsStream(SubscriptionService subscriptionService,
+                                  ObjectMapper objectMapper,
+                                  TopStreamProperties properties) {
+        this.subscriptionService = subscriptionService;
+        this.objectMapper = objectMapper;
+        this.debounceMs = properties.getDebounceMs();
+        this.timeoutMs = properties.getTimeoutMs();
+        this.maxClients = properties.getMaxClients();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("top-stream-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        executor.scheduleWithFixedDelay(this::requestRefresh,
+                properties.getRefreshIntervalMs(), properties.getRefreshIntervalMs(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::heartbeat,
+                properties.getHeartbeatMs(), properties.getHeartbeatMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Подключает клиента.
+     *
+     * @throws ServiceOverloadedException если подключено {@code max-clients} клиентов
+     */
+    public SseEmitter subscribe() {
+        if (clients.size() >= maxClients) {
+            throw new ServiceOverloadedException("Too many top subscription streams");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Client client = new Client(emitter);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> clients.remove(client));
+        clients.add(client);
+        executor.execute(() -> {
+            if (current == null) {
+                refresh();
+            }
+            // До этого момента клиент не получает рассылки, иначе первый топ мог прийти ему дважды
+            client.ready = true;
+            if (current != null) {
+                send(client, current);
+            }
+        });
+        return emitter;
+    }
+
+    public int clientCount() {
+        return clients.size();
+    }
+
+    @TransactionalEventListener
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        requestRefresh();
+    }
+
+    @Override
+    public void evict(CachedEntity entity, long id) {
+        if (entity == CachedEntity.SUBSCRIPTION) {
+            requestRefresh();
+        }
+    }
+
+    @Override
+    public void evictAll() {
+        requestRefresh();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        clients.forEach(client -> client.emitter.complete());
+        clients.clear();
+    }
+
+    /**
+     * Планирует пересчёт через {@code debounce-ms}, если он ещё не запланирован.
+     */
+    private void requestRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::refresh, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh() {
+        refreshScheduled.set(false);
+        if (clients.isEmpty()) {
+            current = null;
+            return;
+        }
+        String ranking;
+        try {
+            ranking = objectMapper.writeValueAsString(subscriptionService.getTopSubscriptions());
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Не удалось пересчитать топ подписок: {}", e.getMessage());
+            return;
+        }
+        if (ranking.equals(current)) {
+            return;
+        }
+        current = ranking;
+        for (Client client : clients) {
+            if (client.ready) {
+                send(client, ranking);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Client client : clients) {
+            try {
+                client.emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                clients.remove(client);
+            }
+        }
+    }
+
+    private void send(Client client, String ranking) {
+        try {
+            client.emitter.send(SseEmitter.event().name(EVENT_NAME).data(ranking, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился; контейнер сам завершит асинхронный запрос
+            clients.remove(client);
+        }
+    }
+
+    private static final class Client {
+        private final SseEmitter emitter;
+        /**
+         * Клиент получил текущий топ; изменяется и читается только потоком рассылки.
+         */
+        private boolean ready;
+
+        private Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Замеры этапов одного запроса для заголовка {@code Server-Timing} и трассы.
+ * <p>
+ * Замеры привязываются к потоку ({@link #bind}) только для запросов, попавших в выборку; без привязки замеряемый
+ * вызов обходится одним чтением {@link ThreadLocal}. В каждый момент запрос обрабатывается одним потоком
+ * (асинхронный ответ продолжается в другом потоке после повторной диспетчеризации), поэтому синхронизация
+ * не нужна. Вызовы в других потоках, например пакетная запись подписок, не замеряются и входят во время
+ * ожидающего их этапа.
+ */
+public final class RequestTiming {
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    private static final int PHASES = TimingPhase.values().length;
+    private static final int MAX_SPAN_NAME_LENGTH = 200;
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final long startNanos;
+    private final long[] nanos = new long[PHASES];
+    private final int[] calls = new int[PHASES];
+    private final int[] depth = new int[PHASES];
+    /**
+     * Интервалы трассы; {@code null}, если трасса не пишется.
+     */
+    private final List<Span> spans;
+    private final int maxSpans;
+    private int droppedSpans;
+    private long handlerStartNanos = UNSET;
+    private long bodyStartNanos = UNSET;
+    private long handlerEndNanos = UNSET;
+    private long totalNanos;
+
+    /**
+     * @param startNanos начало запроса по {@link System#nanoTime()}
+     * @param maxSpans   максимальное количество интервалов трассы; 0 - трасса не пишется
+     */
+    public RequestTiming(long startNanos, int maxSpans) {
+        this.startNanos = startNanos;
+        this.maxSpans = maxSpans;
+        this.spans = maxSpans > 0 ? new ArrayList<>() : null;
+    }
+
+    /**
+     * @return замеры запроса, который обрабатывается текущим потоком, или {@code null}, если запрос не в выборке
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Привязывает замеры к текущему потоку; {@code null} отвязывает.
+     */
+    public static void bind(RequestTiming timing) {
+        if (timing != null) {
+            CURRENT.set(timing);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public boolean isTracing() {
+        return spans != null;
+    }
+
+    /**
+     * Начинает вызов этапа.
+     *
+     * @return момент начала, который передаётся в {@link #exit}
+     */
+    public long enter(TimingPhase phase) {
+        depth[phase.ordinal()]++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Завершает вызов этапа. Время вложенного вызова того же этапа (сервис вызывает сервис) второй раз
+     * не прибавляется, но попадает в трассу отдельным интервалом.
+     *
+     * @param name      имя вызова в трассе
+     * @param operation продолжение имени через точку или {@code null}; имя собирается, только если пишется трасса
+     */
+    public void exit(TimingPhase phase, long enteredNanos, String name, String operation) {
+        long now = System.nanoTime();
+        int index = phase.ordinal();
+        if (--depth[index] == 0) {
+            nanos[index] += now - enteredNanos;
+            calls[index]++;
+        }
+        if (spans != null) {
+            addSpan(phase, operation != null ? name + '.' + operation : name, enteredNanos, now);
+        }
+    }
+
+    /**
+     * Отмечает начало обработчика запроса; повторная диспетчеризация асинхронного ответа начало не сдвигает.
+     */
+    public void handlerStarted(long nowNanos) {
+        if (handlerStartNanos == UNSET) {
+            handlerStartNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Отмечает начало записи тела ответа.
+     */
+    public void bodyWriteStarted(long nowNanos) {
+        if (bodyStartNanos == UNSET) {
+            bodyStartNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Отмечает завершение обработчика, после записи тела ответа.
+     */
+    public void handlerCompleted(long nowNanos) {
+        handlerEndNanos = nowNanos;
+    }
+
+    /**
+     * Завершает замеры: время контроллера и сериализации считается по отметкам обработчика,
+     * время фильтров - как время запроса вне обработчика.
+     */
+    public void complete(long nowNanos) {
+        totalNanos = nowNanos - startNanos;
+        if (handlerStartNanos == UNSET) {
+            addPhase(TimingPhase.FILTER, totalNanos);
+            return;
+        }
+        long handlerEnd = handlerEndNanos != UNSET ? handlerEndNanos : nowNanos;
+        long controllerEnd = bodyStartNanos != UNSET ? bodyStartNanos : handlerEnd;
+        addPhase(TimingPhase.CONTROLLER, controllerEnd - handlerStartNanos);
+        if (spans != null) {
+            addSpan(TimingPhase.CONTROLLER, TimingPhase.CONTROLLER.metricName(), handlerStartNanos, controllerEnd);
+        }
+        if (bodyStartNanos != UNSET) {
+            addPhase(TimingPhase.SERIALIZATION, handlerEnd - bodyStartNanos);
+            if (spans != null) {
+                addSpan(TimingPhase.SERIALIZATION, TimingPhase.SERIALIZATION.metricName(), bodyStartNanos, handlerEnd);
+            }
+        }
+        addPhase(TimingPhase.FILTER, totalNanos - (handlerEnd - handlerStartNanos));
+    }
+
+    /**
+     * @return значение заголовка {@code Server-Timing}: {@code total} и этапы, которые были в запросе, в миллисекундах
+     */
+    public String serverTiming() {
+        StringBuilder header = new StringBuilder(192);
+        appendMetric(header, "total", totalNanos, 1);
+        for (TimingPhase phase : TimingPhase.values()) {
+            int index = phase.ordinal();
+            if (calls[index] > 0) {
+                appendMetric(header, phase.metricName(), nanos[index], calls[index]);
+            }
+        }
+        return header.toString();
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    public long nanos(TimingPhase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public int calls(TimingPhase phase) {
+        return calls[phase.ordinal()];
+    }
+
+    /**
+     * @return интервалы трассы в порядке завершения; пустой список, если трасса не пишется
+     */
+    public List<Span> spans() {
+        return spans != null ? spans : List.of();
+    }
+
+    /**
+     * @return сколько интервалов не попало в трассу сверх {@code max-spans}
+     */
+    public int droppedSpans() {
+        return droppedSpans;
+    }
+
+    private void addPhase(TimingPhase phase, long phaseNanos) {
+        nanos[phase.ordinal()] += phaseNanos;
+        calls[phase.ordinal()]++;
+    }
+
+    private void addSpan(TimingPhase phase, String name, long fromNanos, long toNanos) {
+        if (spans.size() >= maxSpans) {
+            droppedSpans++;
+            return;
+        }
+        if (name.length() > MAX_SPAN_NAME_LENGTH) {
+            name = name.substring(0, MAX_SPAN_NAME_LENGTH);
+        }
+        spans.add(new Span(phase, name, fromNanos - startNanos, toNanos - fromNanos));
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long metricNanos, int metricCalls) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=");
+        appendMillis(header, metricNanos);
+        if (metricCalls > 1) {
+            header.append(";desc=\"").append(metricCalls).append(" calls\"");
+        }
+    }
+
+    /**
+     * Дописывает миллисекунды с тремя знаками после точки без {@link String#format}.
+     */
+    static void appendMillis(StringBuilder target, long valueNanos) {
+        long micros = Math.max(valueNanos, 0) / 1000;
+        long fraction = micros % 1000;
+        target.append(micros / 1000).append('.');
+        if (fraction < 100) {
+            target.append(fraction < 10 ? "00" : "0");
+        }
+        target.append(fraction);
+    }
+
+    /**
+     * Интервал трассы.
+     *
+     * @param offsetNanos   начало относительно начала запроса
+     * @param durationNanos длительность
+     */
+    public record Span(TimingPhase phase, String name, long offsetNanos, long durationNanos) {
+    }
+}
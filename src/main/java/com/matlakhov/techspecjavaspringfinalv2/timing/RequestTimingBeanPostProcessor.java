@@ -0,0 +1,108 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import com.matlakhov.techspecjavaspringfinalv2.mappers.SubscriptionMapper;
+import com.matlakhov.techspecjavaspringfinalv2.mappers.UserMapper;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+
+/**
+ * Подключает замеры {@link RequestTiming} к основному источнику данных ({@link TimingDataSource}),
+ * к сервисам ({@code @Service}), репозиториям (Spring Data и {@code @Repository}) и мапперам MapStruct.
+ * <p>
+ * С репликами и шардами основной источник - {@link LazyConnectionDataSourceProxy}: он отдаёт соединение сразу,
+ * а берёт его из пула при первом запросе. Поэтому замер ставится между прокси и маршрутизирующим источником,
+ * и ожидание пула попадает в получение соединения, а не в выполнение запроса.
+ * <p>
+ * Сервисы и репозитории уже обёрнуты прокси транзакций и трансляции исключений: замер добавляется в их
+ * цепочку первым, поэтому время сервиса включает открытие и фиксацию транзакции. Мапперы оборачиваются
+ * прокси по интерфейсу. Вне выборки замер обходится одним чтением {@link ThreadLocal}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.request-timing", name = "enabled", havingValue = "true")
+public class RequestTimingBeanPostProcessor implements BeanPostProcessor, BeanClassLoaderAware {
+    /**
+     * Источник данных, через который работают JPA и {@code JdbcTemplate}, при любой конфигурации базы.
+     */
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    private ClassLoader classLoader;
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && DATA_SOURCE_BEAN.equals(beanName)) {
+            if (bean instanceof LazyConnectionDataSourceProxy lazy && lazy.getTargetDataSource() != null) {
+                lazy.setTargetDataSource(new TimingDataSource(lazy.getTargetDataSource()));
+                return bean;
+            }
+            return new TimingDataSource(dataSource);
+        }
+        TimingPhase phase = phaseOf(bean);
+        if (phase == null) {
+            return bean;
+        }
+        PhaseInterceptor interceptor = new PhaseInterceptor(phase, beanName);
+        if (bean instanceof Advised advised) {
+            if (!advised.isFrozen()) {
+                advised.addAdvisor(0, new DefaultPointcutAdvisor(interceptor));
+            }
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(phase != TimingPhase.MAPPING);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy(classLoader);
+    }
+
+    private static TimingPhase phaseOf(Object bean) {
+        if (bean instanceof UserMapper || bean instanceof SubscriptionMapper) {
+            return TimingPhase.MAPPING;
+        }
+        if (bean instanceof Repository<?, ?>) {
+            return TimingPhase.REPOSITORY;
+        }
+        Class<?> type = AopUtils.getTargetClass(bean);
+        if (AnnotatedElementUtils.hasAnnotation(type, org.springframework.stereotype.Repository.class)) {
+            return TimingPhase.REPOSITORY;
+        }
+        if (AnnotatedElementUtils.hasAnnotation(type, Service.class)) {
+            return TimingPhase.SERVICE;
+        }
+        return null;
+    }
+
+    private record PhaseInterceptor(TimingPhase phase, String beanName) implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            RequestTiming timing = RequestTiming.current();
+            if (timing == null) {
+                return invocation.proceed();
+            }
+            long entered = timing.enter(phase);
+            try {
+                return invocation.proceed();
+            } finally {
+                timing.exit(phase, entered, beanName, invocation.getMethod().getName());
+            }
+        }
+    }
+}
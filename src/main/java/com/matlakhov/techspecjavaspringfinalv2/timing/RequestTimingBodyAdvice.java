@@ -0,0 +1,35 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Отмечает в {@link RequestTiming} начало записи тела ответа, в том числе ответа обработчика исключений:
+ * дальше тело сериализуется конвертером сообщений.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(prefix = "app.request-timing", name = "enabled", havingValue = "true")
+public class RequestTimingBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.bodyWriteStarted(System.nanoTime());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,93 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+
+/**
+ * Фильтр, замеряющий этапы запросов из выборки {@link RequestTimingService} и добавляющий к ответу
+ * заголовок {@code Server-Timing}.
+ * <p>
+ * Сериализация заканчивается вместе с записью тела, поэтому ответ замеряемого запроса буферизуется и уходит
+ * клиенту после заголовка. Асинхронный ответ (групповое сохранение подписок) отправляется после повторной
+ * диспетчеризации. Поток топа подписок не замеряется: его ответ не заканчивается.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "app.request-timing", name = "enabled", havingValue = "true")
+public class RequestTimingFilter extends OncePerRequestFilter {
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+    private static final String TIMING_ATTRIBUTE = RequestTimingFilter.class.getName() + ".timing";
+    private static final String TOP_STREAM_PATH = "/subscriptions/top/stream";
+
+    private final RequestTimingService timingService;
+
+    public RequestTimingFilter(RequestTimingService timingService) {
+        this.timingService = timingService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return TOP_STREAM_PATH.equals(request.getRequestURI());
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing;
+        HttpServletResponse responseToUse = response;
+        if (isAsyncDispatch(request)) {
+            // Ответ уже обёрнут при первой обработке запроса
+            timing = (RequestTiming) request.getAttribute(TIMING_ATTRIBUTE);
+        } else {
+            timing = timingService.startIfSampled();
+            if (timing != null) {
+                request.setAttribute(TIMING_ATTRIBUTE, timing);
+                responseToUse = new ContentCachingResponseWrapper(response);
+            }
+        }
+        if (timing == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestTiming.bind(timing);
+        try {
+            filterChain.doFilter(request, responseToUse);
+        } finally {
+            RequestTiming.bind(null);
+        }
+        if (!request.isAsyncStarted()) {
+            finish(request, responseToUse, timing);
+        }
+    }
+
+    private void finish(HttpServletRequest request, HttpServletResponse response, RequestTiming timing)
+            throws IOException {
+        timing.complete(System.nanoTime());
+        String serverTiming = timing.serverTiming();
+        // Ответ, отправленный через sendError, уже передан клиенту: заголовок к нему не добавится
+        response.setHeader(SERVER_TIMING_HEADER, serverTiming);
+        ContentCachingResponseWrapper wrapper =
+                WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (wrapper != null) {
+            wrapper.copyBodyToResponse();
+        }
+        timingService.record(timing, request.getMethod(), request.getRequestURI(), response.getStatus(), serverTiming);
+    }
+}
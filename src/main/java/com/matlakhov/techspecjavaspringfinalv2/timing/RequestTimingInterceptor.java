@@ -0,0 +1,32 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Отмечает в {@link RequestTiming} начало и конец обработчика запроса: по ним считается время контроллера,
+ * сериализации и фильтров. Запросы вне выборки пропускаются.
+ */
+public class RequestTimingInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.handlerStarted(System.nanoTime());
+        }
+        return true;
+    }
+
+    /**
+     * Вызывается после синхронного ответа или после повторной обработки асинхронного.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.handlerCompleted(System.nanoTime());
+        }
+    }
+}
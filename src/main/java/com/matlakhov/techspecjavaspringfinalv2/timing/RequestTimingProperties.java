@@ -0,0 +1,45 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Настройки замеров этапов запроса ({@code app.request-timing.*}).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.request-timing")
+public class RequestTimingProperties {
+
+    /**
+     * Включает замеры и заголовок {@code Server-Timing}; настройка читается при запуске.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Доля замеряемых запросов (от 0 до 1). Ответ замеряемого запроса буферизуется целиком, чтобы заголовок
+     * с временем сериализации ушёл до тела.
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Сохранять трассы замеренных запросов для {@code GET /admin/traces}.
+     */
+    private boolean traceEnabled = false;
+
+    /**
+     * Сколько последних трасс хранится в памяти.
+     */
+    private int traceCapacity = 200;
+
+    /**
+     * Трасса сохраняется, только если запрос выполнялся не меньше этого времени.
+     */
+    private long traceThresholdMs = 0;
+
+    /**
+     * Максимальное количество интервалов в одной трассе; остальные только учитываются в заголовке.
+     */
+    private int maxSpans = 256;
+}
@@ -0,0 +1,95 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.RequestTraceDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.TraceSpanDto;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выборка запросов для замеров этапов и хранение последних трасс ({@code app.request-timing.enabled}).
+ * <p>
+ * Замеряется доля {@code sample-rate} запросов: этапы замеряют {@link RequestTimingFilter},
+ * {@link RequestTimingInterceptor}, {@link RequestTimingBodyAdvice}, прокси сервисов, репозиториев и мапперов
+ * ({@link RequestTimingBeanPostProcessor}) и {@link TimingDataSource}. Трассы хранятся в кольцевом буфере
+ * на {@code trace-capacity} записей; пока трассы выключены, список пуст.
+ */
+@Component
+public class RequestTimingService {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int maxSpans;
+    private final long traceThresholdNanos;
+    private final RequestTraceDto[] traces;
+    /**
+     * Сколько трасс записано с момента запуска; защищено {@code traces}.
+     */
+    private long recorded;
+
+    public RequestTimingService(RequestTimingProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.sampleRate = properties.getSampleRate();
+        boolean tracing = properties.isTraceEnabled() && properties.getTraceCapacity() > 0;
+        this.maxSpans = tracing ? Math.max(1, properties.getMaxSpans()) : 0;
+        this.traceThresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getTraceThresholdMs());
+        this.traces = new RequestTraceDto[tracing ? properties.getTraceCapacity() : 0];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return замеры нового запроса или {@code null}, если запрос не попал в выборку
+     */
+    public RequestTiming startIfSampled() {
+        if (!enabled || sampleRate <= 0.0) {
+            return null;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        return new RequestTiming(System.nanoTime(), maxSpans);
+    }
+
+    /**
+     * Сохраняет трассу завершённого запроса, если трассы включены и запрос не быстрее {@code trace-threshold-ms}.
+     */
+    public void record(RequestTiming timing, String method, String uri, int status, String serverTiming) {
+        if (!timing.isTracing() || timing.totalNanos() < traceThresholdNanos) {
+            return;
+        }
+        List<TraceSpanDto> spans = new ArrayList<>(timing.spans().size());
+        for (RequestTiming.Span span : timing.spans()) {
+            spans.add(new TraceSpanDto(span.phase().metricName(), span.name(),
+                    span.offsetNanos() / NANOS_PER_MILLI, span.durationNanos() / NANOS_PER_MILLI));
+        }
+        RequestTraceDto trace = new RequestTraceDto(LocalDateTime.now().minusNanos(timing.totalNanos()),
+                method, uri, status, timing.totalNanos() / NANOS_PER_MILLI, serverTiming, spans,
+                timing.droppedSpans());
+        synchronized (traces) {
+            traces[(int) (recorded++ % traces.length)] = trace;
+        }
+    }
+
+    /**
+     * @param limit максимальное количество трасс, не больше {@code app.request-timing.trace-capacity}
+     * @return последние трассы, начиная с самой новой
+     */
+    public List<RequestTraceDto> recentTraces(int limit) {
+        synchronized (traces) {
+            int count = (int) Math.min(Math.min(recorded, traces.length), Math.max(limit, 0));
+            List<RequestTraceDto> recent = new ArrayList<>(count);
+            for (long i = recorded - 1; recent.size() < count; i--) {
+                recent.add(traces[(int) (i % traces.length)]);
+            }
+            return recent;
+        }
+    }
+}
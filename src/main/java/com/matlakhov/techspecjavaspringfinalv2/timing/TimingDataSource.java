@@ -0,0 +1,141 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Источник данных, замеряющий получение соединения и выполнение SQL-запросов в запросах из выборки
+ * {@link RequestTimingService}.
+ * <p>
+ * Соединение оборачивается, только если оно получено при замеряемом запросе; остальные соединения
+ * и запросы фоновых задач идут к пулу напрямую.
+ */
+public class TimingDataSource extends DelegatingDataSource {
+
+    public TimingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return super.getConnection();
+        }
+        long entered = timing.enter(TimingPhase.CONNECTION);
+        Connection connection;
+        try {
+            connection = super.getConnection();
+        } finally {
+            timing.exit(TimingPhase.CONNECTION, entered, "getConnection", null);
+        }
+        return wrap(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return super.getConnection(username, password);
+        }
+        long entered = timing.enter(TimingPhase.CONNECTION);
+        Connection connection;
+        try {
+            connection = super.getConnection(username, password);
+        } finally {
+            timing.exit(TimingPhase.CONNECTION, entered, "getConnection", null);
+        }
+        return wrap(connection);
+    }
+
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(TimingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Оборачивает создаваемые соединением запросы, запоминая их текст.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Timing proxy for " + target;
+                default:
+                    break;
+            }
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof Statement statement && method.getReturnType().isInterface()) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return Proxy.newProxyInstance(TimingDataSource.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Замеряет методы {@code execute*} запроса.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+
+        private StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            RequestTiming timing = method.getName().startsWith("execute") ? RequestTiming.current() : null;
+            if (timing == null) {
+                return invokeTarget(target, method, args);
+            }
+            long entered = timing.enter(TimingPhase.JDBC);
+            try {
+                return invokeTarget(target, method, args);
+            } finally {
+                // Statement.execute*(sql) передаёт текст при выполнении
+                String name = sql != null ? sql
+                        : args != null && args.length > 0 && args[0] instanceof String text ? text : method.getName();
+                timing.exit(TimingPhase.JDBC, entered, name, null);
+            }
+        }
+    }
+}
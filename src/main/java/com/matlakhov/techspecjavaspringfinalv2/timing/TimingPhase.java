@@ -0,0 +1,54 @@
+package com.matlakhov.techspecjavaspringfinalv2.timing;
+
+/**
+ * Этапы обработки запроса, время которых попадает в заголовок {@code Server-Timing}.
+ * <p>
+ * Этапы вложены друг в друга: время сервиса включает время репозиториев и JDBC, время контроллера - время сервиса.
+ */
+public enum TimingPhase {
+    /**
+     * Фильтры и диспетчер вне обработчика запроса.
+     */
+    FILTER("filter"),
+    /**
+     * Метод контроллера и перехватчики до записи тела ответа; для асинхронного ответа - вместе с ожиданием.
+     */
+    CONTROLLER("controller"),
+    /**
+     * Вызовы {@code @Service} вместе с открытием и фиксацией транзакции.
+     */
+    SERVICE("service"),
+    /**
+     * Получение соединения из пула.
+     */
+    CONNECTION("db-acquire"),
+    /**
+     * Вызовы репозиториев Spring Data и {@code @Repository}: запрос и разбор результата в сущности.
+     */
+    REPOSITORY("repository"),
+    /**
+     * Выполнение SQL-запросов драйвером.
+     */
+    JDBC("jdbc"),
+    /**
+     * Преобразование сущностей в DTO мапперами MapStruct.
+     */
+    MAPPING("mapping"),
+    /**
+     * Запись тела ответа: сериализация в JSON.
+     */
+    SERIALIZATION("serialization");
+
+    private final String metricName;
+
+    TimingPhase(String metricName) {
+        this.metricName = metricName;
+    }
+
+    /**
+     * @return имя метрики в заголовке {@code Server-Timing}
+     */
+    public String metricName() {
+        return metricName;
+    }
+}
@@ -0,0 +1,90 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.concurrency.AdaptiveConcurrencyLimiter;
+import com.matlakhov.techspecjavaspringfinalv2.concurrency.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private long now;
+
+    @Test
+    void testTryAcquire_AtLimit_ShouldRejectAndCount() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(2), now);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.rejected());
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(5), now);
+        assertEquals(1, limiter.inFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void testLatencyGrowth_ShouldShrinkLimitAndRecover() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(20), now);
+        for (int i = 0; i < 20; i++) {
+            saturatedWindow(limiter, 10);
+        }
+        int normal = limiter.limit();
+        assertTrue(normal >= 20, "При обычном времени ответа предел не уменьшается: " + normal);
+
+        // База замедлилась в пять раз
+        for (int i = 0; i < 10; i++) {
+            saturatedWindow(limiter, 50);
+        }
+        int overloaded = limiter.limit();
+        assertTrue(overloaded < normal / 2, "Предел под перегрузкой: " + overloaded + ", до неё: " + normal);
+        assertTrue(overloaded >= 2);
+
+        for (int i = 0; i < 60; i++) {
+            saturatedWindow(limiter, 10);
+        }
+        assertTrue(limiter.limit() > overloaded * 2, "Предел после перегрузки: " + limiter.limit());
+    }
+
+    @Test
+    void testFewConcurrentRequests_ShouldNotChangeLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(20), now);
+        for (int i = 0; i < 50; i++) {
+            now += WINDOW;
+            for (int j = 0; j < 10; j++) {
+                assertTrue(limiter.tryAcquire());
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(i < 25 ? 10 : 100), now);
+            }
+        }
+
+        assertEquals(20, limiter.limit());
+        assertEquals(0, limiter.rejected());
+    }
+
+    /**
+     * Занимает весь предел и завершает запросы с заданным временем ответа в конце окна.
+     */
+    private void saturatedWindow(AdaptiveConcurrencyLimiter limiter, long rttMillis) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        now += WINDOW;
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(rttMillis), now);
+        }
+    }
+
+    private static ConcurrencyLimitProperties properties(int initialLimit) {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(100);
+        properties.setMinWindowSamples(2);
+        return properties;
+    }
+}
@@ -0,0 +1,161 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditJournal;
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditJournalReader;
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditOperation;
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditProperties;
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditRecord;
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditTrail;
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditJournalTest {
+    private static final int SEGMENT = 4 * AuditJournal.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAuditTrail_DisabledAtRuntime_ShouldNotCreateJournal() throws IOException {
+        // Со Spring AOT бин создаётся и при app.audit.enabled=false, например в пробном запуске CDS
+        Path journalDirectory = directory.resolve("audit");
+        AuditProperties properties = new AuditProperties();
+        properties.setEnabled(false);
+        properties.setDirectory(journalDirectory.toString());
+        AuditTrail trail = new AuditTrail(properties);
+
+        trail.onSubscriptionChanged(new SubscriptionChangedEvent(ChangeType.CREATED, 1L, 10L, "Netflix", null, null));
+        trail.force();
+
+        assertTrue(trail.tail(10).isEmpty());
+        assertFalse(Files.exists(journalDirectory));
+        trail.destroy();
+    }
+
+    @Test
+    void testAppend_ShouldBeReadableFromTail() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT)) {
+            journal.append(AuditOperation.USER_CREATED, 1, 0, "alice", "alice@example.com");
+            journal.append(AuditOperation.SUBSCRIPTION_ADDED, 1, 10, "Netflix", null);
+
+            List<AuditRecord> tail = journal.tail(10);
+
+            assertEquals(2, tail.size());
+            AuditRecord user = tail.get(0);
+            assertEquals(0, user.sequence());
+            assertEquals(AuditOperation.USER_CREATED, user.operation());
+            assertEquals("alice", user.name());
+            assertEquals("alice@example.com", user.email());
+            AuditRecord subscription = tail.get(1);
+            assertEquals(AuditOperation.SUBSCRIPTION_ADDED, subscription.operation());
+            assertEquals(10, subscription.subscriptionId());
+            assertEquals("", subscription.email());
+            assertTrue(subscription.timestamp() > 0);
+        }
+    }
+
+    @Test
+    void testAppend_PastSegment_ShouldRollOver() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(AuditOperation.USER_UPDATED, i, 0, "user" + i, null);
+                journal.force();
+            }
+
+            assertEquals(3, AuditJournalReader.segments(directory).size());
+            assertEquals(List.of(6L, 7L, 8L, 9L), sequences(journal.tail(4)));
+            // В памяти остаются текущий и предыдущий сегменты
+            assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L), sequences(journal.tail(100)));
+        }
+    }
+
+    @Test
+    void testReopen_ShouldContinueAfterLastRecord() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT)) {
+            for (int i = 0; i < 6; i++) {
+                journal.append(AuditOperation.USER_CREATED, i, 0, "user" + i, null);
+            }
+        }
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT)) {
+            assertEquals(6, journal.nextSequence());
+            journal.append(AuditOperation.USER_DELETED, 5, 0, "user5", null);
+        }
+
+        List<AuditRecord> replayed = new ArrayList<>();
+        AuditJournalReader.replay(directory, 0, replayed::add);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L), sequences(replayed));
+        assertEquals(AuditOperation.USER_DELETED, replayed.get(6).operation());
+    }
+
+    @Test
+    void testReplay_FromSequence_ShouldSkipEarlierRecords() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT)) {
+            for (int i = 0; i < 9; i++) {
+                journal.append(AuditOperation.SUBSCRIPTION_DELETED, 1, i, "svc", null);
+            }
+        }
+
+        List<AuditRecord> replayed = new ArrayList<>();
+        AuditJournalReader.replay(directory, 5, replayed::add);
+
+        assertEquals(List.of(5L, 6L, 7L, 8L), sequences(replayed));
+    }
+
+    @Test
+    void testAppend_LongText_ShouldBeTruncatedOnCharacterBoundary() throws IOException {
+        try (AuditJournal journal = new AuditJournal(directory, SEGMENT)) {
+            journal.append(AuditOperation.USER_CREATED, 1, 0, "ж".repeat(30), "a".repeat(100));
+
+            AuditRecord record = journal.tail(1).get(0);
+
+            assertEquals("ж".repeat(AuditJournal.NAME_BYTES / 2), record.name());
+            assertEquals("a".repeat(AuditJournal.EMAIL_BYTES), record.email());
+        }
+    }
+
+    @Test
+    void testAppend_Concurrent_ShouldAssignDistinctSequences() throws Exception {
+        int threads = 4;
+        int perThread = 1_000;
+        try (AuditJournal journal = new AuditJournal(directory, 64 * AuditJournal.RECORD_SIZE)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long userId = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(AuditOperation.USER_UPDATED, userId, i, "user", null);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+        }
+
+        Set<Long> sequences = new HashSet<>();
+        AuditJournalReader.replay(directory, 0, record -> assertTrue(sequences.add(record.sequence())));
+        assertEquals(threads * perThread, sequences.size());
+    }
+
+    private static List<Long> sequences(List<AuditRecord> records) {
+        return records.stream().map(AuditRecord::sequence).toList();
+    }
+}
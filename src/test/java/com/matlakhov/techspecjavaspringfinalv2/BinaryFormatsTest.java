@@ -0,0 +1,90 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+import com.matlakhov.techspecjavaspringfinalv2.json.FastDtoSerializersModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFormatsTest {
+
+    private static final TypeReference<List<SubscriptionDto>> SUBSCRIPTION_LIST = new TypeReference<>() {
+    };
+
+    private final ObjectMapper json = mapper(new JsonFactory());
+    private final ObjectMapper cbor = mapper(new CBORFactory());
+    private final ObjectMapper smile = mapper(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build());
+
+    @Test
+    void testSubscriptionList_BinaryFormats_ShouldRoundTripAndBeSmallerThanJson() throws Exception {
+        List<SubscriptionDto> subscriptions = subscriptions(200);
+
+        byte[] jsonBytes = json.writeValueAsBytes(subscriptions);
+        byte[] cborBytes = cbor.writeValueAsBytes(subscriptions);
+        byte[] smileBytes = smile.writeValueAsBytes(subscriptions);
+
+        assertTrue(cborBytes.length < jsonBytes.length);
+        assertTrue(smileBytes.length < cborBytes.length);
+        assertSameSubscriptions(subscriptions, cbor.readValue(cborBytes, SUBSCRIPTION_LIST));
+        assertSameSubscriptions(subscriptions, smile.readValue(smileBytes, SUBSCRIPTION_LIST));
+    }
+
+    @Test
+    void testUser_Cbor_ShouldRoundTrip() throws Exception {
+        UserDto user = new UserDto();
+        user.setId(1L);
+        user.setUsername("Alice");
+        user.setEmail("alice@example.com");
+        user.setSubscriptions(subscriptions(3));
+
+        UserDto decoded = cbor.readValue(cbor.writeValueAsBytes(user), UserDto.class);
+
+        assertEquals(user.getId(), decoded.getId());
+        assertEquals(user.getUsername(), decoded.getUsername());
+        assertEquals(user.getEmail(), decoded.getEmail());
+        assertSameSubscriptions(user.getSubscriptions(), decoded.getSubscriptions());
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        return new ObjectMapper(factory)
+                .registerModule(new JavaTimeModule())
+                .registerModule(new FastDtoSerializersModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static List<SubscriptionDto> subscriptions(int count) {
+        String[] services = {"Netflix", "YouTube Premium", "VK Музыка", "Яндекс.Плюс"};
+        LocalDateTime start = LocalDateTime.of(2025, 5, 12, 10, 0);
+        List<SubscriptionDto> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(FastDtoSerializersTest.subscription((long) i, services[i % services.length],
+                    start.plusMinutes(i), i % 2 == 0 ? null : start.plusDays(30)));
+        }
+        return result;
+    }
+
+    private static void assertSameSubscriptions(List<SubscriptionDto> expected, List<SubscriptionDto> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getServiceName(), actual.get(i).getServiceName());
+            assertEquals(expected.get(i).getStartDate(), actual.get(i).getStartDate());
+            assertEquals(expected.get(i).getEndDate(), actual.get(i).getEndDate());
+        }
+    }
+}
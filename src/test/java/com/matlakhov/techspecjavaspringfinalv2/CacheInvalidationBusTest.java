@@ -0,0 +1,156 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.CacheInvalidationBus;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.CacheInvalidationProperties;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.CachedEntity;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.InvalidationMessage;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.LocalCache;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardingProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationBusTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private LocalCache cache;
+
+    @Test
+    void testMessage_ShouldRoundTrip() {
+        InvalidationMessage message = new InvalidationMessage(CachedEntity.SUBSCRIPTION, 123456789L, "k3x9a");
+
+        assertEquals("s:123456789:k3x9a", message.encode());
+        assertEquals(message, InvalidationMessage.decode(message.encode()));
+    }
+
+    @Test
+    void testMessage_Malformed_ShouldNotDecode() {
+        assertNull(InvalidationMessage.decode(null));
+        assertNull(InvalidationMessage.decode("x:1:node"));
+        assertNull(InvalidationMessage.decode("u:abc:node"));
+        assertNull(InvalidationMessage.decode("u:1:"));
+        assertNull(InvalidationMessage.decode("u:1"));
+    }
+
+    @Test
+    void testOnUserChanged_ShouldNotifyChannel() {
+        CacheInvalidationBus bus = bus(false);
+
+        bus.onUserChanged(new UserChangedEvent(ChangeType.UPDATED, 42L, "user", "user@example.com"));
+
+        InvalidationMessage message = InvalidationMessage.decode(notifiedPayload());
+        assertNotNull(message);
+        assertEquals(CachedEntity.USER, message.entity());
+        assertEquals(42L, message.id());
+    }
+
+    @Test
+    void testDispatch_OwnNotification_ShouldBeSkipped() {
+        CacheInvalidationBus bus = bus(false);
+        bus.onSubscriptionChanged(new SubscriptionChangedEvent(
+                ChangeType.CREATED, 1L, 7L, "Netflix", LocalDateTime.now(), null));
+
+        bus.dispatch(0, notifiedPayload());
+
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void testDispatch_OtherNode_ShouldEvictEntry() {
+        CacheInvalidationBus bus = bus(false);
+        List<Integer> shards = new ArrayList<>();
+        doAnswer(invocation -> shards.add(ShardContext.currentShard()))
+                .when(cache).evict(CachedEntity.SUBSCRIPTION, 7L);
+
+        bus.dispatch(0, new InvalidationMessage(CachedEntity.SUBSCRIPTION, 7L, "other").encode());
+
+        verify(cache).evict(CachedEntity.SUBSCRIPTION, 7L);
+        assertEquals(Collections.singletonList(null), shards);
+    }
+
+    @Test
+    void testDispatch_Sharded_ShouldBindShardOfNotification() {
+        CacheInvalidationBus bus = bus(true);
+        List<Integer> shards = new ArrayList<>();
+        doAnswer(invocation -> shards.add(ShardContext.currentShard()))
+                .when(cache).evict(CachedEntity.USER, 5L);
+
+        bus.dispatch(1, new InvalidationMessage(CachedEntity.USER, 5L, "other").encode());
+
+        assertEquals(List.of(1), shards);
+        assertNull(ShardContext.currentShard());
+    }
+
+    @Test
+    void testDispatch_UnknownPayload_ShouldBeIgnored() {
+        bus(false).dispatch(0, "garbage");
+
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void testEvictAll_ShouldFlushEveryCache() {
+        bus(false).evictAll();
+
+        verify(cache).evictAll();
+    }
+
+    @Test
+    void testInvalidChannel_ShouldBeRejected() {
+        CacheInvalidationProperties properties = new CacheInvalidationProperties();
+        properties.setChannel("bad; DROP TABLE users");
+
+        assertThrows(IllegalArgumentException.class, () -> new CacheInvalidationBus(
+                properties, dataSourceProperties(), new ShardingProperties(), jdbcTemplate, List.of(cache)));
+    }
+
+    private CacheInvalidationBus bus(boolean sharded) {
+        ShardingProperties sharding = new ShardingProperties();
+        if (sharded) {
+            sharding.setEnabled(true);
+            for (int i = 0; i < 2; i++) {
+                ShardingProperties.Shard shard = new ShardingProperties.Shard();
+                shard.setUrl("jdbc:postgresql://localhost/shard" + i);
+                sharding.getShards().add(shard);
+            }
+        }
+        return new CacheInvalidationBus(new CacheInvalidationProperties(), dataSourceProperties(), sharding,
+                jdbcTemplate, List.of(cache));
+    }
+
+    private static DataSourceProperties dataSourceProperties() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:postgresql://localhost/app");
+        properties.setUsername("postgres");
+        properties.setPassword("postgres");
+        return properties;
+    }
+
+    private String notifiedPayload() {
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).queryForList(eq("SELECT pg_notify(?, ?)"), args.capture(), args.capture());
+        assertEquals("app_cache_invalidation", args.getAllValues().get(0));
+        return (String) args.getAllValues().get(1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
+import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class EntityEqualityTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUser_EqualsHashCodeToString_ShouldNotTouchSubscriptions() {
+        UserEntity user = user(1L);
+        user.setSubscriptionEntities(mock(List.class, invocation -> {
+            throw new AssertionError("Subscriptions must not be loaded");
+        }));
+
+        assertEquals(user, user(1L));
+        assertEquals(user(1L).hashCode(), user.hashCode());
+        assertTrue(user.toString().contains("testuser"));
+    }
+
+    @Test
+    void testSubscription_ToString_ShouldNotTouchUser() {
+        SubscriptionEntity subscription = new SubscriptionEntity();
+        subscription.setId(5L);
+        subscription.setServiceName("Netflix");
+        subscription.setUserEntity(mock(UserEntity.class, invocation -> {
+            throw new AssertionError("User must not be loaded");
+        }));
+
+        assertTrue(subscription.toString().contains("Netflix"));
+        assertEquals(subscription.hashCode(), new SubscriptionEntity().hashCode());
+    }
+
+    @Test
+    void testEquals_ShouldCompareIdentifiers() {
+        assertNotEquals(user(1L), user(2L));
+        assertNotEquals(user(null), user(null));
+
+        SubscriptionEntity first = new SubscriptionEntity();
+        first.setId(7L);
+        SubscriptionEntity second = new SubscriptionEntity();
+        second.setId(7L);
+        assertEquals(first, second);
+        assertNotEquals(new SubscriptionEntity(), new SubscriptionEntity());
+    }
+
+    @Test
+    void testHashCode_ShouldNotChangeWhenIdAssigned() {
+        UserEntity user = user(null);
+        Set<UserEntity> users = new HashSet<>(Set.of(user));
+
+        user.setId(10L);
+
+        assertTrue(users.contains(user));
+    }
+
+    private static UserEntity user(Long id) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user.setIsDeleted(false);
+        return user;
+    }
+}
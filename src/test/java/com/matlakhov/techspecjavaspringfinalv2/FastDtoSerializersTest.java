@@ -0,0 +1,100 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+import com.matlakhov.techspecjavaspringfinalv2.json.FastDtoSerializersModule;
+import com.matlakhov.techspecjavaspringfinalv2.json.IsoDateTimeFormat;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastDtoSerializersTest {
+
+    private final ObjectMapper defaultMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final ObjectMapper fastMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .registerModule(new FastDtoSerializersModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void testFormat_RandomDates_ShouldMatchIsoLocalDateTime() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime value = LocalDateTime.of(
+                    random.nextInt(10_000), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60),
+                    randomNano(random));
+            assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value), IsoDateTimeFormat.format(value));
+        }
+    }
+
+    @Test
+    void testFormat_YearOutOfRange_ShouldFallBackToDateTimeFormatter() {
+        LocalDateTime value = LocalDateTime.of(12345, 1, 2, 3, 4, 5);
+
+        assertEquals(-1, IsoDateTimeFormat.format(value, new char[IsoDateTimeFormat.MAX_LENGTH]));
+        assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value), IsoDateTimeFormat.format(value));
+    }
+
+    @Test
+    void testSerialize_SubscriptionList_ShouldMatchDefaultSerialization() throws Exception {
+        List<SubscriptionDto> subscriptions = List.of(
+                subscription(1L, "Netflix", LocalDateTime.of(2025, 5, 12, 10, 0), null),
+                subscription(2L, "VK Музыка \"Премиум\"", LocalDateTime.of(2025, 5, 12, 10, 0, 1, 120_000_000),
+                        LocalDateTime.of(2025, 6, 12, 10, 0)),
+                subscription(null, null, null, null));
+
+        assertEquals(defaultMapper.writeValueAsString(subscriptions), fastMapper.writeValueAsString(subscriptions));
+    }
+
+    @Test
+    void testSerialize_UserWithSubscriptions_ShouldMatchDefaultSerialization() throws Exception {
+        UserDto user = new UserDto();
+        user.setId(7L);
+        user.setUsername("Alice");
+        user.setEmail("alice@example.com");
+        user.setActiveSubscriptionCount(1L);
+        user.setSubscriptions(new ArrayList<>(Arrays.asList(
+                subscription(1L, "YouTube Premium", LocalDateTime.of(2025, 1, 1, 0, 0), null),
+                null)));
+
+        UserDto withoutSubscriptions = new UserDto();
+        withoutSubscriptions.setId(8L);
+        withoutSubscriptions.setUsername("Bob");
+
+        assertEquals(defaultMapper.writeValueAsString(user), fastMapper.writeValueAsString(user));
+        assertEquals(defaultMapper.writeValueAsString(withoutSubscriptions),
+                fastMapper.writeValueAsString(withoutSubscriptions));
+    }
+
+    private static int randomNano(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> 0;
+            case 1 -> random.nextInt(1000) * 1_000_000;
+            case 2 -> random.nextInt(1_000_000) * 1000;
+            default -> random.nextInt(1_000_000_000);
+        };
+    }
+
+    static SubscriptionDto subscription(Long id, String serviceName, LocalDateTime start, LocalDateTime end) {
+        SubscriptionDto dto = new SubscriptionDto();
+        dto.setId(id);
+        dto.setServiceName(serviceName);
+        dto.setStartDate(start);
+        dto.setEndDate(end);
+        return dto;
+    }
+}
@@ -0,0 +1,89 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.HotKeyDto;
+import com.matlakhov.techspecjavaspringfinalv2.hotkeys.FrequencySketch;
+import com.matlakhov.techspecjavaspringfinalv2.hotkeys.HotKeyWindow;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotKeyWindowTest {
+
+    @Test
+    void testSketch_HeavyHittersAmongManyKeys_ShouldBeOnTop() {
+        FrequencySketch sketch = new FrequencySketch(1024, 4, 8);
+        for (int i = 0; i < 50_000; i++) {
+            sketch.add("user-" + i);
+            if (i % 10 == 0) {
+                sketch.add("hot-a");
+            }
+            if (i % 25 == 0) {
+                sketch.add("hot-b");
+            }
+        }
+
+        List<Map.Entry<String, Integer>> top = sketch.top(2);
+
+        assertEquals("hot-a", top.get(0).getKey());
+        assertEquals("hot-b", top.get(1).getKey());
+        assertTrue(top.get(0).getValue() >= 5_000, "count-min never underestimates");
+        assertTrue(sketch.estimate("user-1") >= 1);
+    }
+
+    @Test
+    void testSketch_ShouldKeepAtMostCapacityCandidates() {
+        FrequencySketch sketch = new FrequencySketch(64, 2, 3);
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add("key-" + (i % 100));
+        }
+
+        assertEquals(3, sketch.top(10).size());
+    }
+
+    @Test
+    void testWindow_ShouldReportRatesOfCompletedWindow() {
+        HotKeyWindow window = new HotKeyWindow(10_000, 1.0, 256, 4, 10, 0);
+        for (int i = 0; i < 300; i++) {
+            window.record("42", 1_000);
+        }
+        for (int i = 0; i < 100; i++) {
+            window.record("7", 2_000);
+        }
+        // Текущее окно ещё не завершено: частота считается по прошедшему времени
+        List<HotKeyDto> partial = window.top(5, 5_000);
+        assertEquals("42", partial.get(0).getKey());
+        assertEquals(60.0, partial.get(0).getRequestsPerSecond(), 1e-9);
+
+        window.record("7", 12_000);
+        List<HotKeyDto> complete = window.top(5, 15_000);
+
+        assertEquals(2, complete.size());
+        assertEquals("42", complete.get(0).getKey());
+        assertEquals(300, complete.get(0).getRequests());
+        assertEquals(30.0, complete.get(0).getRequestsPerSecond(), 1e-9);
+        assertEquals(10.0, complete.get(1).getRequestsPerSecond(), 1e-9);
+    }
+
+    @Test
+    void testWindow_IdleLongerThanWindow_ShouldForgetOldTraffic() {
+        HotKeyWindow window = new HotKeyWindow(10_000, 1.0, 256, 4, 10, 0);
+        window.record("42", 1_000);
+
+        assertTrue(window.top(5, 35_000).isEmpty());
+    }
+
+    @Test
+    void testWindow_Sampling_ShouldScaleEstimates() {
+        HotKeyWindow window = new HotKeyWindow(1_000, 0.5, 256, 4, 10, 0);
+        for (int i = 0; i < 20_000; i++) {
+            window.record("hot", 100);
+        }
+
+        long requests = window.top(1, 1_500).get(0).getRequests();
+
+        assertEquals(20_000, requests, 1_000);
+    }
+}
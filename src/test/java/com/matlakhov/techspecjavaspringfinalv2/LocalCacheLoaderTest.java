@@ -0,0 +1,85 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.LocalCacheLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCacheLoaderTest {
+
+    @Test
+    void testFailedLoad_ShouldDropPendingChangesAndRetry() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch firstFailed = new CountDownLatch(1);
+        CountDownLatch retryStarted = new CountDownLatch(1);
+        CountDownLatch finishRetry = new CountDownLatch(1);
+        List<String> applied = new CopyOnWriteArrayList<>();
+        LocalCacheLoader loader = new LocalCacheLoader("test", "test-loader", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                firstFailed.countDown();
+                throw new IllegalStateException("connection refused");
+            }
+            retryStarted.countDown();
+            await(finishRetry);
+        }, () -> 0, 200, 1000);
+
+        loader.apply(() -> applied.add("before start"));
+        loader.start();
+        assertTrue(firstFailed.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        // Во время паузы перед повтором изменения не копятся: повторная загрузка прочитает их из базы
+        loader.apply(() -> applied.add("while waiting"));
+        assertTrue(retryStarted.await(1, TimeUnit.SECONDS));
+        loader.apply(() -> applied.add("while loading"));
+        assertFalse(loader.isReady());
+        finishRetry.countDown();
+
+        waitUntilReady(loader);
+        assertEquals(List.of("while loading"), applied);
+        loader.apply(() -> applied.add("after load"));
+        assertEquals(List.of("while loading", "after load"), applied);
+    }
+
+    @Test
+    void testReload_DuringLoad_ShouldLoadAgain() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch finishFirst = new CountDownLatch(1);
+        LocalCacheLoader loader = new LocalCacheLoader("test", "test-loader", () -> {
+            if (loads.incrementAndGet() == 1) {
+                firstStarted.countDown();
+                await(finishFirst);
+            }
+        }, () -> 0, 200, 1000);
+
+        loader.start();
+        assertTrue(firstStarted.await(1, TimeUnit.SECONDS));
+        loader.reload();
+        finishFirst.countDown();
+
+        waitUntilReady(loader);
+        assertEquals(2, loads.get());
+    }
+
+    private static void waitUntilReady(LocalCacheLoader loader) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!loader.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(loader.isReady());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
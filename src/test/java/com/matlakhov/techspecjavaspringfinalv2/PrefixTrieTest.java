@@ -0,0 +1,88 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.search.PrefixTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTest {
+
+    @Test
+    void testForEachWithPrefix_ShouldReturnMatchesInKeyOrder() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        for (String key : List.of("alina", "al", "alice", "bob", "albert", "alicia")) {
+            trie.put(key, key);
+        }
+
+        assertEquals(List.of("al", "albert", "alice", "alicia", "alina"), collect(trie, "al", 10));
+        assertEquals(List.of("alice", "alicia"), collect(trie, "alic", 10));
+        // Префикс заканчивается внутри метки ребра
+        assertEquals(List.of("albert"), collect(trie, "albe", 10));
+        assertEquals(List.of("al", "albert"), collect(trie, "a", 2));
+        assertEquals(List.of(), collect(trie, "alx", 10));
+        assertEquals(List.of(), collect(trie, "alicias", 10));
+        assertEquals(6, trie.size());
+    }
+
+    @Test
+    void testRemove_ShouldKeepOtherKeysAndSharedKeyValues() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("alice", "Alice");
+        trie.put("alice", "ALICE");
+        trie.put("alicia", "alicia");
+        trie.put("al", "al");
+
+        assertTrue(trie.remove("alice", "Alice"));
+        assertFalse(trie.remove("alice", "Alice"));
+        assertFalse(trie.remove("ali", "ali"));
+        assertEquals(List.of("ALICE", "alicia"), collect(trie, "ali", 10));
+
+        assertTrue(trie.remove("alice", "ALICE"));
+        assertTrue(trie.remove("al", "al"));
+        assertEquals(List.of("alicia"), collect(trie, "a", 10));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void testRandomOperations_ShouldMatchSortedMap() {
+        Random random = new Random(42);
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        TreeMap<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            String key = randomKey(random);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, trie.remove(key, key));
+            } else if (expected.putIfAbsent(key, key) == null) {
+                trie.put(key, key);
+            }
+        }
+
+        assertEquals(expected.size(), trie.size());
+        for (String prefix : List.of("a", "ab", "abc", "b", "ca", "cab", "abca")) {
+            List<String> matches = new ArrayList<>(expected.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+            assertEquals(matches, collect(trie, prefix, Integer.MAX_VALUE), prefix);
+        }
+    }
+
+    private static List<String> collect(PrefixTrie<String> trie, String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        trie.forEachWithPrefix(prefix, value -> {
+            result.add(value);
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    private static String randomKey(Random random) {
+        char[] key = new char[1 + random.nextInt(6)];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(key);
+    }
+}
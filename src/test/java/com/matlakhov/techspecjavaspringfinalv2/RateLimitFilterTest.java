@@ -0,0 +1,101 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.ratelimit.RateLimitFilter;
+import com.matlakhov.techspecjavaspringfinalv2.ratelimit.RateLimitProperties;
+import com.matlakhov.techspecjavaspringfinalv2.ratelimit.TokenBucketRateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testTryAcquire_ShouldAllowBurstThenRefill() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 1, 60 * SECOND, 4);
+        long now = 1_000 * SECOND;
+
+        assertEquals(0, limiter.tryAcquire("client", now));
+        assertEquals(0, limiter.tryAcquire("client", now));
+        assertEquals(0, limiter.tryAcquire("client", now));
+        assertEquals(SECOND, limiter.tryAcquire("client", now));
+        assertEquals(0, limiter.tryAcquire("other", now));
+
+        assertEquals(SECOND / 2, limiter.tryAcquire("client", now + SECOND / 2));
+        assertEquals(0, limiter.tryAcquire("client", now + SECOND));
+        assertTrue(limiter.tryAcquire("client", now + SECOND) > 0);
+    }
+
+    @Test
+    void testTryAcquire_ShouldEvictIdleClientsLazily() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 10 * SECOND, 1);
+        long now = 1_000 * SECOND;
+        limiter.tryAcquire("idle", now);
+        limiter.tryAcquire("active", now + 5 * SECOND);
+        assertEquals(2, limiter.size());
+
+        limiter.tryAcquire("active", now + 12 * SECOND);
+
+        assertEquals(1, limiter.size());
+        assertEquals(0, limiter.tryAcquire("idle", now + 12 * SECOND));
+    }
+
+    @Test
+    void testFilter_ShouldRejectWithRetryAfterPerClientAndEndpoint() throws Exception {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setMethod("GET");
+        limit.setPattern("/users/{id}");
+        limit.setCapacity(2);
+        limit.setRefillPerSecond(0.5);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefaultCapacity(0);
+        properties.setLimits(List.of(limit));
+        properties.setApiKeys(Set.of("key-1", "key-2"));
+        RateLimitFilter filter = new RateLimitFilter(properties);
+
+        assertEquals(200, perform(filter, "/users/1", "key-1").getStatus());
+        assertEquals(200, perform(filter, "/users/2", "key-1").getStatus());
+        MockHttpServletResponse rejected = perform(filter, "/users/3", "key-1");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("2", rejected.getHeader("Retry-After"));
+        assertEquals("{\"error\":\"Too many requests\"}", rejected.getContentAsString());
+
+        assertEquals(200, perform(filter, "/users/1", "key-2").getStatus());
+        assertEquals(200, perform(filter, "/users/1", null).getStatus());
+        assertEquals(200, perform(filter, "/subscriptions/top", "key-1").getStatus());
+    }
+
+    @Test
+    void testFilter_UnknownApiKeys_ShouldShareBucketOfIp() throws Exception {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefaultCapacity(2);
+        properties.setDefaultRefillPerSecond(0.5);
+        properties.setApiKeys(Set.of("key-1"));
+        RateLimitFilter filter = new RateLimitFilter(properties);
+
+        // Новый ключ на каждый запрос не даёт новой корзины
+        assertEquals(200, perform(filter, "/users", "random-1").getStatus());
+        assertEquals(200, perform(filter, "/users", "random-2").getStatus());
+        assertEquals(429, perform(filter, "/users", "random-3").getStatus());
+        assertEquals(429, perform(filter, "/users", null).getStatus());
+
+        assertEquals(200, perform(filter, "/users", "key-1").getStatus());
+    }
+
+    private static MockHttpServletResponse perform(RateLimitFilter filter, String uri, String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
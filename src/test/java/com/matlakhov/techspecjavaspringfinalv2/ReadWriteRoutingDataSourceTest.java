@@ -0,0 +1,132 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.routing.ReadWriteRoutingDataSource;
+import com.matlakhov.techspecjavaspringfinalv2.routing.ReadYourWritesTracker;
+import com.matlakhov.techspecjavaspringfinalv2.routing.UserRoutingContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replica1Connection;
+
+    @Mock
+    private Connection replica2Connection;
+
+    private ReadYourWritesTracker tracker;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new ReadYourWritesTracker(60_000);
+        routing = new ReadWriteRoutingDataSource(primary, List.of(replica1, replica2), tracker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        UserRoutingContext.clear();
+    }
+
+    @Test
+    void testGetConnection_ReadWriteTransaction_ShouldUsePrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routing.getConnection());
+        verifyNoInteractions(replica1, replica2);
+    }
+
+    @Test
+    void testGetConnection_ReadOnlyTransaction_ShouldRoundRobinReplicas() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica1.getConnection()).thenReturn(replica1Connection);
+        when(replica2.getConnection()).thenReturn(replica2Connection);
+
+        assertSame(replica1Connection, routing.getConnection());
+        assertSame(replica2Connection, routing.getConnection());
+        assertSame(replica1Connection, routing.getConnection());
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void testGetConnection_ReplicaFails_ShouldSkipItAndFallBackToPrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica1.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(replica2.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routing.getConnection());
+        assertEquals(0, routing.healthyReplicaCount());
+
+        // Недоступные реплики больше не опрашиваются до следующей проверки
+        assertSame(primaryConnection, routing.getConnection());
+        verify(replica1, times(1)).getConnection();
+        verify(replica2, times(1)).getConnection();
+    }
+
+    @Test
+    void testCheckReplicas_ReplicaRecovered_ShouldReturnItToRotation() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica1.getConnection())
+                .thenThrow(new SQLException("connection refused"))
+                .thenReturn(replica1Connection);
+        when(replica1Connection.isValid(anyInt())).thenReturn(true);
+        when(replica2.getConnection()).thenReturn(replica2Connection);
+        when(replica2Connection.isValid(anyInt())).thenReturn(true);
+
+        assertSame(replica2Connection, routing.getConnection());
+        assertEquals(1, routing.healthyReplicaCount());
+
+        routing.checkReplicas();
+
+        assertEquals(2, routing.healthyReplicaCount());
+    }
+
+    @Test
+    void testGetConnection_RecentWriteBySameUser_ShouldReadFromPrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        tracker.markWritten(42L);
+        UserRoutingContext.bind(42L);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routing.getConnection());
+        verifyNoInteractions(replica1, replica2);
+    }
+
+    @Test
+    void testGetConnection_RecentWriteByOtherUser_ShouldReadFromReplica() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        tracker.markWritten(42L);
+        UserRoutingContext.bind(7L);
+        when(replica1.getConnection()).thenReturn(replica1Connection);
+
+        assertSame(replica1Connection, routing.getConnection());
+    }
+}
@@ -0,0 +1,185 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.RequestTraceDto;
+import com.matlakhov.techspecjavaspringfinalv2.timing.RequestTiming;
+import com.matlakhov.techspecjavaspringfinalv2.timing.RequestTimingBeanPostProcessor;
+import com.matlakhov.techspecjavaspringfinalv2.timing.RequestTimingProperties;
+import com.matlakhov.techspecjavaspringfinalv2.timing.RequestTimingService;
+import com.matlakhov.techspecjavaspringfinalv2.timing.TimingDataSource;
+import com.matlakhov.techspecjavaspringfinalv2.timing.TimingPhase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RequestTimingTest {
+    private static final Pattern SERVER_TIMING = Pattern.compile(
+            "total;dur=\\d+\\.\\d{3}(, [a-z-]+;dur=\\d+\\.\\d{3}(;desc=\"\\d+ calls\")?)*");
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.bind(null);
+    }
+
+    @Test
+    void testNestedCallsOfSamePhase_ShouldBeCountedOnce() {
+        RequestTiming timing = new RequestTiming(System.nanoTime(), 16);
+
+        long outer = timing.enter(TimingPhase.SERVICE);
+        long inner = timing.enter(TimingPhase.SERVICE);
+        timing.exit(TimingPhase.SERVICE, inner, "subscriptionService", "getTopSubscriptions");
+        timing.exit(TimingPhase.SERVICE, outer, "userService", "getUser");
+        for (int i = 0; i < 2; i++) {
+            timing.exit(TimingPhase.JDBC, timing.enter(TimingPhase.JDBC), "select 1", null);
+        }
+        timing.complete(System.nanoTime());
+
+        assertEquals(1, timing.calls(TimingPhase.SERVICE));
+        assertEquals(2, timing.calls(TimingPhase.JDBC));
+        // Время вложенного вызова уже входит во внешний
+        assertEquals(timing.spans().get(1).durationNanos(), timing.nanos(TimingPhase.SERVICE));
+        assertEquals("userService.getUser", timing.spans().get(1).name());
+        String header = timing.serverTiming();
+        assertTrue(SERVER_TIMING.matcher(header).matches(), header);
+        assertTrue(header.contains("jdbc;dur="), header);
+        assertTrue(header.contains(";desc=\"2 calls\""), header);
+        // Обработчик не вызывался: всё время запроса - фильтры
+        assertEquals(timing.totalNanos(), timing.nanos(TimingPhase.FILTER));
+        assertFalse(header.contains("controller"), header);
+    }
+
+    @Test
+    void testHandlerMarks_ShouldSplitControllerSerializationAndFilters() {
+        RequestTiming timing = new RequestTiming(1_000_000, 0);
+
+        timing.handlerStarted(1_500_000);
+        // Повторная диспетчеризация асинхронного ответа
+        timing.handlerStarted(4_000_000);
+        timing.bodyWriteStarted(5_000_000);
+        timing.handlerCompleted(5_750_000);
+        timing.complete(6_000_000);
+
+        assertEquals(3_500_000, timing.nanos(TimingPhase.CONTROLLER));
+        assertEquals(750_000, timing.nanos(TimingPhase.SERIALIZATION));
+        assertEquals(750_000, timing.nanos(TimingPhase.FILTER));
+        assertEquals("total;dur=5.000, filter;dur=0.750, controller;dur=3.500, serialization;dur=0.750",
+                timing.serverTiming());
+        assertFalse(timing.isTracing());
+        assertTrue(timing.spans().isEmpty());
+    }
+
+    @Test
+    void testSpans_OverLimit_ShouldBeDropped() {
+        RequestTiming timing = new RequestTiming(System.nanoTime(), 2);
+
+        for (int i = 0; i < 5; i++) {
+            timing.exit(TimingPhase.REPOSITORY, timing.enter(TimingPhase.REPOSITORY), "userRepository", "findById");
+        }
+
+        assertEquals(2, timing.spans().size());
+        assertEquals(3, timing.droppedSpans());
+        assertEquals(5, timing.calls(TimingPhase.REPOSITORY));
+    }
+
+    @Test
+    void testDataSource_ShouldTimeOnlySampledRequests() throws Exception {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select * from users where id = ?")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        TimingDataSource dataSource = new TimingDataSource(target);
+
+        // Вне выборки соединение не оборачивается
+        assertSame(connection, dataSource.getConnection());
+
+        RequestTiming timing = new RequestTiming(System.nanoTime(), 16);
+        RequestTiming.bind(timing);
+        try (Connection timed = dataSource.getConnection();
+             PreparedStatement prepared = timed.prepareStatement("select * from users where id = ?")) {
+            prepared.setLong(1, 42);
+            assertSame(resultSet, prepared.executeQuery());
+        }
+
+        verify(statement).setLong(1, 42);
+        verify(statement).close();
+        verify(connection).close();
+        assertEquals(1, timing.calls(TimingPhase.CONNECTION));
+        assertEquals(1, timing.calls(TimingPhase.JDBC));
+        List<RequestTiming.Span> spans = timing.spans();
+        assertEquals("getConnection", spans.get(0).name());
+        assertEquals(TimingPhase.JDBC, spans.get(1).phase());
+        assertEquals("select * from users where id = ?", spans.get(1).name());
+    }
+
+    @Test
+    void testLazyDataSource_ShouldTimeRealConnectionFetch() throws Exception {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(target.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement("select 1")).thenReturn(statement);
+        LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy(target);
+        // Иначе прокси берёт соединение при первом вызове, чтобы узнать настройки по умолчанию
+        lazy.setDefaultAutoCommit(true);
+        lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+        Object processed = new RequestTimingBeanPostProcessor().postProcessAfterInitialization(lazy, "dataSource");
+
+        assertSame(lazy, processed);
+        assertInstanceOf(TimingDataSource.class, lazy.getTargetDataSource());
+        RequestTiming timing = new RequestTiming(System.nanoTime(), 16);
+        RequestTiming.bind(timing);
+        try (Connection lazyConnection = lazy.getConnection()) {
+            // Ленивое соединение ещё не взято из пула
+            assertEquals(0, timing.calls(TimingPhase.CONNECTION));
+            try (PreparedStatement prepared = lazyConnection.prepareStatement("select 1")) {
+                prepared.execute();
+            }
+        }
+
+        verify(target, times(1)).getConnection();
+        assertEquals(1, timing.calls(TimingPhase.CONNECTION));
+        assertEquals(1, timing.calls(TimingPhase.JDBC));
+    }
+
+    @Test
+    void testTraces_ShouldKeepNewestUpToCapacity() {
+        RequestTimingProperties properties = new RequestTimingProperties();
+        properties.setEnabled(true);
+        properties.setSampleRate(1.0);
+        properties.setTraceEnabled(true);
+        properties.setTraceCapacity(3);
+        RequestTimingService service = new RequestTimingService(properties);
+
+        for (int i = 1; i <= 5; i++) {
+            RequestTiming timing = service.startIfSampled();
+            timing.complete(System.nanoTime());
+            service.record(timing, "GET", "/users/" + i, 200, timing.serverTiming());
+        }
+
+        List<RequestTraceDto> traces = service.recentTraces(10);
+        assertEquals(List.of("/users/5", "/users/4", "/users/3"), traces.stream().map(RequestTraceDto::getUri).toList());
+        assertEquals(1, service.recentTraces(1).size());
+    }
+
+    @Test
+    void testSampling_Disabled_ShouldNotStartTiming() {
+        RequestTimingProperties properties = new RequestTimingProperties();
+        properties.setSampleRate(1.0);
+
+        assertNull(new RequestTimingService(properties).startIfSampled());
+        assertTrue(new RequestTimingService(properties).recentTraces(10).isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.read.ListAppender;
+import com.matlakhov.techspecjavaspringfinalv2.logging.RingBufferAsyncAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferAsyncAppenderTest {
+
+    private LoggerContext context;
+    private Logger logger;
+    private ListAppender<ILoggingEvent> target;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        logger = context.getLogger("test");
+        target = new ListAppender<>();
+        target.setContext(context);
+        target.start();
+    }
+
+    @Test
+    void testAppend_SingleProducer_ShouldDeliverAllEventsInOrderOnStop() {
+        RingBufferAsyncAppender appender = newAppender(16);
+
+        for (int i = 0; i < 10; i++) {
+            appender.doAppend(event("message " + i));
+        }
+        appender.stop();
+
+        assertEquals(10, target.list.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("message " + i, target.list.get(i).getFormattedMessage());
+        }
+        assertEquals(0, appender.getDroppedCount());
+    }
+
+    @Test
+    void testAppend_ConcurrentProducers_ShouldNotLoseOrDuplicateEvents() throws Exception {
+        RingBufferAsyncAppender appender = newAppender(1 << 16);
+        int producers = 4;
+        int perProducer = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    appender.doAppend(event(producer + ":" + i));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        appender.stop();
+
+        List<String> messages = target.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        assertEquals(producers * perProducer, messages.size());
+        assertEquals(producers * perProducer, messages.stream().distinct().count());
+    }
+
+    @Test
+    void testAppend_BufferFull_ShouldDropInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ListAppender<ILoggingEvent> slowTarget = new ListAppender<>() {
+            @Override
+            protected void append(ILoggingEvent e) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.append(e);
+            }
+        };
+        slowTarget.setContext(context);
+        slowTarget.start();
+
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        appender.setContext(context);
+        appender.setCapacity(4);
+        appender.addAppender(slowTarget);
+        appender.start();
+
+        for (int i = 0; i < 100; i++) {
+            appender.doAppend(event("message " + i));
+        }
+        release.countDown();
+        appender.stop();
+
+        assertTrue(appender.getDroppedCount() > 0);
+        assertEquals(100, slowTarget.list.size() + appender.getDroppedCount());
+    }
+
+    private RingBufferAsyncAppender newAppender(int capacity) {
+        RingBufferAsyncAppender appender = new RingBufferAsyncAppender();
+        appender.setContext(context);
+        appender.setName("ASYNC");
+        appender.setCapacity(capacity);
+        appender.setMaxFlushTimeMillis(5_000);
+        appender.addAppender(target);
+        appender.start();
+        return appender;
+    }
+
+    private ILoggingEvent event(String message) {
+        return new LoggingEvent(Logger.FQCN, logger, Level.INFO, message, null, null);
+    }
+}
@@ -0,0 +1,92 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.schema.SchemaVersion;
+import com.matlakhov.techspecjavaspringfinalv2.schema.SchemaVersionCheck;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SchemaVersionCheckTest {
+    private final SchemaVersion expected = SchemaVersion.current();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Test
+    void testCurrent_ShouldListChangeSetsOfChangelog() {
+        assertTrue(expected.changeSets().contains("db/changelog/001-users.xml::001-create-users::gleb"));
+        assertTrue(expected.changeSets().contains(
+                "db/changelog/006-soft-delete-archive.xml::002-create-archive-tables::gleb"));
+        assertTrue(expected.fingerprint().matches("[0-9a-f]{32}"));
+    }
+
+    @Test
+    void testVerify_AllChangeSetsApplied_ShouldPass() throws SQLException {
+        stubApplied(expected.changeSets().size(), expected.changeSets().size(), expected.fingerprint());
+
+        assertDoesNotThrow(() -> new SchemaVersionCheck(jdbcTemplate, shardedQueries).afterSingletonsInstantiated());
+    }
+
+    @Test
+    void testVerify_SchemaNewerThanBuild_ShouldPass() throws SQLException {
+        stubApplied(expected.changeSets().size() + 1, expected.changeSets().size(), "newer");
+
+        assertDoesNotThrow(() -> new SchemaVersionCheck(jdbcTemplate, shardedQueries).afterSingletonsInstantiated());
+    }
+
+    @Test
+    void testVerify_MissingChangeSet_ShouldFailStartup() throws SQLException {
+        stubApplied(expected.changeSets().size() - 1, expected.changeSets().size() - 1, "older");
+
+        SchemaVersionCheck check = new SchemaVersionCheck(jdbcTemplate, shardedQueries);
+        IllegalStateException e = assertThrows(IllegalStateException.class, check::afterSingletonsInstantiated);
+        assertTrue(e.getMessage().contains("behind the build"));
+    }
+
+    @Test
+    void testVerify_NoChangelogTable_ShouldFailStartup() {
+        stubSingleShard();
+        when(jdbcTemplate.queryForObject(contains("databasechangelog"), any(RowMapper.class), anyString()))
+                .thenThrow(new BadSqlGrammarException("schema", "SELECT", new SQLException("no table")));
+
+        SchemaVersionCheck check = new SchemaVersionCheck(jdbcTemplate, shardedQueries);
+        assertThrows(IllegalStateException.class, check::afterSingletonsInstantiated);
+    }
+
+    private void stubSingleShard() {
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(0).accept(0);
+            return null;
+        }).when(shardedQueries).forEachShard(any());
+    }
+
+    private void stubApplied(int applied, int matched, String fingerprint) throws SQLException {
+        stubSingleShard();
+        when(resultSet.getInt("applied")).thenReturn(applied);
+        when(resultSet.getInt("expected")).thenReturn(matched);
+        when(resultSet.getString("fingerprint")).thenReturn(fingerprint);
+        when(jdbcTemplate.queryForObject(contains("databasechangelog"), any(RowMapper.class),
+                eq(String.join("\n", expected.changeSets()))))
+                .thenAnswer(invocation -> invocation.<RowMapper<?>>getArgument(1).mapRow(resultSet, 0));
+    }
+}
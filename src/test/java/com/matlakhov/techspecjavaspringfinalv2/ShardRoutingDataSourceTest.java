@@ -0,0 +1,99 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.routing.UserRoutingContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardContext;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShardRoutingDataSourceTest {
+
+    @Mock
+    private DataSource shard0;
+
+    @Mock
+    private DataSource shard1;
+
+    @Mock
+    private DataSource shard2;
+
+    @Mock
+    private Connection connection0;
+
+    @Mock
+    private Connection connection1;
+
+    @Mock
+    private Connection connection2;
+
+    private ShardRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        routing = new ShardRoutingDataSource(List.of(shard0, shard1, shard2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ShardContext.clear();
+        UserRoutingContext.clear();
+    }
+
+    @Test
+    void testShardOf_ShouldMatchIdsIssuedByInterleavedSequences() {
+        // Шард i выдаёт идентификаторы i, i + 3, i + 6, ...
+        for (int shard = 0; shard < 3; shard++) {
+            for (long id = 3 + shard; id < 100; id += 3) {
+                assertEquals(shard, ShardRoutingDataSource.shardOf(id, 3));
+            }
+        }
+    }
+
+    @Test
+    void testGetConnection_UserBound_ShouldUseUserShard() throws SQLException {
+        when(shard2.getConnection()).thenReturn(connection2);
+        UserRoutingContext.bind(5L);
+
+        assertSame(connection2, routing.getConnection());
+        verifyNoInteractions(shard0, shard1);
+    }
+
+    @Test
+    void testGetConnection_ExplicitShard_ShouldOverrideUser() throws SQLException {
+        when(shard0.getConnection()).thenReturn(connection0);
+        UserRoutingContext.bind(5L);
+        ShardContext.bind(0);
+
+        assertSame(connection0, routing.getConnection());
+        verifyNoInteractions(shard1, shard2);
+    }
+
+    @Test
+    void testGetConnection_NoRoutingKey_ShouldSpreadNewUsersAcrossShards() throws SQLException {
+        when(shard0.getConnection()).thenReturn(connection0);
+        when(shard1.getConnection()).thenReturn(connection1);
+        when(shard2.getConnection()).thenReturn(connection2);
+
+        Set<Connection> used = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            used.add(routing.getConnection());
+        }
+
+        assertEquals(Set.of(connection0, connection1, connection2), used);
+    }
+}
@@ -0,0 +1,119 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.archive.ArchiveProperties;
+import com.matlakhov.techspecjavaspringfinalv2.archive.SoftDeleteArchiveJob;
+import com.matlakhov.techspecjavaspringfinalv2.archive.SoftDeleteArchiveRepository;
+import com.matlakhov.techspecjavaspringfinalv2.archive.SoftDeleteArchiveRepository.Checkpoint;
+import com.matlakhov.techspecjavaspringfinalv2.archive.SoftDeleteArchiveRepository.Chunk;
+import com.matlakhov.techspecjavaspringfinalv2.archive.SoftDeleteArchiveRepository.ClosedSubscription;
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SoftDeleteArchiveJobTest {
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Mock
+    private SoftDeleteArchiveRepository archiveRepository;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SoftDeleteArchiveJob job;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(0).accept(0);
+            return null;
+        }).when(shardedQueries).forEachShard(any());
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setChunkSize(2);
+        properties.setChunkPauseMs(0);
+        job = new SoftDeleteArchiveJob(archiveRepository, shardedQueries, eventPublisher, transactionManager,
+                properties);
+    }
+
+    @Test
+    void testArchive_ShouldMoveChunksAndCheckpointEachOne() {
+        when(archiveRepository.lockCheckpoint("subscriptions"))
+                .thenReturn(new Checkpoint(null, 0, 10), new Checkpoint(CUTOFF, 7, 12));
+        when(archiveRepository.currentTimeMinusDays(30)).thenReturn(CUTOFF);
+        when(archiveRepository.archiveSubscriptions(CUTOFF, 0, 2)).thenReturn(new Chunk(2, 7));
+        when(archiveRepository.archiveSubscriptions(CUTOFF, 7, 2)).thenReturn(new Chunk(1, 9));
+        when(archiveRepository.lockCheckpoint("users")).thenReturn(new Checkpoint(null, 0, 0));
+        when(archiveRepository.archiveUsers(CUTOFF, 0, 2)).thenReturn(new Chunk(0, 0));
+
+        job.archive();
+
+        InOrder order = inOrder(archiveRepository);
+        order.verify(archiveRepository).saveCheckpoint("subscriptions", CUTOFF, 7, 12);
+        // Неполная порция завершает проход: контрольная точка сбрасывается
+        order.verify(archiveRepository).saveCheckpoint("subscriptions", null, 0, 13);
+        order.verify(archiveRepository).archiveUsers(CUTOFF, 0, 2);
+        order.verify(archiveRepository).saveCheckpoint("users", null, 0, 0);
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    void testArchive_ActiveSubscriptionsOfDeletedUsers_ShouldBeDeletedWithEventsBeforeUsersMove() {
+        LocalDateTime now = CUTOFF.plusDays(30);
+        when(archiveRepository.lockCheckpoint("subscriptions")).thenReturn(new Checkpoint(null, 0, 0));
+        when(archiveRepository.currentTimeMinusDays(30)).thenReturn(CUTOFF);
+        when(archiveRepository.archiveSubscriptions(CUTOFF, 0, 2)).thenReturn(new Chunk(0, 0));
+        when(archiveRepository.closeSubscriptionsOfDeletedUsers(CUTOFF, 2)).thenReturn(
+                List.of(new ClosedSubscription(5L, 1L, "Netflix", CUTOFF.minusDays(60), now),
+                        new ClosedSubscription(6L, 1L, "Okko", CUTOFF.minusDays(50), now)),
+                List.of(new ClosedSubscription(8L, 2L, "Netflix", CUTOFF.minusDays(40), now)));
+        when(archiveRepository.lockCheckpoint("users")).thenReturn(new Checkpoint(null, 0, 0));
+        when(archiveRepository.archiveUsers(CUTOFF, 0, 2)).thenReturn(new Chunk(0, 0));
+
+        job.archive();
+
+        InOrder order = inOrder(archiveRepository, eventPublisher);
+        order.verify(archiveRepository, times(2)).closeSubscriptionsOfDeletedUsers(CUTOFF, 2);
+        order.verify(archiveRepository).archiveUsers(CUTOFF, 0, 2);
+        verify(eventPublisher).publishEvent(new SubscriptionChangedEvent(
+                ChangeType.DELETED, 1L, 5L, "Netflix", CUTOFF.minusDays(60), now));
+        verify(eventPublisher, times(3)).publishEvent(any(SubscriptionChangedEvent.class));
+    }
+
+    @Test
+    void testArchive_InterruptedPass_ShouldResumeFromCheckpoint() {
+        LocalDateTime earlierCutoff = CUTOFF.minusDays(3);
+        when(archiveRepository.lockCheckpoint("subscriptions")).thenReturn(new Checkpoint(earlierCutoff, 42, 100));
+        when(archiveRepository.archiveSubscriptions(earlierCutoff, 42, 2)).thenReturn(new Chunk(0, 42));
+        when(archiveRepository.lockCheckpoint("users")).thenReturn(new Checkpoint(null, 0, 0));
+        when(archiveRepository.currentTimeMinusDays(30)).thenReturn(CUTOFF);
+        when(archiveRepository.archiveUsers(CUTOFF, 0, 2)).thenReturn(new Chunk(0, 0));
+
+        job.archive();
+
+        verify(archiveRepository).archiveSubscriptions(earlierCutoff, 42, 2);
+        verify(archiveRepository).saveCheckpoint("subscriptions", null, 0, 100);
+    }
+}
@@ -0,0 +1,216 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.batch.GroupCommitProperties;
+import com.matlakhov.techspecjavaspringfinalv2.batch.SubscriptionBatchWriter;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.exception.DuplicateResourceException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.QuotaExceededException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.ResourceNotFoundException;
+import com.matlakhov.techspecjavaspringfinalv2.mappers.SubscriptionMapper;
+import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
+import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
+import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRepository;
+import com.matlakhov.techspecjavaspringfinalv2.repository.UserRepository;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionQuotaProperties;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionService;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SubscriptionBatchWriterTest {
+
+    @Mock
+    private SubscriptionService subscriptionService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private SubscriptionMapper subscriptionMapper;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    private SubscriptionBatchWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.destroy();
+        }
+    }
+
+    @Test
+    void testSubmit_Batch_ShouldInsertOnceAndCompleteEachCallerSeparately() throws Exception {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(subscriptionRepository.findServiceNamesByUserIds(any()))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, "Spotify"}));
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(subscriptionMapper.toDto(any(SubscriptionEntity.class))).thenAnswer(invocation -> {
+            SubscriptionEntity entity = invocation.getArgument(0);
+            SubscriptionDto dto = subscription(entity.getServiceName());
+            dto.setId(entity.getId());
+            return dto;
+        });
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(100L, 1L, "Netflix"));
+            handler.processRow(row(103L, 1L, "YouTube Premium"));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        writer = newWriter(5);
+
+        CompletableFuture<SubscriptionDto> netflix = writer.submit(1L, subscription("Netflix"));
+        CompletableFuture<SubscriptionDto> duplicateInBatch = writer.submit(1L, subscription("Netflix"));
+        CompletableFuture<SubscriptionDto> alreadyStored = writer.submit(1L, subscription("Spotify"));
+        CompletableFuture<SubscriptionDto> unknownUser = writer.submit(2L, subscription("Netflix"));
+        CompletableFuture<SubscriptionDto> youtube = writer.submit(1L, subscription("YouTube Premium"));
+
+        assertEquals(100L, netflix.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(103L, youtube.get(5, TimeUnit.SECONDS).getId());
+        assertCause(DuplicateResourceException.class, duplicateInBatch);
+        assertCause(DuplicateResourceException.class, alreadyStored);
+        assertCause(ResourceNotFoundException.class, unknownUser);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        verify(transactionManager, times(1)).commit(any());
+        verify(eventPublisher, times(2)).publishEvent(any(SubscriptionChangedEvent.class));
+    }
+
+    @Test
+    void testSubmit_InsertFails_ShouldSaveEachSubscriptionSeparately() throws Exception {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(subscriptionRepository.findServiceNamesByUserIds(any())).thenReturn(List.of());
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        // Пакет не сохраняется: параллельный запрос уже вставил Okko
+        doThrow(new IllegalStateException("duplicate key"))
+                .when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        SubscriptionDto netflix = subscription("Netflix");
+        SubscriptionDto okko = subscription("Okko");
+        SubscriptionDto created = subscription("Netflix");
+        created.setId(100L);
+        when(subscriptionService.addSubscription(1L, netflix)).thenReturn(created);
+        when(subscriptionService.addSubscription(1L, okko))
+                .thenThrow(new DuplicateResourceException("Subscription already exists"));
+        writer = newWriter(2);
+
+        CompletableFuture<SubscriptionDto> first = writer.submit(1L, netflix);
+        CompletableFuture<SubscriptionDto> second = writer.submit(1L, okko);
+
+        assertSame(created, first.get(5, TimeUnit.SECONDS));
+        assertCause(DuplicateResourceException.class, second);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void testSubmit_QuotaExceeded_ShouldRejectOnlyRequestsOverLimit() throws Exception {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        user.setActiveSubscriptionCount(1L);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(subscriptionRepository.findServiceNamesByUserIds(any())).thenReturn(List.of());
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(subscriptionMapper.toDto(any(SubscriptionEntity.class))).thenAnswer(invocation -> {
+            SubscriptionEntity entity = invocation.getArgument(0);
+            SubscriptionDto dto = subscription(entity.getServiceName());
+            dto.setId(entity.getId());
+            return dto;
+        });
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(100L, 1L, "Netflix"));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        GroupCommitProperties properties = new GroupCommitProperties();
+        properties.setEnabled(true);
+        properties.setMaxBatchSize(2);
+        properties.setMaxDelayUs(TimeUnit.SECONDS.toMicros(5));
+        SubscriptionQuotaProperties quota = new SubscriptionQuotaProperties();
+        quota.setMaxActivePerUser(2);
+        writer = newWriter(properties, quota);
+
+        CompletableFuture<SubscriptionDto> netflix = writer.submit(1L, subscription("Netflix"));
+        CompletableFuture<SubscriptionDto> okko = writer.submit(1L, subscription("Okko"));
+
+        assertEquals(100L, netflix.get(5, TimeUnit.SECONDS).getId());
+        assertCause(QuotaExceededException.class, okko);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(contains("active_subscription_count"), any(RowCallbackHandler.class), args.capture());
+        // Счётчик пользователя 1 увеличивается на одну подписку, лимит передаётся в тот же запрос
+        assertArrayEquals(new Object[]{1L, 1, 2L, 2L}, Arrays.copyOf(args.getValue(), 4));
+    }
+
+    private SubscriptionBatchWriter newWriter(int maxBatchSize) {
+        GroupCommitProperties properties = new GroupCommitProperties();
+        properties.setEnabled(true);
+        properties.setMaxBatchSize(maxBatchSize);
+        // Пакет закрывается по размеру, а не по времени
+        properties.setMaxDelayUs(TimeUnit.SECONDS.toMicros(5));
+        return newWriter(properties, new SubscriptionQuotaProperties());
+    }
+
+    private SubscriptionBatchWriter newWriter(GroupCommitProperties properties, SubscriptionQuotaProperties quota) {
+        return new SubscriptionBatchWriter(properties, quota, subscriptionService, userRepository, subscriptionRepository,
+                subscriptionMapper, jdbcTemplate, transactionManager, eventPublisher, shardedQueries);
+    }
+
+    private static void assertCause(Class<? extends Throwable> expected, CompletableFuture<?> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(expected, e.getCause());
+    }
+
+    private static ResultSet row(long id, long userId, String serviceName) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getLong("user_id")).thenReturn(userId);
+        when(rs.getString("service_name")).thenReturn(serviceName);
+        return rs;
+    }
+
+    private static SubscriptionDto subscription(String serviceName) {
+        SubscriptionDto dto = new SubscriptionDto();
+        dto.setServiceName(serviceName);
+        return dto;
+    }
+}
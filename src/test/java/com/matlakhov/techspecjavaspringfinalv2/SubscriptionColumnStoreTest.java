@@ -0,0 +1,102 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.columnar.LongIntHashMap;
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubscriptionColumnStoreTest {
+
+    private static final String[] SERVICES = {"Netflix", "YouTube Premium", "VK Музыка", "Okko", "Кинопоиск"};
+
+    @Test
+    void testQueries_ParallelScan_ShouldMatchRowByRowComputation() {
+        // Маленький порог, чтобы сканирование шло через fork-join; ёмкость меньше данных, чтобы массивы росли
+        SubscriptionColumnStore store = new SubscriptionColumnStore(100, 1024);
+        Random random = new Random(42);
+        int rows = 50_000;
+        String[] services = new String[rows];
+        long[] starts = new long[rows];
+        long[] ends = new long[rows];
+        boolean[] deleted = new boolean[rows];
+        for (int i = 0; i < rows; i++) {
+            services[i] = SERVICES[random.nextInt(SERVICES.length)];
+            starts[i] = 1_000_000 + random.nextInt(1_000_000);
+            deleted[i] = random.nextInt(4) == 0;
+            ends[i] = deleted[i] ? starts[i] + random.nextInt(500_000) : SubscriptionColumnStore.NO_END;
+            store.upsert(i + 1, i % 1000, services[i], starts[i], ends[i], deleted[i]);
+        }
+
+        long at = 1_700_000;
+        Map<String, Long> current = new HashMap<>();
+        Map<String, Long> activeAt = new HashMap<>();
+        Map<String, Long> started = new HashMap<>();
+        for (int i = 0; i < rows; i++) {
+            if (!deleted[i] && ends[i] > at) {
+                current.merge(services[i], 1L, Long::sum);
+            }
+            if (starts[i] <= at && ends[i] > at) {
+                activeAt.merge(services[i], 1L, Long::sum);
+            }
+            if (starts[i] >= 1_200_000 && starts[i] < 1_300_000) {
+                started.merge(services[i], 1L, Long::sum);
+            }
+        }
+
+        assertEquals(rows, store.size());
+        assertEquals(current, store.countCurrentByService(at));
+        assertEquals(activeAt, store.countActiveAt(at));
+        assertEquals(started, store.countStartedBetween(1_200_000, 1_300_000));
+    }
+
+    @Test
+    void testUpsert_ReplayedEvents_ShouldBeIdempotent() {
+        SubscriptionColumnStore store = new SubscriptionColumnStore(16, 1 << 20);
+        store.upsert(1, 10, "Netflix", 100, SubscriptionColumnStore.NO_END, false);
+        store.upsert(2, 10, "Okko", 100, SubscriptionColumnStore.NO_END, false);
+        assertTrue(store.markEnded(2, 150));
+
+        store.upsert(1, 10, "Netflix", 100, SubscriptionColumnStore.NO_END, false);
+        store.upsert(2, 10, "Okko", 100, SubscriptionColumnStore.NO_END, false);
+        store.upsert(2, 10, "Okko", 100, 150, true);
+
+        assertEquals(2, store.size());
+        assertEquals(Map.of("Netflix", 1L), store.countCurrentByService(200));
+        assertEquals(Map.of("Netflix", 1L, "Okko", 1L), store.countActiveAt(120));
+        assertFalse(store.markEnded(3, 150));
+    }
+
+    @Test
+    void testTopCurrent_ShouldOrderByCountAndSkipEmptyServiceNames() {
+        SubscriptionColumnStore store = new SubscriptionColumnStore(16, 1 << 20);
+        store.upsert(1, 1, "Okko", 0, SubscriptionColumnStore.NO_END, false);
+        store.upsert(2, 2, "Netflix", 0, SubscriptionColumnStore.NO_END, false);
+        store.upsert(3, 3, "Netflix", 0, SubscriptionColumnStore.NO_END, false);
+        store.upsert(4, 4, "", 0, SubscriptionColumnStore.NO_END, false);
+        store.upsert(5, 5, "", 0, SubscriptionColumnStore.NO_END, false);
+        store.upsert(6, 6, "", 0, SubscriptionColumnStore.NO_END, false);
+
+        assertEquals(List.of("Netflix", "Okko"), store.topCurrent(3, 10));
+    }
+
+    @Test
+    void testCountAliveByUser_ShouldCountOnlyNotDeleted() {
+        SubscriptionColumnStore store = new SubscriptionColumnStore(16, 1 << 20);
+        store.upsert(1, 10, "Okko", 0, SubscriptionColumnStore.NO_END, false);
+        store.upsert(2, 10, "Netflix", 0, SubscriptionColumnStore.NO_END, false);
+        store.upsert(3, 20, "Netflix", 0, 50, true);
+
+        LongIntHashMap counts = store.countAliveByUser();
+
+        assertEquals(2, counts.size());
+        assertEquals(2, counts.get(10));
+        assertEquals(0, counts.get(20));
+        assertEquals(LongIntHashMap.MISSING, counts.get(30));
+    }
+}
@@ -4,20 +4,27 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.any;
 
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnStore;
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnarSnapshot;
 import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.exception.QuotaExceededException;
 import com.matlakhov.techspecjavaspringfinalv2.exception.ResourceNotFoundException;
 import com.matlakhov.techspecjavaspringfinalv2.mappers.SubscriptionMapper;
 import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
 import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
 import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRepository;
 import com.matlakhov.techspecjavaspringfinalv2.repository.UserRepository;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionQuotaProperties;
 import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionService;
 import com.matlakhov.techspecjavaspringfinalv2.service.UserService;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDateTime;
@@ -38,6 +45,18 @@ class SubscriptionEntityServiceTest {
     @Mock
     private SubscriptionMapper subscriptionMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    @Mock
+    private SubscriptionColumnarSnapshot columnarSnapshot;
+
+    @Spy
+    private SubscriptionQuotaProperties quotaProperties = new SubscriptionQuotaProperties();
+
     @InjectMocks
     private SubscriptionService subscriptionService;
 
@@ -53,6 +72,7 @@ class SubscriptionEntityServiceTest {
 
         when(subscriptionRepository.existsByUserEntityIdAndServiceName(userId, "Netflix"))
                 .thenReturn(false);
+        when(userRepository.incrementActiveSubscriptionCount(userId, 0L)).thenReturn(1);
 
         SubscriptionEntity subscriptionEntity = new SubscriptionEntity();
         subscriptionEntity.setId(101L);
@@ -78,6 +98,28 @@ class SubscriptionEntityServiceTest {
         assertEquals(101L, result.getId());
         assertEquals("Netflix", result.getServiceName());
         verify(subscriptionRepository, times(1)).save(subscriptionEntity);
+        verify(userRepository, times(1)).incrementActiveSubscriptionCount(userId, 0L);
+    }
+
+    @Test
+    void testAddSubscription_QuotaExceeded_ShouldNotSave() {
+        Long userId = 1L;
+        SubscriptionDto dto = new SubscriptionDto();
+        dto.setServiceName("Netflix");
+        quotaProperties.setMaxActivePerUser(3);
+
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(userId);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(userEntity));
+        when(subscriptionRepository.existsByUserEntityIdAndServiceName(userId, "Netflix")).thenReturn(false);
+        when(userRepository.incrementActiveSubscriptionCount(userId, 3L)).thenReturn(0);
+
+        QuotaExceededException ex = assertThrows(QuotaExceededException.class,
+                () -> subscriptionService.addSubscription(userId, dto));
+
+        assertEquals("Active subscription limit reached", ex.getMessage());
+        verify(subscriptionRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -171,16 +213,69 @@ class SubscriptionEntityServiceTest {
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         when(subscriptionRepository.findById(subId)).thenReturn(Optional.of(subscription));
-        when(subscriptionRepository.save(subscription)).thenReturn(subscription);
+        when(subscriptionRepository.markDeleted(eq(subId), eq(subscription.getStartDate()), any(LocalDateTime.class)))
+                .thenReturn(1);
 
         subscriptionService.deleteSubscription(userId, subId);
 
-        assertTrue(subscription.getIsDeleted());
-        assertNotNull(subscription.getEndDate()); // Проверяем, что endDate установлено
         verify(subscriptionRepository, times(1)).findById(subId);
-        verify(subscriptionRepository, times(1)).save(subscription);
+        verify(subscriptionRepository, times(1))
+                .markDeleted(eq(subId), eq(subscription.getStartDate()), any(LocalDateTime.class));
+        verify(subscriptionRepository, never()).save(any(SubscriptionEntity.class));
         verify(subscriptionRepository, never()).deleteById(anyLong());
         verify(userRepository, times(1)).findById(userId);
+        verify(userRepository, times(1)).decrementActiveSubscriptionCount(userId);
+    }
+
+    @Test
+    void testDeleteSubscription_AlreadyDeleted_ShouldNotDecrementCounter() {
+        Long userId = 1L;
+        Long subId = 101L;
+
+        UserEntity user = new UserEntity();
+        user.setId(userId);
+
+        SubscriptionEntity subscription = new SubscriptionEntity();
+        subscription.setId(subId);
+        subscription.setServiceName("Netflix");
+        subscription.setIsDeleted(true);
+        subscription.setStartDate(LocalDateTime.now().minusDays(10));
+        subscription.setEndDate(LocalDateTime.now().minusDays(1));
+        subscription.setUserEntity(user);
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(subscriptionRepository.findById(subId)).thenReturn(Optional.of(subscription));
+
+        subscriptionService.deleteSubscription(userId, subId);
+
+        verify(userRepository, never()).decrementActiveSubscriptionCount(any());
+    }
+
+    @Test
+    void testDeleteSubscription_ConcurrentlyDeleted_ShouldNotDecrementCounter() {
+        Long userId = 1L;
+        Long subId = 101L;
+
+        UserEntity user = new UserEntity();
+        user.setId(userId);
+
+        // Подписка прочитана неудалённой, но её уже удалил параллельный запрос
+        SubscriptionEntity subscription = new SubscriptionEntity();
+        subscription.setId(subId);
+        subscription.setServiceName("Netflix");
+        subscription.setIsDeleted(false);
+        subscription.setStartDate(LocalDateTime.now().minusDays(10));
+        subscription.setUserEntity(user);
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(subscriptionRepository.findById(subId)).thenReturn(Optional.of(subscription));
+        when(subscriptionRepository.markDeleted(eq(subId), eq(subscription.getStartDate()), any(LocalDateTime.class)))
+                .thenReturn(0);
+
+        subscriptionService.deleteSubscription(userId, subId);
+
+        verify(userRepository, never()).decrementActiveSubscriptionCount(any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -259,4 +354,36 @@ class SubscriptionEntityServiceTest {
         assertTrue(result.isEmpty());
         verify(subscriptionRepository, times(1)).findTopSubscriptions(any(LocalDateTime.class), any(PageRequest.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetTopSubscriptions_Sharded_ShouldMergeCountsFromAllShards() {
+        when(shardedQueries.isEnabled()).thenReturn(true);
+        when(shardedQueries.onEveryShard(any())).thenAnswer(invocation -> List.of(
+                List.<Object[]>of(new Object[]{"Netflix", 10L}, new Object[]{"YouTube Premium", 8L}),
+                List.<Object[]>of(new Object[]{"VK Музыка", 15L}, new Object[]{"YouTube Premium", 9L}),
+                List.<Object[]>of(new Object[]{"Netflix", 1L}, new Object[]{"Кинопоиск", 12L})
+        ));
+
+        List<String> result = subscriptionService.getTopSubscriptions();
+
+        assertEquals(List.of("YouTube Premium", "VK Музыка", "Кинопоиск"), result);
+        verify(subscriptionRepository, never()).findTopSubscriptions(any(LocalDateTime.class), any(PageRequest.class));
+    }
+
+    @Test
+    void testGetTopSubscriptions_SnapshotReady_ShouldNotQueryDatabase() {
+        SubscriptionColumnStore store = new SubscriptionColumnStore(16, 1 << 20);
+        long start = SubscriptionColumnStore.toEpochSecond(LocalDateTime.now().minusDays(1));
+        store.upsert(1L, 1L, "Netflix", start, SubscriptionColumnStore.NO_END, false);
+        store.upsert(2L, 2L, "Netflix", start, SubscriptionColumnStore.NO_END, false);
+        store.upsert(3L, 2L, "Okko", start, SubscriptionColumnStore.NO_END, false);
+        store.upsert(4L, 3L, "Okko", start, start + 60, true);
+        when(columnarSnapshot.isReady()).thenReturn(true);
+        when(columnarSnapshot.store()).thenReturn(store);
+
+        List<String> result = subscriptionService.getTopSubscriptions();
+
+        assertEquals(List.of("Netflix", "Okko"), result);
+        verifyNoInteractions(subscriptionRepository, shardedQueries);
+    }
+}
@@ -0,0 +1,89 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.partitioning.PartitioningProperties;
+import com.matlakhov.techspecjavaspringfinalv2.partitioning.SubscriptionPartitionMaintenance;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionPartitionMaintenanceTest {
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(0).accept(0);
+            return null;
+        }).when(shardedQueries).forEachShard(any());
+        when(jdbcTemplate.queryForObject(contains("ensure_subscription_partitions"), eq(Integer.class), eq(4)))
+                .thenReturn(0);
+    }
+
+    @Test
+    void testMaintain_RetentionDisabled_ShouldOnlyCreatePartitions() {
+        newMaintenance(0).maintain();
+
+        verify(jdbcTemplate).queryForObject(contains("ensure_subscription_partitions"), eq(Integer.class), eq(4));
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testMaintain_ShouldDetachOnlyExpiredPartitionsWithoutLiveRows() {
+        String expiredEmpty = partition(14);
+        String expiredLive = partition(13);
+        String kept = partition(12);
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class)))
+                .thenReturn(List.of(expiredEmpty, expiredLive, kept));
+        LocalDateTime retainedFrom = YearMonth.now().minusMonths(12).atDay(1).atStartOfDay();
+        when(jdbcTemplate.queryForObject(contains(expiredEmpty), eq(Boolean.class), eq(retainedFrom))).thenReturn(false);
+        when(jdbcTemplate.queryForObject(contains(expiredLive), eq(Boolean.class), eq(retainedFrom))).thenReturn(true);
+        when(jdbcTemplate.queryForList(contains("pg_constraint"), eq(String.class), eq(expiredEmpty)))
+                .thenReturn(List.of("fk_subscriptions_user"));
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        newMaintenance(12).maintain();
+
+        InOrder inOrder = inOrder(jdbcTemplate, transactionManager);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE subscriptions DETACH PARTITION " + expiredEmpty);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE " + expiredEmpty + " DROP CONSTRAINT \"fk_subscriptions_user\"");
+        inOrder.verify(transactionManager).commit(any());
+        verify(jdbcTemplate, never()).execute(contains(expiredLive));
+        verify(jdbcTemplate, never()).queryForObject(contains(kept), eq(Boolean.class), any());
+    }
+
+    private SubscriptionPartitionMaintenance newMaintenance(int retentionMonths) {
+        PartitioningProperties properties = new PartitioningProperties();
+        properties.setRetentionMonths(retentionMonths);
+        return new SubscriptionPartitionMaintenance(jdbcTemplate, transactionManager, shardedQueries, properties);
+    }
+
+    private static String partition(int monthsAgo) {
+        return "subscriptions_p" + YearMonth.now().minusMonths(monthsAgo).format(MONTH);
+    }
+}
@@ -0,0 +1,176 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.columnar.LongIntHashMap;
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnarSnapshot;
+import com.matlakhov.techspecjavaspringfinalv2.partitioning.PartitioningProperties;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import com.matlakhov.techspecjavaspringfinalv2.stats.DurationBucket;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionReconciliationJob;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionReconciliationProperties;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionReconciliationRepository;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionRollupRepository;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionTotals;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionTotals.DailyKey;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionTotals.DurationKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SubscriptionReconciliationJobTest {
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2025, 3, 1, 12, 0);
+    private static final LocalDate DAY = LocalDate.of(2025, 2, 10);
+    private static final LocalDate OTHER_DAY = LocalDate.of(2025, 2, 11);
+
+    @Mock
+    private SubscriptionRollupRepository rollupRepository;
+
+    @Mock
+    private SubscriptionReconciliationRepository reconciliationRepository;
+
+    @Mock
+    private SubscriptionColumnarSnapshot snapshot;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SubscriptionReconciliationJob job;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<IntConsumer>getArgument(0).accept(0);
+            return null;
+        }).when(shardedQueries).forEachShard(any());
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(rollupRepository.tryLock()).thenReturn(true);
+        when(rollupRepository.findWatermark()).thenReturn(WATERMARK);
+        when(reconciliationRepository.findUserIdRange()).thenReturn(new long[]{1, 250});
+        // Пользователи 5 и 120: у каждого по подписке, у пользователя 120 она отменена
+        doAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            SubscriptionTotals totals = invocation.getArgument(4);
+            if (from == 1) {
+                totals.addStarted(DAY, "Netflix");
+                totals.addUserSubscription(5, false);
+            } else if (from == 101) {
+                totals.addStarted(DAY, "Netflix");
+                totals.addCancelled(DAY, "Netflix", DurationBucket.UNDER_1_DAY);
+                totals.addUserSubscription(120, true);
+            }
+            totals.addRows(from == 201 ? 0 : 1);
+            return null;
+        }).when(reconciliationRepository).scan(anyLong(), anyLong(), eq(WATERMARK), anyInt(), any());
+
+        SubscriptionReconciliationProperties properties = new SubscriptionReconciliationProperties();
+        properties.setParallelism(2);
+        properties.setRangeSize(100);
+        job = new SubscriptionReconciliationJob(rollupRepository, reconciliationRepository, snapshot,
+                shardedQueries, transactionManager, properties, new PartitioningProperties());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReconcile_ShouldRewriteOnlyDriftedGroups() {
+        Map<DailyKey, long[]> liveDaily = new HashMap<>();
+        liveDaily.put(new DailyKey(DAY, "Netflix"), new long[]{2, 2});
+        liveDaily.put(new DailyKey(OTHER_DAY, "Spotify"), new long[]{1, 0});
+        when(reconciliationRepository.findDailyTotals()).thenReturn(liveDaily);
+        when(reconciliationRepository.findDurationTotals())
+                .thenReturn(Map.of(new DurationKey(DAY, "Netflix", DurationBucket.UNDER_1_DAY), 1L));
+
+        job.reconcile();
+
+        verify(reconciliationRepository).scan(eq(1L), eq(101L), eq(WATERMARK), anyInt(), any());
+        verify(reconciliationRepository).scan(eq(101L), eq(201L), eq(WATERMARK), anyInt(), any());
+        verify(reconciliationRepository).scan(eq(201L), eq(301L), eq(WATERMARK), anyInt(), any());
+        ArgumentCaptor<Map<DailyKey, long[]>> daily = ArgumentCaptor.forClass(Map.class);
+        verify(reconciliationRepository).repairDaily(daily.capture());
+        assertEquals(2, daily.getValue().size());
+        assertArrayEquals(new long[]{2, 1}, daily.getValue().get(new DailyKey(DAY, "Netflix")));
+        // Группы без подписок удаляются
+        assertArrayEquals(new long[]{0, 0}, daily.getValue().get(new DailyKey(OTHER_DAY, "Spotify")));
+        verify(reconciliationRepository).repairDurations(Map.of());
+        verify(reconciliationRepository).repairActiveSubscriptionCounts(1L, 101L);
+        verify(reconciliationRepository).repairActiveSubscriptionCounts(101L, 201L);
+        verify(reconciliationRepository).repairActiveSubscriptionCounts(201L, 301L);
+        // Транзакция сверки и по одной на каждый диапазон
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    void testReconcile_DetachedMonths_ShouldNotBeRepaired() {
+        // Секция февраля отсоединена: подписок этих дней в таблице нет, статистика остаётся прежней
+        when(reconciliationRepository.findOldestAttachedDay()).thenReturn(LocalDate.of(2025, 3, 1));
+        Map<DailyKey, long[]> liveDaily = new HashMap<>();
+        liveDaily.put(new DailyKey(DAY, "Netflix"), new long[]{7, 3});
+        when(reconciliationRepository.findDailyTotals()).thenReturn(liveDaily);
+        when(reconciliationRepository.findDurationTotals())
+                .thenReturn(Map.of(new DurationKey(OTHER_DAY, "Netflix", DurationBucket.OVER_365_DAYS), 4L));
+
+        job.reconcile();
+
+        verify(reconciliationRepository).repairDaily(Map.of());
+        verify(reconciliationRepository).repairDurations(Map.of());
+    }
+
+    @Test
+    void testReconcile_SnapshotDrift_ShouldRefreshDriftedUsers() {
+        when(snapshot.isReady()).thenReturn(true);
+        LongIntHashMap snapshotCounts = new LongIntHashMap(16);
+        snapshotCounts.put(5, 1);
+        // Удаление подписки пользователя 120 не дошло до снимка
+        snapshotCounts.put(120, 1);
+        when(snapshot.aliveCountsByUser()).thenReturn(snapshotCounts);
+        when(reconciliationRepository.findDailyTotals()).thenReturn(Map.of());
+        when(reconciliationRepository.findDurationTotals()).thenReturn(Map.of());
+
+        job.reconcile();
+
+        verify(snapshot).refreshUser(120);
+        verify(snapshot, never()).refreshUser(5);
+        verify(snapshot, never()).evictAll();
+    }
+
+    @Test
+    void testReconcile_RollupInProgress_ShouldSkipShard() {
+        when(rollupRepository.tryLock()).thenReturn(false);
+
+        job.reconcile();
+
+        verify(reconciliationRepository, never()).scan(anyLong(), anyLong(), any(), anyInt(), any());
+        verify(reconciliationRepository, never()).repairDaily(any());
+    }
+
+    @Test
+    void testReconcile_ScanFailure_ShouldNotRepair() {
+        doThrow(new IllegalStateException("connection lost"))
+                .when(reconciliationRepository).scan(eq(101L), anyLong(), any(), anyInt(), any());
+
+        job.reconcile();
+
+        verify(reconciliationRepository, never()).repairDaily(any());
+        verify(transactionManager, atLeastOnce()).rollback(any());
+    }
+}
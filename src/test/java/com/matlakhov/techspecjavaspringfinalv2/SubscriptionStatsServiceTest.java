@@ -0,0 +1,86 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.DailySubscriptionStatsDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.DurationBucketDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.ServiceActiveCountDto;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import com.matlakhov.techspecjavaspringfinalv2.stats.DurationBucket;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionRollupRepository;
+import com.matlakhov.techspecjavaspringfinalv2.stats.SubscriptionStatsService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionStatsServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 5, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 5, 31);
+
+    @Mock
+    private SubscriptionRollupRepository rollupRepository;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    @InjectMocks
+    private SubscriptionStatsService statsService;
+
+    @Test
+    void testGetActiveCounts_ShouldSumShardsAndSkipServicesWithoutActiveSubscriptions() {
+        when(shardedQueries.onEveryShard(any())).thenAnswer(invocation -> List.of(
+                List.of(new ServiceActiveCountDto("Netflix", 5), new ServiceActiveCountDto("Okko", 0)),
+                List.of(new ServiceActiveCountDto("Netflix", 2), new ServiceActiveCountDto("VK Музыка", 9))
+        ));
+
+        List<ServiceActiveCountDto> result = statsService.getActiveCounts();
+
+        assertEquals(List.of("VK Музыка", "Netflix"), result.stream().map(ServiceActiveCountDto::getServiceName).toList());
+        assertEquals(7, result.get(1).getActive());
+    }
+
+    @Test
+    void testGetDailyStats_ShouldMergeSameDayAndServiceAcrossShards() {
+        LocalDate day = LocalDate.of(2025, 5, 12);
+        when(shardedQueries.onEveryShard(any())).thenAnswer(invocation -> List.of(
+                List.of(new DailySubscriptionStatsDto(day, "Netflix", 3, 1)),
+                List.of(new DailySubscriptionStatsDto(day, "Netflix", 2, 0),
+                        new DailySubscriptionStatsDto(day.minusDays(1), "Netflix", 1, 0))
+        ));
+
+        List<DailySubscriptionStatsDto> result = statsService.getDailyStats(FROM, TO, "Netflix");
+
+        assertEquals(2, result.size());
+        assertEquals(day.minusDays(1), result.get(0).getDay());
+        assertEquals(5, result.get(1).getAdded());
+        assertEquals(1, result.get(1).getCancelled());
+    }
+
+    @Test
+    void testGetDurationHistogram_ShouldReturnAllBucketsInOrder() {
+        when(rollupRepository.findDurations(FROM, TO, null))
+                .thenReturn(Map.of(DurationBucket.DAYS_7_TO_30, 4L, DurationBucket.OVER_365_DAYS, 1L));
+        when(shardedQueries.onEveryShard(any())).thenAnswer(invocation ->
+                List.of(invocation.<Supplier<?>>getArgument(0).get()));
+
+        List<DurationBucketDto> result = statsService.getDurationHistogram(FROM, TO, null);
+
+        assertEquals(DurationBucket.values().length, result.size());
+        assertEquals(0, result.get(0).getCount());
+        assertEquals(4, result.get(2).getCount());
+        assertEquals(30, result.get(2).getUpperBoundDays());
+        assertEquals(1, result.get(5).getCount());
+        assertNull(result.get(5).getUpperBoundDays());
+    }
+}
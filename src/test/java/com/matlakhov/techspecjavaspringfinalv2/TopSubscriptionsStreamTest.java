@@ -0,0 +1,86 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matlakhov.techspecjavaspringfinalv2.event.ChangeType;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.exception.ServiceOverloadedException;
+import com.matlakhov.techspecjavaspringfinalv2.invalidation.CachedEntity;
+import com.matlakhov.techspecjavaspringfinalv2.service.SubscriptionService;
+import com.matlakhov.techspecjavaspringfinalv2.streaming.TopStreamProperties;
+import com.matlakhov.techspecjavaspringfinalv2.streaming.TopSubscriptionsStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopSubscriptionsStreamTest {
+
+    @Mock
+    private SubscriptionService subscriptionService;
+
+    private TopSubscriptionsStream stream;
+
+    @AfterEach
+    void tearDown() {
+        stream.destroy();
+    }
+
+    @Test
+    void testChanges_ShouldBeDebouncedIntoOneQueryForAllClients() throws InterruptedException {
+        when(subscriptionService.getTopSubscriptions()).thenReturn(List.of("Netflix", "Okko"));
+        stream = stream(200, 2);
+        stream.subscribe();
+        stream.subscribe();
+        verify(subscriptionService, timeout(1000)).getTopSubscriptions();
+
+        for (long id = 1; id <= 20; id++) {
+            stream.onSubscriptionChanged(new SubscriptionChangedEvent(
+                    ChangeType.CREATED, 1L, id, "Netflix", LocalDateTime.now(), null));
+        }
+        stream.evict(CachedEntity.SUBSCRIPTION, 21L);
+
+        verify(subscriptionService, timeout(1000).times(2)).getTopSubscriptions();
+        Thread.sleep(400);
+        verify(subscriptionService, times(2)).getTopSubscriptions();
+    }
+
+    @Test
+    void testChanges_WithoutClients_ShouldNotQuery() throws InterruptedException {
+        stream = stream(10, 2);
+
+        stream.onSubscriptionChanged(new SubscriptionChangedEvent(
+                ChangeType.DELETED, 1L, 2L, "Okko", LocalDateTime.now(), LocalDateTime.now()));
+        stream.evictAll();
+        Thread.sleep(200);
+
+        verifyNoInteractions(subscriptionService);
+    }
+
+    @Test
+    void testSubscribe_TooManyClients_ShouldBeRejected() {
+        when(subscriptionService.getTopSubscriptions()).thenReturn(List.of("Netflix"));
+        stream = stream(10, 2);
+        stream.subscribe();
+        stream.subscribe();
+
+        assertThrows(ServiceOverloadedException.class, stream::subscribe);
+        assertEquals(2, stream.clientCount());
+        // Первый топ для подключённых клиентов считается в потоке рассылки
+        verify(subscriptionService, timeout(1000)).getTopSubscriptions();
+    }
+
+    private TopSubscriptionsStream stream(long debounceMs, int maxClients) {
+        TopStreamProperties properties = new TopStreamProperties();
+        properties.setDebounceMs(debounceMs);
+        properties.setMaxClients(maxClients);
+        return new TopSubscriptionsStream(subscriptionService, new ObjectMapper(), properties);
+    }
+}
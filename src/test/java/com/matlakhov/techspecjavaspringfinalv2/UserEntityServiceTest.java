@@ -6,24 +6,41 @@ import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.never;
 
+import com.matlakhov.techspecjavaspringfinalv2.archive.SoftDeleteArchiveRepository;
+import com.matlakhov.techspecjavaspringfinalv2.dto.PartialUserDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserBatchDto;
 import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
 import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserField;
+import com.matlakhov.techspecjavaspringfinalv2.event.SubscriptionChangedEvent;
+import com.matlakhov.techspecjavaspringfinalv2.event.UserChangedEvent;
 import com.matlakhov.techspecjavaspringfinalv2.exception.DuplicateResourceException;
+import com.matlakhov.techspecjavaspringfinalv2.exception.InvalidRequestException;
 import com.matlakhov.techspecjavaspringfinalv2.exception.ResourceNotFoundException;
 import com.matlakhov.techspecjavaspringfinalv2.mappers.UserMapper;
 import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
 import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
+import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRepository;
+import com.matlakhov.techspecjavaspringfinalv2.repository.SubscriptionRow;
 import com.matlakhov.techspecjavaspringfinalv2.repository.UserRepository;
+import com.matlakhov.techspecjavaspringfinalv2.repository.UserRow;
 import com.matlakhov.techspecjavaspringfinalv2.service.UserService;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,6 +54,18 @@ class UserEntityServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SoftDeleteArchiveRepository archiveRepository;
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
     @InjectMocks
     private UserService userService;
 
@@ -203,6 +232,8 @@ class UserEntityServiceTest {
         userService.deleteUser(userId);
 
         // Assert
+        assertTrue(userEntity.getIsDeleted());
+        assertNotNull(userEntity.getDeletedAt());
         verify(userRepository, times(1)).findById(userId);
         verify(userRepository, times(1)).save(any(UserEntity.class));
     }
@@ -283,4 +314,186 @@ class UserEntityServiceTest {
 
         verify(userRepository, times(1)).findByIdWithSubscriptions(userId);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRestoreUser_SoftDeleted_ShouldUndelete() {
+        // Arrange
+        Long userId = 1L;
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(userId);
+        userEntity.setIsDeleted(true);
+        userEntity.setDeletedAt(LocalDateTime.now());
+        UserDto responseDto = new UserDto();
+        responseDto.setId(userId);
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(userEntity));
+        when(userRepository.save(userEntity)).thenReturn(userEntity);
+        when(userMapper.toDto(userEntity)).thenReturn(responseDto);
+
+        // Act
+        UserDto result = userService.restoreUser(userId);
+
+        // Assert
+        assertSame(responseDto, result);
+        assertFalse(userEntity.getIsDeleted());
+        assertNull(userEntity.getDeletedAt());
+        verifyNoInteractions(archiveRepository);
+    }
+
+    @Test
+    void testRestoreUser_Archived_ShouldMoveBackWithSubscriptions() {
+        // Arrange
+        Long userId = 1L;
+        UserEntity restored = new UserEntity();
+        restored.setId(userId);
+        restored.setIsDeleted(false);
+
+        when(userRepository.findById(userId)).thenReturn(Optional.empty(), Optional.of(restored));
+        when(archiveRepository.findArchivedUser(userId))
+                .thenReturn(Optional.of(new SoftDeleteArchiveRepository.ArchivedUser(userId, "Alice", "alice@example.com")));
+        when(archiveRepository.restoreUser(userId)).thenReturn(List.of(
+                new SoftDeleteArchiveRepository.RestoredSubscription(10L, "Netflix", false, LocalDateTime.now(), null),
+                new SoftDeleteArchiveRepository.RestoredSubscription(11L, "Okko", true, LocalDateTime.now(),
+                        LocalDateTime.now())));
+        when(userMapper.toDto(restored)).thenReturn(new UserDto());
+
+        // Act
+        userService.restoreUser(userId);
+
+        // Assert
+        verify(archiveRepository).restoreUser(userId);
+        verify(eventPublisher, times(1)).publishEvent(any(SubscriptionChangedEvent.class));
+        verify(eventPublisher, times(1)).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testRestoreUser_ArchivedUsernameTaken_ShouldThrowDuplicateResourceException() {
+        // Arrange
+        Long userId = 1L;
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(archiveRepository.findArchivedUser(userId))
+                .thenReturn(Optional.of(new SoftDeleteArchiveRepository.ArchivedUser(userId, "Alice", "alice@example.com")));
+        when(userRepository.existsByUsername("Alice")).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(DuplicateResourceException.class, () -> userService.restoreUser(userId));
+        verify(archiveRepository, never()).restoreUser(any());
+    }
+
+    @Test
+    void testRestoreUser_Unknown_ShouldThrowResourceNotFoundException() {
+        // Arrange
+        when(userRepository.findById(99L)).thenReturn(Optional.empty());
+        when(archiveRepository.findArchivedUser(99L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> userService.restoreUser(99L));
+    }
+
+    @Test
+    void testGetUserFields_ScalarFields_ShouldReadOnlyUserRow() {
+        // Arrange
+        when(userRepository.findRowById(1L))
+                .thenReturn(Optional.of(new UserRow(1L, "Alice", "alice@example.com", false)));
+
+        // Act
+        PartialUserDto result = userService.getUser(1L, UserField.parse("username,email", null));
+
+        // Assert
+        assertNull(result.getId());
+        assertEquals("Alice", result.getUsername());
+        assertEquals("alice@example.com", result.getEmail());
+        assertNull(result.getSubscriptions());
+        verify(userRepository, never()).findByIdWithSubscriptions(any());
+        verifyNoInteractions(userMapper);
+    }
+
+    @Test
+    void testGetUserFields_SubscriptionCount_ShouldCountWithoutLoadingSubscriptions() {
+        // Arrange
+        when(userRepository.findRowWithSubscriptionCountById(1L))
+                .thenReturn(Optional.of(new UserRow(1L, "Alice", "alice@example.com", false, 3L)));
+
+        // Act
+        PartialUserDto result = userService.getUser(1L, UserField.parse("id,subscriptionCount", null));
+
+        // Assert
+        assertEquals(1L, result.getId());
+        assertEquals(3L, result.getSubscriptionCount());
+        assertNull(result.getUsername());
+        verify(userRepository, never()).findByIdWithSubscriptions(any());
+    }
+
+    @Test
+    void testGetUserFields_EmbedSubscriptions_ShouldLoadSubscriptions() {
+        // Arrange
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(1L);
+        userEntity.setIsDeleted(false);
+        UserDto userDto = new UserDto();
+        userDto.setId(1L);
+        userDto.setUsername("Alice");
+        userDto.setEmail("alice@example.com");
+        userDto.setSubscriptions(List.of(new SubscriptionDto()));
+        when(userRepository.findByIdWithSubscriptions(1L)).thenReturn(Optional.of(userEntity));
+        when(userMapper.toDto(userEntity)).thenReturn(userDto);
+
+        // Act
+        PartialUserDto result = userService.getUser(1L, UserField.parse(null, "subscriptions"));
+
+        // Assert
+        assertEquals("Alice", result.getUsername());
+        assertEquals(1, result.getSubscriptions().size());
+        assertNull(result.getSubscriptionCount());
+    }
+
+    @Test
+    void testGetUserFields_DeletedUser_ShouldThrowResourceNotFoundException() {
+        // Arrange
+        when(userRepository.findRowById(1L))
+                .thenReturn(Optional.of(new UserRow(1L, "Alice", "alice@example.com", true)));
+        Set<UserField> fields = UserField.parse("id", null);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUser(1L, fields));
+    }
+
+    @Test
+    void testParseFields_UnknownField_ShouldThrowInvalidRequestException() {
+        assertThrows(InvalidRequestException.class, () -> UserField.parse("id,password", null));
+        assertThrows(InvalidRequestException.class, () -> UserField.parse(null, "username"));
+    }
+
+    @Test
+    void testGetUsers_ShouldLoadInTwoQueriesAndKeepRequestOrder() {
+        // Arrange
+        when(shardedQueries.onEveryShard(any()))
+                .thenAnswer(invocation -> List.of(invocation.<Supplier<?>>getArgument(0).get()));
+        when(userRepository.findRowsByIds(List.of(3L, 1L, 2L, 4L))).thenReturn(List.of(
+                new UserRow(1L, "Alice", "alice@example.com", false),
+                new UserRow(2L, "Bob", "bob@example.com", true),
+                new UserRow(3L, "Carol", "carol@example.com", false)));
+        when(subscriptionRepository.findActiveRowsByUserIds(Set.of(1L, 3L))).thenReturn(List.of(
+                new SubscriptionRow(3L, 10L, "Netflix", LocalDateTime.of(2025, 5, 1, 0, 0), null),
+                new SubscriptionRow(3L, 11L, "Okko", LocalDateTime.of(2025, 5, 2, 0, 0), null)));
+
+        // Act
+        UserBatchDto result = userService.getUsers(Arrays.asList(3L, 1L, 3L, 2L, null, 4L));
+
+        // Assert
+        assertEquals(List.of(3L, 1L), result.getUsers().stream().map(UserDto::getId).toList());
+        assertEquals(List.of("Netflix", "Okko"),
+                result.getUsers().get(0).getSubscriptions().stream().map(SubscriptionDto::getServiceName).toList());
+        assertTrue(result.getUsers().get(1).getSubscriptions().isEmpty());
+        assertEquals(List.of(2L, 4L), result.getMissing());
+        verify(userRepository, never()).findByIdWithSubscriptions(any());
+    }
+
+    @Test
+    void testGetUsers_TooManyIds_ShouldThrowInvalidRequestException() {
+        List<Long> ids = LongStream.rangeClosed(1, UserService.MAX_MULTI_GET_IDS + 1).boxed().toList();
+
+        assertThrows(InvalidRequestException.class, () -> userService.getUsers(ids));
+        verifyNoInteractions(userRepository);
+    }
+}
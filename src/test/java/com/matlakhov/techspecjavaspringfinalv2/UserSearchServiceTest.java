@@ -0,0 +1,98 @@
+package com.matlakhov.techspecjavaspringfinalv2;
+
+import com.matlakhov.techspecjavaspringfinalv2.dto.UserDto;
+import com.matlakhov.techspecjavaspringfinalv2.search.UserPrefixIndex;
+import com.matlakhov.techspecjavaspringfinalv2.search.UserSearchProperties;
+import com.matlakhov.techspecjavaspringfinalv2.search.UserSearchRepository;
+import com.matlakhov.techspecjavaspringfinalv2.search.UserSearchService;
+import com.matlakhov.techspecjavaspringfinalv2.search.UserSummary;
+import com.matlakhov.techspecjavaspringfinalv2.sharding.ShardedQueryExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSearchServiceTest {
+    private static final UserSummary ALICE = new UserSummary(1L, "Alice", "alice@example.com");
+    private static final UserSummary ALBERT = new UserSummary(2L, "albert", "bert@example.com");
+    private static final UserSummary ZED = new UserSummary(3L, "zed", "al@example.com");
+
+    @Mock
+    private UserSearchRepository searchRepository;
+
+    @Mock
+    private UserPrefixIndex prefixIndex;
+
+    @Mock
+    private ShardedQueryExecutor shardedQueries;
+
+    private UserSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        UserSearchProperties properties = new UserSearchProperties();
+        properties.setMaxLimit(5);
+        service = new UserSearchService(searchRepository, prefixIndex, shardedQueries, properties);
+    }
+
+    @Test
+    void testSearch_ShouldReturnUsernameMatchesThenEmailMatches() {
+        when(searchRepository.findByUsernamePrefix("al", 3)).thenReturn(List.of(ALBERT, ALICE));
+        when(searchRepository.findByEmailPrefix("al", 3)).thenReturn(List.of(ZED, ALICE));
+
+        List<UserDto> result = service.search(" AL ", 3);
+
+        assertEquals(List.of(2L, 1L, 3L), result.stream().map(UserDto::getId).toList());
+        assertNull(result.get(0).getSubscriptions());
+    }
+
+    @Test
+    void testSearch_EnoughUsernameMatches_ShouldNotQueryEmails() {
+        when(searchRepository.findByUsernamePrefix("al", 2)).thenReturn(List.of(ALBERT, ALICE));
+
+        assertEquals(2, service.search("al", 2).size());
+        verify(searchRepository, never()).findByEmailPrefix(anyString(), anyInt());
+    }
+
+    @Test
+    void testSearch_ShouldClampLimitAndIgnoreBlankPrefix() {
+        when(searchRepository.findByUsernamePrefix("a", 5)).thenReturn(List.of());
+        when(searchRepository.findByEmailPrefix("a", 5)).thenReturn(List.of());
+
+        service.search("a", 1000);
+
+        assertTrue(service.search("  ", 10).isEmpty());
+        verify(searchRepository, times(1)).findByUsernamePrefix(anyString(), anyInt());
+    }
+
+    @Test
+    void testSearch_IndexReady_ShouldNotQueryDatabase() {
+        when(prefixIndex.isReady()).thenReturn(true);
+        when(prefixIndex.search("al", 5)).thenReturn(List.of(ALICE));
+
+        assertEquals("Alice", service.search("Al", 10).get(0).getUsername());
+        verifyNoInteractions(searchRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearch_Sharded_ShouldMergeShardsInKeyOrder() {
+        UserSummary alex = new UserSummary(4L, "Alex", "alex@example.com");
+        when(shardedQueries.isEnabled()).thenReturn(true);
+        when(shardedQueries.onEveryShard(any(Supplier.class)))
+                .thenReturn(List.of(List.of(ALBERT, ALICE), List.of(alex)));
+
+        List<UserDto> result = service.search("al", 2);
+
+        assertEquals(List.of("albert", "Alex"), result.stream().map(UserDto::getUsername).toList());
+    }
+}
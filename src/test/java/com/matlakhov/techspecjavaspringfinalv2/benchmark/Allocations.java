@@ -0,0 +1,18 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Счётчик байт, выделенных текущим потоком (HotSpot {@code com.sun.management.ThreadMXBean}).
+ */
+final class Allocations {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    static long currentThreadAllocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,39 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditJournal;
+import com.matlakhov.techspecjavaspringfinalv2.audit.AuditOperation;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+/**
+ * Стоимость записи в журнал аудита: {@link AuditJournal#append} с переходом между сегментами по 64 МБ
+ * и сбросом на диск раз в 100 000 записей (как раз в секунду под нагрузкой).
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=AuditJournalBenchmark}.
+ */
+@Tag("benchmark")
+class AuditJournalBenchmark {
+    private static final int OPERATIONS = 2_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append() throws Exception {
+        try (AuditJournal journal = new AuditJournal(directory, 64 * 1024 * 1024)) {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    journal.append(AuditOperation.SUBSCRIPTION_ADDED, i, i, "YouTube Premium", null);
+                    if (i % 100_000 == 0) {
+                        journal.force();
+                    }
+                }
+                System.out.printf("append %6.1f нс на запись (включая force)%n",
+                        (double) (System.nanoTime() - start) / OPERATIONS);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.json.FastDtoSerializersModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Размер ответа и стоимость кодирования/декодирования списка подписок в JSON, CBOR и Smile.
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=BinaryFormatsBenchmark}.
+ */
+@Tag("benchmark")
+class BinaryFormatsBenchmark {
+    private static final int LIST_SIZE = 100;
+    private static final int ITERATIONS = 20_000;
+    private static final TypeReference<List<SubscriptionDto>> SUBSCRIPTION_LIST = new TypeReference<>() {
+    };
+
+    @Test
+    void compareFormats() throws Exception {
+        List<SubscriptionDto> payload = new ArrayList<>(LIST_SIZE);
+        String[] services = {"Netflix", "YouTube Premium", "VK Музыка", "Яндекс.Плюс"};
+        LocalDateTime start = LocalDateTime.of(2025, 5, 12, 10, 0);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            SubscriptionDto dto = new SubscriptionDto();
+            dto.setId(1_000_000L + i);
+            dto.setServiceName(services[i % services.length]);
+            dto.setStartDate(start.plusMinutes(i));
+            dto.setEndDate(i % 2 == 0 ? null : start.plusDays(30));
+            payload.add(dto);
+        }
+
+        run("json", mapper(new JsonFactory()), payload);
+        run("cbor", mapper(new CBORFactory()), payload);
+        run("smile", mapper(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()),
+                payload);
+    }
+
+    private static void run(String name, ObjectMapper mapper, List<SubscriptionDto> payload) throws Exception {
+        byte[] encoded = mapper.writeValueAsBytes(payload);
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(payload), SUBSCRIPTION_LIST);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(payload);
+        }
+        long encodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.readValue(encoded, SUBSCRIPTION_LIST);
+        }
+        long decodeNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.printf("%-6s %7d bytes %8.1f us encode %8.1f us decode%n",
+                name, encoded.length, encodeNanos / 1e3, decodeNanos / 1e3);
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        return new ObjectMapper(factory)
+                .registerModule(new JavaTimeModule())
+                .registerModule(new FastDtoSerializersModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
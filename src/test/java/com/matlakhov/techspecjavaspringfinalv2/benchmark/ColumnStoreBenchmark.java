@@ -0,0 +1,66 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import com.matlakhov.techspecjavaspringfinalv2.columnar.SubscriptionColumnStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+/**
+ * Время запросов к колоночному снимку подписок на 10 млн строк, последовательно и в пуле fork-join.
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=ColumnStoreBenchmark} (нужно около 1 ГБ памяти).
+ */
+@Tag("benchmark")
+class ColumnStoreBenchmark {
+    private static final int ROWS = 10_000_000;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    void scanQueries() {
+        SubscriptionColumnStore sequential = fill(new SubscriptionColumnStore(ROWS, Integer.MAX_VALUE));
+        run("sequential", sequential);
+        sequential = null;
+        run("fork-join", fill(new SubscriptionColumnStore(ROWS, 1 << 18)));
+    }
+
+    private static SubscriptionColumnStore fill(SubscriptionColumnStore store) {
+        Random random = new Random(1);
+        String[] services = new String[200];
+        for (int i = 0; i < services.length; i++) {
+            services[i] = "service-" + i;
+        }
+        for (int i = 0; i < ROWS; i++) {
+            long start = 1_600_000_000L + random.nextInt(100_000_000);
+            boolean deleted = random.nextInt(3) == 0;
+            store.upsert(i + 1, i / 3, services[random.nextInt(services.length)], start,
+                    deleted ? start + random.nextInt(30_000_000) : SubscriptionColumnStore.NO_END, deleted);
+        }
+        return store;
+    }
+
+    private static void run(String name, SubscriptionColumnStore store) {
+        long at = 1_650_000_000L;
+        for (int i = 0; i < ITERATIONS; i++) {
+            store.topCurrent(3, at);
+            store.countActiveAt(at);
+            store.countStartedBetween(at, at + 10_000_000);
+        }
+        long top = 0;
+        long active = 0;
+        long started = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            store.topCurrent(3, at);
+            long t1 = System.nanoTime();
+            store.countActiveAt(at);
+            long t2 = System.nanoTime();
+            store.countStartedBetween(at, at + 10_000_000);
+            long t3 = System.nanoTime();
+            top += t1 - t0;
+            active += t2 - t1;
+            started += t3 - t2;
+        }
+        System.out.printf("%-10s top-3 %6.1f ms, active at %6.1f ms, started between %6.1f ms%n", name,
+                top / 1e6 / ITERATIONS, active / 1e6 / ITERATIONS, started / 1e6 / ITERATIONS);
+    }
+}
@@ -0,0 +1,97 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import com.matlakhov.techspecjavaspringfinalv2.concurrency.AdaptiveConcurrencyLimiter;
+import com.matlakhov.techspecjavaspringfinalv2.concurrency.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Время ответа принятых запросов при перегрузке с {@link AdaptiveConcurrencyLimiter} и без него.
+ * База моделируется пулом из 10 соединений, запрос занимает соединение на 2 мс; 200 клиентов шлют запросы
+ * без пауз, после отказа ждут 5 мс. Без ограничения запросы ждут соединения в очереди пула,
+ * с ограничением лишние сразу получают отказ.
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=ConcurrencyLimitBenchmark}.
+ */
+@Tag("benchmark")
+class ConcurrencyLimitBenchmark {
+    private static final int CONNECTIONS = 10;
+    private static final long QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final int CLIENTS = 200;
+    private static final long REJECT_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long PHASE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    void overload() throws Exception {
+        run("без ограничения", null);
+        run("с ограничением", new AdaptiveConcurrencyLimiter(new ConcurrencyLimitProperties(), System.nanoTime()));
+    }
+
+    private static void run(String name, AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        Semaphore pool = new Semaphore(CONNECTIONS, true);
+        AtomicLong rejected = new AtomicLong();
+        long start = System.nanoTime();
+        // Первая секунда - разгон: предел ещё подстраивается
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(1);
+        long deadline = start + PHASE_NANOS;
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            long[] samples = new long[200_000];
+            latencies.add(samples);
+            Thread client = new Thread(() -> {
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    if (limiter != null && !limiter.tryAcquire()) {
+                        if (System.nanoTime() >= measureFrom) {
+                            rejected.incrementAndGet();
+                        }
+                        LockSupport.parkNanos(REJECT_BACKOFF_NANOS);
+                        continue;
+                    }
+                    long begin = System.nanoTime();
+                    pool.acquireUninterruptibly();
+                    try {
+                        LockSupport.parkNanos(QUERY_NANOS);
+                    } finally {
+                        pool.release();
+                    }
+                    long end = System.nanoTime();
+                    if (limiter != null) {
+                        limiter.release(end - begin, end);
+                    }
+                    if (begin >= measureFrom && count < samples.length - 1) {
+                        samples[++count] = end - begin;
+                    }
+                }
+                samples[0] = count;
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        long[] all = latencies.stream()
+                .flatMapToLong(samples -> Arrays.stream(samples, 1, (int) samples[0] + 1))
+                .sorted()
+                .toArray();
+        double seconds = (double) (deadline - measureFrom) / TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("%-16s принято %6.0f/с, отклонено %6.0f/с, p50 %5.1f мс, p99 %5.1f мс, max %5.1f мс%s%n",
+                name, all.length / seconds, rejected.get() / seconds, millis(all, 0.50), millis(all, 0.99),
+                millis(all, 1.0), limiter != null ? ", предел " + limiter.limit() : "");
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import com.matlakhov.techspecjavaspringfinalv2.model.SubscriptionEntity;
+import com.matlakhov.techspecjavaspringfinalv2.model.UserEntity;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Время flush сессии, в которой загружено {@value #USERS} пользователей: без изменений и после изменения
+ * одного пользователя. Без расширения байт-кода Hibernate при каждом flush сравнивает все сущности со снимками,
+ * с ним - проверяет только отмеченные изменёнными.
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=EntityFlushBenchmark
+ * -Dbenchmark.datasource.url=jdbc:postgresql://localhost:5433/user_subscriptions}.
+ * Пользователи создаются в транзакции, которая в конце откатывается.
+ */
+@Tag("benchmark")
+class EntityFlushBenchmark {
+    private static final int USERS = 10_000;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    void flush() {
+        String url = System.getProperty("benchmark.datasource.url");
+        Assumptions.assumeTrue(url != null, "Укажите -Dbenchmark.datasource.url");
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(UserEntity.class)
+                .addAnnotatedClass(SubscriptionEntity.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, url)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_USER,
+                        System.getProperty("benchmark.datasource.username", "postgres"))
+                .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD,
+                        System.getProperty("benchmark.datasource.password", "postgres"));
+
+        try (SessionFactory sessionFactory = configuration.buildSessionFactory();
+             Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                String run = Long.toString(System.nanoTime(), 36);
+                for (int i = 0; i < USERS; i++) {
+                    UserEntity user = new UserEntity();
+                    user.setUsername("flush-" + run + "-" + i);
+                    user.setEmail("flush-" + run + "-" + i + "@example.com");
+                    user.setIsDeleted(false);
+                    session.persist(user);
+                }
+                session.flush();
+                session.clear();
+                List<UserEntity> users = session
+                        .createQuery("from UserEntity where username like :prefix", UserEntity.class)
+                        .setParameter("prefix", "flush-" + run + "-%")
+                        .list();
+
+                measure(session, users, run, "warm-up");
+                measure(session, users, run, "measured");
+            } finally {
+                transaction.rollback();
+            }
+        }
+    }
+
+    private static void measure(Session session, List<UserEntity> users, String run, String phase) {
+        long clean = 0;
+        long dirty = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            session.flush();
+            long t1 = System.nanoTime();
+            users.get(i).setEmail("flushed-" + phase + "-" + run + "-" + i + "@example.com");
+            long t2 = System.nanoTime();
+            session.flush();
+            long t3 = System.nanoTime();
+            clean += t1 - t0;
+            dirty += t3 - t2;
+        }
+        if ("measured".equals(phase)) {
+            System.out.printf("enhanced=%s, %d сущностей: flush без изменений %7.1f мкс, с одним изменением %7.1f мкс%n",
+                    SelfDirtinessTracker.class.isAssignableFrom(UserEntity.class), users.size(),
+                    clean / 1e3 / ITERATIONS, dirty / 1e3 / ITERATIONS);
+        }
+    }
+}
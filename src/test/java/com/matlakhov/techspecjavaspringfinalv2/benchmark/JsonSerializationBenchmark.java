@@ -0,0 +1,68 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.matlakhov.techspecjavaspringfinalv2.dto.SubscriptionDto;
+import com.matlakhov.techspecjavaspringfinalv2.json.FastDtoSerializersModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сравнение пропускной способности и аллокаций на ответ для рефлексивной и ручной сериализации
+ * списка подписок. Запуск: {@code mvn test -Pbenchmark -Dtest=JsonSerializationBenchmark}.
+ */
+@Tag("benchmark")
+class JsonSerializationBenchmark {
+    private static final int LIST_SIZE = 1_000;
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 5_000;
+
+    @Test
+    void compareSubscriptionListSerialization() throws Exception {
+        List<SubscriptionDto> subscriptions = new ArrayList<>(LIST_SIZE);
+        LocalDateTime start = LocalDateTime.of(2025, 5, 12, 10, 0, 0, 123_456_000);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            SubscriptionDto dto = new SubscriptionDto();
+            dto.setId((long) i);
+            dto.setServiceName("Service " + (i % 50));
+            dto.setStartDate(start.plusSeconds(i * 37L));
+            dto.setEndDate(i % 3 == 0 ? start.plusDays(30) : null);
+            subscriptions.add(dto);
+        }
+
+        ObjectMapper defaultMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper fastMapper = defaultMapper.copy().registerModule(new FastDtoSerializersModule());
+
+        report("reflective", measure(defaultMapper.writerFor(List.class), subscriptions));
+        report("fast", measure(fastMapper.writerFor(List.class), subscriptions));
+    }
+
+    private static long[] measure(ObjectWriter writer, List<SubscriptionDto> payload) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            writer.writeValue(OutputStream.nullOutputStream(), payload);
+        }
+        long allocatedBefore = Allocations.currentThreadAllocatedBytes();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            writer.writeValue(OutputStream.nullOutputStream(), payload);
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocated = Allocations.currentThreadAllocatedBytes() - allocatedBefore;
+        return new long[]{elapsedNanos, allocated};
+    }
+
+    private static void report(String name, long[] result) {
+        double opsPerSecond = MEASURED_ITERATIONS / (result[0] / 1e9);
+        System.out.printf("%-10s %10.1f responses/s %12d bytes allocated/response%n",
+                name, opsPerSecond, result[1] / MEASURED_ITERATIONS);
+    }
+}
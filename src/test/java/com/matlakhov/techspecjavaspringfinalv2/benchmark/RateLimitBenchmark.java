@@ -0,0 +1,90 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import com.matlakhov.techspecjavaspringfinalv2.ratelimit.RateLimitFilter;
+import com.matlakhov.techspecjavaspringfinalv2.ratelimit.RateLimitProperties;
+import com.matlakhov.techspecjavaspringfinalv2.ratelimit.TokenBucketRateLimiter;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость проверки ограничения частоты запросов: {@link TokenBucketRateLimiter#tryAcquire} для 10 000 клиентов
+ * и весь {@link RateLimitFilter} с тремя правилами для эндпоинтов (без создания запроса).
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=RateLimitBenchmark}.
+ */
+@Tag("benchmark")
+class RateLimitBenchmark {
+    private static final int CLIENTS = 10_000;
+    private static final int OPERATIONS = 5_000_000;
+
+    @Test
+    void check() throws Exception {
+        String[] clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+        }
+        TokenBucketRateLimiter limiter =
+                new TokenBucketRateLimiter(1_000_000, 1_000_000, TimeUnit.MINUTES.toNanos(5), 64);
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long rejected = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                rejected += limiter.tryAcquire(clients[i % CLIENTS], System.nanoTime()) > 0 ? 1 : 0;
+            }
+            report("tryAcquire", start, rejected);
+        }
+
+        RateLimitFilter filter = new RateLimitFilter(properties());
+        List<MockHttpServletRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/" + i);
+            request.setRemoteAddr(clients[i]);
+            requests.add(request);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+        };
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS / 5; i++) {
+                MockHttpServletRequest request = requests.get(i % requests.size());
+                // OncePerRequestFilter отмечает запрос атрибутом, снимаем отметку для повторного прохода
+                request.clearAttributes();
+                filter.doFilter(request, response, chain);
+            }
+            report("filter", start, response.getStatus() == 429 ? 1 : 0, OPERATIONS / 5);
+        }
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefaultCapacity(1_000_000);
+        properties.setDefaultRefillPerSecond(1_000_000);
+        List<RateLimitProperties.Limit> limits = new ArrayList<>();
+        for (String pattern : List.of("/subscriptions/top", "/users/search", "/users/{id}")) {
+            RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+            limit.setMethod("GET");
+            limit.setPattern(pattern);
+            limit.setCapacity(1_000_000);
+            limit.setRefillPerSecond(1_000_000);
+            limits.add(limit);
+        }
+        properties.setLimits(limits);
+        return properties;
+    }
+
+    private static void report(String name, long start, long rejected) {
+        report(name, start, rejected, OPERATIONS);
+    }
+
+    private static void report(String name, long start, long rejected, int operations) {
+        System.out.printf("%-10s %6.1f нс на проверку (отклонено %d)%n", name,
+                (double) (System.nanoTime() - start) / operations, rejected);
+    }
+}
@@ -0,0 +1,115 @@
+package com.matlakhov.techspecjavaspringfinalv2.benchmark;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время от запуска JVM до первого успешного ответа приложения: обычный jar, распакованный jar с AOT
+ * и он же с архивом CDS. Нужна сборка {@code mvn -Pfast-startup package -DskipTests}.
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=StartupBenchmark}.
+ * <p>
+ * По умолчанию приложение стартует без базы (профиль {@code cds-training}) и запрашивается
+ * {@code /v3/api-docs}: он не обращается к базе, но включает первое построение описания API springdoc. С базой:
+ * {@code -Dstartup.datasource.url=jdbc:postgresql://localhost:5433/user_subscriptions -Dstartup.path=/subscriptions/top}.
+ * Количество запусков каждого варианта - {@code -Dstartup.runs} (по умолчанию 3).
+ */
+@Tag("benchmark")
+class StartupBenchmark {
+    private static final Path TARGET = Path.of("target");
+    private static final Path EXTRACTED = TARGET.resolve("application");
+    private static final Duration TIMEOUT = Duration.ofSeconds(120);
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    private final String path = System.getProperty("startup.path", "/v3/api-docs");
+    private final String datasourceUrl = System.getProperty("startup.datasource.url");
+    private final int runs = Integer.getInteger("startup.runs", 3);
+
+    @Test
+    void timeToFirstRequest() throws Exception {
+        Path archive = EXTRACTED.resolve("application.jsa");
+        Assumptions.assumeTrue(Files.exists(archive), "Сначала выполните mvn -Pfast-startup package -DskipTests");
+        String jarName;
+        try (Stream<Path> jars = Files.list(EXTRACTED)) {
+            jarName = jars.map(jar -> jar.getFileName().toString()).filter(name -> name.endsWith(".jar"))
+                    .findFirst().orElseThrow();
+        }
+        String jar = TARGET.resolve(jarName).toString();
+        String extractedJar = EXTRACTED.resolve(jarName).toString();
+
+        run("jar", List.of("-jar", jar));
+        run("aot", List.of("-Dspring.aot.enabled=true", "-jar", extractedJar));
+        run("aot+cds", List.of("-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off",
+                "-Dspring.aot.enabled=true", "-jar", extractedJar));
+    }
+
+    private void run(String name, List<String> launch) throws Exception {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = timeToFirstRequest(launch);
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-8s первый успешный запрос %s: медиана %5d мс, минимум %5d мс (%d запусков)%n",
+                name, path, millis[runs / 2], millis[0], runs);
+    }
+
+    private long timeToFirstRequest(List<String> launch) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.addAll(launch);
+        command.add("--server.port=" + port);
+        command.add("--spring.jpa.show-sql=false");
+        if (datasourceUrl != null) {
+            command.add("--spring.datasource.url=" + datasourceUrl);
+        } else {
+            command.add("--spring.profiles.active=cds-training");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(5)).build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - started < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Приложение завершилось с кодом " + process.exitValue());
+                }
+                try {
+                    if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    }
+                } catch (IOException e) {
+                    // Порт ещё не открыт
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("Нет успешного ответа за " + TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}